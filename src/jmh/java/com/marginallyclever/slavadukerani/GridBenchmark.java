@@ -0,0 +1,147 @@
+package com.marginallyclever.slavadukerani;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/// JMH benchmarks for the [Grid] hot paths: building a board, placing mines, counting sensors, flood fill reveals,
+/// chording and parsing challenge maps.  Run through the `benchmark` profile, see pom.xml.
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class GridBenchmark {
+    /// A board of each size and mine density.
+    @State(Scope.Thread)
+    public static class RandomBoard {
+        @Param({"20x10", "200x100", "2000x1000"})
+        public String size;
+
+        /// mines as a percent of the board.
+        @Param({"5", "15", "25"})
+        public int density;
+
+        int width;
+        int height;
+        int mines;
+        Grid grid;
+
+        @Setup(Level.Trial)
+        public void setup() {
+            String [] parts = size.split("x");
+            width = Integer.parseInt(parts[0]);
+            height = Integer.parseInt(parts[1]);
+            mines = (int)((long)width * height * density / 100);
+            grid = new Grid(width, height, 1234, mines);
+        }
+    }
+
+    @Benchmark
+    public Grid newGrid(RandomBoard board) {
+        return new Grid(board.width, board.height, 1234, board.mines);
+    }
+
+    @Benchmark
+    public Grid placeMines(RandomBoard board) {
+        board.grid.placeMines();
+        return board.grid;
+    }
+
+    @Benchmark
+    public Grid calculateSensorValues(RandomBoard board) {
+        board.grid.calculateSensorValues();
+        return board.grid;
+    }
+
+    /// The worst case opening: a board with no mines, where one click floods every tile.
+    @State(Scope.Thread)
+    public static class EmptyBoard {
+        @Param({"200x100", "2000x1000"})
+        public String floodSize;
+
+        Grid grid;
+        final ChangedTiles changes = new ChangedTiles();
+
+        @Setup(Level.Trial)
+        public void setup() {
+            String [] parts = floodSize.split("x");
+            grid = new Grid(Integer.parseInt(parts[0]), Integer.parseInt(parts[1]), 1234, 0);
+        }
+
+        @Setup(Level.Invocation)
+        public void hide() {
+            grid.hideAll();
+            changes.clear();
+        }
+    }
+
+    @Benchmark
+    public ChangedTiles revealWorstCase(EmptyBoard board) {
+        board.grid.revealTile(0, 0, board.changes);
+        return board.changes;
+    }
+
+    /// A numbered start tile with its mines flagged, ready to chord.  Chording reveals tiles, so the board is rebuilt
+    /// before every call.
+    @State(Scope.Thread)
+    public static class ChordBoard {
+        static final int WIDTH = 200, HEIGHT = 100, MINES = WIDTH * HEIGHT / 5;
+
+        long seed;
+        GameEngine engine;
+
+        @Setup(Level.Trial)
+        public void findSeed() {
+            // the first seed with mines around the second start tile.
+            seed = 0;
+            while (new Grid(WIDTH, HEIGHT, seed, MINES).getSensorValue(1, 1) == 0) seed++;
+        }
+
+        @Setup(Level.Invocation)
+        public void setup() {
+            Grid grid = new Grid(WIDTH, HEIGHT, seed, MINES);
+            for (int ny = 0; ny <= 2; ny++) {
+                for (int nx = 0; nx <= 2; nx++) {
+                    if (grid.getType(nx, ny) == GridTile.TYPE_MINE) grid.setFlagged(nx, ny, true);
+                }
+            }
+            engine = new GameEngine(grid);
+        }
+    }
+
+    @Benchmark
+    public GameEngine.Result doChord(ChordBoard board) {
+        return board.engine.chord(1, 1);
+    }
+
+    /// A challenge map of random mines.
+    @State(Scope.Thread)
+    public static class ChallengeMap {
+        @Param({"20x10", "200x100", "2000x1000"})
+        public String mapSize;
+
+        String map;
+
+        @Setup(Level.Trial)
+        public void setup() {
+            String [] parts = mapSize.split("x");
+            int w = Integer.parseInt(parts[0]);
+            int h = Integer.parseInt(parts[1]);
+            Grid grid = new Grid(w, h, 1234, (int)((long)w * h * 15 / 100));
+            StringBuilder sb = new StringBuilder();
+            for (int y = 0; y < h; y++) {
+                for (int x = 0; x < w; x++) {
+                    sb.append(grid.getType(x, y) == GridTile.TYPE_MINE ? '1' : '0');
+                }
+                sb.append('\n');
+            }
+            map = sb.toString();
+        }
+    }
+
+    @Benchmark
+    public Grid parseChallengeMap(ChallengeMap challenge) {
+        return new Grid(challenge.map);
+    }
+}
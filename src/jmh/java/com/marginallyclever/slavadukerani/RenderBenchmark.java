@@ -0,0 +1,76 @@
+package com.marginallyclever.slavadukerani;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.awt.*;
+import java.awt.image.BufferedImage;
+import java.util.concurrent.TimeUnit;
+
+/// JMH benchmarks for drawing a board into an offscreen [BufferedImage], so they run headless.  Covers the tiles alone
+/// ([GridPainter]) and the whole panel ([SlavaDukerani#paintComponent]), both for a full frame and for the one tile
+/// clip that most repaints use, and the one pixel per tile drawing of far zoom.
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Djava.awt.headless=true")
+@State(Scope.Thread)
+public class RenderBenchmark {
+    @Param({"20x10", "60x40"})
+    public String size;
+
+    private Grid grid;
+    private SlavaDukerani panel;
+    private BufferedImage image;
+    private Graphics2D g;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        String [] parts = size.split("x");
+        int width = Integer.parseInt(parts[0]);
+        int height = Integer.parseInt(parts[1]);
+        grid = new Grid(width, height, 1234, width * height / 8);
+        GameEngine engine = new GameEngine(grid);
+        engine.reveal(width / 2, height / 2);
+
+        panel = new SlavaDukerani(engine);
+        image = new BufferedImage(width * GridTile.SIZE_X, height * GridTile.SIZE_Y, BufferedImage.TYPE_INT_RGB);
+        g = image.createGraphics();
+        // load the art and fonts before measuring.
+        panel.paintComponent(g);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        g.dispose();
+    }
+
+    @Benchmark
+    public BufferedImage paintGrid() {
+        g.setClip(null);
+        GridPainter.paint(g, grid, false);
+        return image;
+    }
+
+    @Benchmark
+    public BufferedImage paintGridOneTile() {
+        g.setClip(GridTile.SIZE_X, GridTile.SIZE_Y, GridTile.SIZE_X, GridTile.SIZE_Y);
+        GridPainter.paint(g, grid, false);
+        return image;
+    }
+
+    /// Far zoom, where each tile is one pixel of a plain color.
+    @Benchmark
+    public BufferedImage paintGridAggregated() {
+        g.setClip(null);
+        GridPainter.paint(g, grid, false, 1);
+        return image;
+    }
+
+    @Benchmark
+    public BufferedImage paintPanel() {
+        g.setClip(null);
+        panel.paintComponent(g);
+        return image;
+    }
+}
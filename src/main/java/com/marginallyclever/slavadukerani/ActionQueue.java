@@ -0,0 +1,90 @@
+package com.marginallyclever.slavadukerani;
+
+import javax.swing.*;
+import java.lang.reflect.InvocationTargetException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Supplier;
+
+/// Runs the actions of one game in order on a background thread, so that a flood reveal of millions of tiles doesn't
+/// freeze the window.  Input that arrives meanwhile waits its turn.
+///
+/// Each action has two parts.  The work changes the [GameEngine] on the queue's thread while holding [#getLock()].
+/// What the work returns then runs on the Swing thread to repaint and tell listeners.  The next action waits for
+/// that to finish, since the engine reuses its [ChangedTiles] from one action to the next.
+class ActionQueue {
+    private final ExecutorService executor = Executors.newSingleThreadExecutor(r -> {
+        Thread thread = new Thread(r, "Slava Dukerani actions");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private final ReentrantLock lock = new ReentrantLock();
+    private final AtomicInteger pending = new AtomicInteger();
+    private volatile long workStarted = 0;
+    private volatile boolean closed = false;
+
+    /// @param work runs on the queue's thread.  Returns what to do on the Swing thread afterward, or null.
+    void submit(Supplier<Runnable> work) {
+        if (closed) return;
+        pending.incrementAndGet();
+        executor.execute(() -> {
+            try {
+                run(work);
+            } finally {
+                pending.decrementAndGet();
+            }
+        });
+    }
+
+    private void run(Supplier<Runnable> work) {
+        if (closed) return;
+        Runnable then;
+        lock.lock();
+        workStarted = System.nanoTime();
+        try {
+            then = work.get();
+        } catch (RuntimeException e) {
+            e.printStackTrace();
+            return;
+        } finally {
+            workStarted = 0;
+            lock.unlock();
+        }
+        if (then == null) return;
+        try {
+            SwingUtilities.invokeAndWait(() -> {
+                if (!closed) then.run();
+            });
+        } catch (InterruptedException e) {
+            // closed while waiting for the Swing thread.
+        } catch (InvocationTargetException e) {
+            e.getCause().printStackTrace();
+        }
+    }
+
+    /// @return true while any action is waiting or running.
+    boolean isBusy() {
+        return pending.get() > 0;
+    }
+
+    /// @return how long the work of the current action has been running, or 0 if none is.
+    long getRunningNanos() {
+        long started = workStarted;
+        return started == 0 ? 0 : System.nanoTime() - started;
+    }
+
+    /// Held by the queue's thread while the work of an action runs.  Take it to read a board that is not safe to read
+    /// while it changes.
+    ReentrantLock getLock() {
+        return lock;
+    }
+
+    /// Drop the actions still waiting.  The one running, if any, finishes in the background and its Swing part is
+    /// skipped.
+    void close() {
+        closed = true;
+        executor.shutdownNow();
+    }
+}
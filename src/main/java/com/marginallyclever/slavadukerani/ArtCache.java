@@ -0,0 +1,280 @@
+package com.marginallyclever.slavadukerani;
+
+import javax.imageio.ImageIO;
+import java.awt.*;
+import java.awt.image.BufferedImage;
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.net.URISyntaxException;
+import java.net.URL;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+import java.util.List;
+import java.util.jar.JarEntry;
+import java.util.jar.JarFile;
+
+/// Process-wide cache of the game art.  Each image is decoded once, then converted to the screen's native pixel
+/// format and pre-scaled to [GridTile#SIZE_X] x [GridTile#SIZE_Y] so drawing it is a straight copy.  Other tile sizes,
+/// for zooming, are scaled from the decoded image the first time they are asked for and cached the same way.
+///
+/// Every [Grid] and [SlavaDukerani] draws from the same cache, so new games and restarts never touch the disk.
+///
+/// Images are decoded without holding the cache's lock.  The first frame decodes only the art it draws, and is never
+/// held up by [#preloadInBackground()] decoding the rest.
+public class ArtCache {
+    private static final ArtCache INSTANCE = new ArtCache();
+
+    public static final String FLAG = "flag-32.png";
+    public static final String MINE = "mine.png";
+    public static final String EXIT = "exit-32.png";
+    public static final String HIDDEN = "hidden.png";
+    public static final String SENSOR = "sensor.png";
+    /// the names of the Duke images, one per line, written by the build.  See `pom.xml`.
+    public static final String DUKE_INDEX = "dukes/index.txt";
+
+    // decoded images at their own size, to scale from.
+    private final Map<String, BufferedImage> sources = new HashMap<>();
+    // tile size -> name -> image scaled to that size.
+    private final Map<Integer, Map<String, BufferedImage>> images = new HashMap<>();
+    private final Map<Integer, TileArt> tileArt = new HashMap<>();
+    private List<String> dukeNames;
+
+    /// The board art at one tile size, fetched together so a frame looks them up once.
+    public record TileArt(int size, BufferedImage hidden, BufferedImage flag, BufferedImage mine, BufferedImage exit) {}
+
+    public static ArtCache getInstance() {
+        return INSTANCE;
+    }
+
+    private ArtCache() {}
+
+    /// Decode all the art on a background thread, board art first, so later games don't have to wait for it.
+    /// [Startup] calls it once the first frame is shown.
+    public void preloadInBackground() {
+        Thread thread = new Thread(() -> {
+            getTileArt(GridTile.SIZE_X);
+            getImage(SENSOR);
+            for (String name : getDukeNames()) {
+                getImage(name);
+            }
+        }, "ArtCache preload");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    public BufferedImage getFlag() {
+        return getImage(FLAG);
+    }
+
+    public BufferedImage getMine() {
+        return getImage(MINE);
+    }
+
+    public BufferedImage getExit() {
+        return getImage(EXIT);
+    }
+
+    public BufferedImage getHidden() {
+        return getImage(HIDDEN);
+    }
+
+    public BufferedImage getSensor() {
+        return getImage(SENSOR);
+    }
+
+    /// @return the board art scaled to size x size pixels.
+    public TileArt getTileArt(int size) {
+        synchronized (this) {
+            TileArt art = tileArt.get(size);
+            if (art != null) return art;
+        }
+        TileArt art = new TileArt(size, getImage(HIDDEN, size), getImage(FLAG, size), getImage(MINE, size), getImage(EXIT, size));
+        synchronized (this) {
+            tileArt.putIfAbsent(size, art);
+            return tileArt.get(size);
+        }
+    }
+
+    /// @return a Duke picked at random, or null if no Dukes could be found.
+    public BufferedImage getRandomDuke(Random random) {
+        String chosen = pickDuke(random);
+        return chosen == null ? null : getImage(chosen);
+    }
+
+    /// @return the name of a Duke picked at random, for [#getImage(String,int)], or null if no Dukes could be found.
+    public String pickDuke(Random random) {
+        List<String> names = getDukeNames();
+        if (names.isEmpty()) {
+            System.err.println("No PNGs found.");
+            return null;
+        }
+        String chosen = names.get(random.nextInt(names.size()));
+        System.out.println("Loaded art: " + chosen);
+        return chosen;
+    }
+
+    /// @param name a resource name relative to this package, such as "mine.png" or "dukes/00.png".
+    /// @return the cached image at tile size, or null if it could not be loaded.
+    public BufferedImage getImage(String name) {
+        return getImage(name, GridTile.SIZE_X);
+    }
+
+    /// @return the cached image scaled to size x size pixels, or null if it could not be loaded.
+    public BufferedImage getImage(String name, int size) {
+        synchronized (this) {
+            Map<String, BufferedImage> bySize = images.get(size);
+            if (bySize != null && bySize.containsKey(name)) return bySize.get(name);
+        }
+        BufferedImage image = scale(getSource(name), size);
+        synchronized (this) {
+            Map<String, BufferedImage> bySize = images.computeIfAbsent(size, s -> new HashMap<>());
+            // if two threads scaled the same image, both keep the first one.
+            if (!bySize.containsKey(name)) bySize.put(name, image);
+            return bySize.get(name);
+        }
+    }
+
+    private BufferedImage getSource(String name) {
+        synchronized (this) {
+            if (sources.containsKey(name)) return sources.get(name);
+        }
+
+        BufferedImage image = null;
+        try (InputStream is = getClass().getResourceAsStream(name)) {
+            if (is != null) {
+                image = toCompatibleImage(ImageIO.read(is));
+            } else {
+                System.err.println("Failed to open resource: " + name);
+            }
+        } catch (IOException e) {
+            System.out.println("Error loading image " + name + ": " + e.getMessage());
+        }
+        synchronized (this) {
+            // remember failures too, so a missing file is only reported once.
+            if (!sources.containsKey(name)) sources.put(name, image);
+            return sources.get(name);
+        }
+    }
+
+    /// Copy the image into the screen's native format at its own size.
+    private static BufferedImage toCompatibleImage(BufferedImage source) {
+        if (source == null) return null;
+        BufferedImage result = createCompatibleImage(source.getWidth(), source.getHeight(), source.getTransparency());
+        Graphics2D g = result.createGraphics();
+        g.drawImage(source, 0, 0, null);
+        g.dispose();
+        return result;
+    }
+
+    /// Scale in steps of at most half, so shrinking big art doesn't skip pixels and alias.
+    private static BufferedImage scale(BufferedImage source, int size) {
+        if (source == null) return null;
+        BufferedImage result = source;
+        do {
+            int w = Math.max(size, result.getWidth() / 2);
+            int h = Math.max(size, result.getHeight() / 2);
+            if (result.getWidth() <= size) w = size;
+            if (result.getHeight() <= size) h = size;
+            BufferedImage next = createCompatibleImage(w, h, source.getTransparency());
+            Graphics2D g = next.createGraphics();
+            g.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+            g.drawImage(result, 0, 0, w, h, null);
+            g.dispose();
+            result = next;
+        } while (result.getWidth() != size || result.getHeight() != size);
+        return result;
+    }
+
+    /// @param transparency one of [Transparency#OPAQUE], [Transparency#BITMASK], or [Transparency#TRANSLUCENT].
+    /// @return a blank image in the screen's native pixel format, or a plain ARGB/RGB image when headless.
+    static BufferedImage createCompatibleImage(int width, int height, int transparency) {
+        if (GraphicsEnvironment.isHeadless()) {
+            return new BufferedImage(width, height,
+                    transparency == Transparency.OPAQUE ? BufferedImage.TYPE_INT_RGB : BufferedImage.TYPE_INT_ARGB);
+        }
+        GraphicsConfiguration gc = GraphicsEnvironment.getLocalGraphicsEnvironment()
+                .getDefaultScreenDevice().getDefaultConfiguration();
+        return gc.createCompatibleImage(width, height, transparency);
+    }
+
+    /// @return the names of all Duke images, relative to this package.
+    public synchronized List<String> getDukeNames() {
+        if (dukeNames == null) {
+            List<String> names = readDukeIndex();
+            if (names == null) {
+                // no index when the resources were not processed by the build, as in some IDEs.  Look for the files.
+                names = new ArrayList<>();
+                try {
+                    String packagePath = getClass().getPackage().getName().replace('.', '/');
+                    for (String path : listPngResources(packagePath + "/dukes")) {  // folder inside src/main/resources
+                        names.add(path.substring(packagePath.length() + 1));
+                    }
+                } catch (Exception e) {
+                    e.printStackTrace();
+                }
+            }
+            dukeNames = Collections.unmodifiableList(names);
+        }
+        return dukeNames;
+    }
+
+    /// @return the Duke names in [#DUKE_INDEX], or null if there is no index.
+    private List<String> readDukeIndex() {
+        try (InputStream is = getClass().getResourceAsStream(DUKE_INDEX)) {
+            if (is == null) return null;
+            List<String> names = new ArrayList<>();
+            BufferedReader reader = new BufferedReader(new InputStreamReader(is, StandardCharsets.UTF_8));
+            for (String line = reader.readLine(); line != null; line = reader.readLine()) {
+                line = line.strip();
+                if (!line.isEmpty()) names.add("dukes/" + line);
+            }
+            return names;
+        } catch (IOException e) {
+            System.out.println("Error reading " + DUKE_INDEX + ": " + e.getMessage());
+            return null;
+        }
+    }
+
+    // helper to list pngs from a resource folder (handles both file and jar)
+    private List<String> listPngResources(String resourceFolder) throws IOException, URISyntaxException {
+        List<String> result = new ArrayList<>();
+        ClassLoader cl = getClass().getClassLoader();
+        URL dirURL = cl.getResource(resourceFolder);
+        if (dirURL != null && dirURL.getProtocol().equals("file")) {
+            File folder = new File(dirURL.toURI());
+            File[] files = folder.listFiles((d, name) -> name.toLowerCase().endsWith(".png"));
+            if (files != null) {
+                for (File f : files) result.add(resourceFolder + "/" + f.getName());
+            }
+        } else if (dirURL != null && dirURL.getProtocol().equals("jar")) {
+            String dirPath = dirURL.getPath();
+            String jarPath = dirPath.substring(5, dirPath.indexOf("!")); // strip "file:" and everything after "!"
+            try (JarFile jar = new JarFile(URLDecoder.decode(jarPath, StandardCharsets.UTF_8))) {
+                Enumeration<JarEntry> entries = jar.entries();
+                while (entries.hasMoreElements()) {
+                    String name = entries.nextElement().getName();
+                    if (name.startsWith(resourceFolder + "/") && name.toLowerCase().endsWith(".png")) {
+                        result.add(name);
+                    }
+                }
+            }
+        } else {
+            // fallback: attempt scanning classpath URLs (may not list inside JARs)
+            Enumeration<URL> resources = cl.getResources(resourceFolder);
+            while (resources.hasMoreElements()) {
+                URL url = resources.nextElement();
+                if ("file".equals(url.getProtocol())) {
+                    File folder = new File(url.toURI());
+                    File[] files = folder.listFiles((d, name) -> name.toLowerCase().endsWith(".png"));
+                    if (files != null) for (File f : files) result.add(resourceFolder + "/" + f.getName());
+                }
+            }
+        }
+        Collections.sort(result);
+        return result;
+    }
+}
@@ -0,0 +1,204 @@
+package com.marginallyclever.slavadukerani;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.SplittableRandom;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+import java.util.function.Supplier;
+
+/// Plays many seeded games headless with a [BotStrategy] and reports how they went, to help tune the default
+/// settings.  For each board size and mine count it reports the win rate, what killed the bot, and how many moves the
+/// winning games took to reach the exit.
+///
+/// Games are split into ranges on a [ForkJoinPool].  Each leaf task counts into its own [Stats], and the totals are
+/// merged as the tasks join, so the workers never share a counter.
+///
+/// Usage: `BatchSimulator [--games N] [--configs WxHxM,...] [--bot solver|random] [--seed S] [--threads T]
+/// [--format csv|json]`
+public class BatchSimulator {
+    /// games per leaf task.  Big enough to amortize the task, small enough to balance the load.
+    private static final int GAMES_PER_TASK = 256;
+
+    /// One board size and mine count to simulate.
+    public record Config(int width, int height, int mines) {
+        /// @param text such as "20x10x30" for a 20x10 board with 30 mines.
+        public static Config parse(String text) {
+            String[] parts = text.trim().toLowerCase(Locale.ROOT).split("x");
+            if (parts.length != 3) throw new IllegalArgumentException("Expected WxHxM, got " + text);
+            return new Config(Integer.parseInt(parts[0]), Integer.parseInt(parts[1]), Integer.parseInt(parts[2]));
+        }
+    }
+
+    /// Totals for a number of games.  Not thread safe: each task has its own and they are merged.
+    public static class Stats {
+        public long games, wins, pokedMine, walkedOntoMine, sensorOntoMine, gaveUp;
+        public long movesToExitTotal;
+        public int movesToExitMin = Integer.MAX_VALUE, movesToExitMax = 0;
+
+        void add(GameEngine.Result result, int moves) {
+            games++;
+            switch (result) {
+                case WON -> {
+                    wins++;
+                    movesToExitTotal += moves;
+                    movesToExitMin = Math.min(movesToExitMin, moves);
+                    movesToExitMax = Math.max(movesToExitMax, moves);
+                }
+                case POKED_MINE -> pokedMine++;
+                case WALKED_ONTO_MINE -> walkedOntoMine++;
+                case SENSOR_ONTO_MINE -> sensorOntoMine++;
+                case PLAYING -> gaveUp++;
+            }
+        }
+
+        void merge(Stats other) {
+            games += other.games;
+            wins += other.wins;
+            pokedMine += other.pokedMine;
+            walkedOntoMine += other.walkedOntoMine;
+            sensorOntoMine += other.sensorOntoMine;
+            gaveUp += other.gaveUp;
+            movesToExitTotal += other.movesToExitTotal;
+            movesToExitMin = Math.min(movesToExitMin, other.movesToExitMin);
+            movesToExitMax = Math.max(movesToExitMax, other.movesToExitMax);
+        }
+
+        public double getWinRate() {
+            return games == 0 ? 0 : (double) wins / games;
+        }
+
+        public double getAverageMovesToExit() {
+            return wins == 0 ? 0 : (double) movesToExitTotal / wins;
+        }
+    }
+
+    private final Supplier<BotStrategy> botFactory;
+    private final long seed;
+    private final ForkJoinPool pool;
+
+    public static void main(String[] args) {
+        int games = 100000;
+        List<Config> configs = new ArrayList<>();
+        String bot = "solver";
+        long seed = 0;
+        int threads = Runtime.getRuntime().availableProcessors();
+        String format = "csv";
+
+        for (int i = 0; i < args.length; i++) {
+            String value = i + 1 < args.length ? args[i + 1] : "";
+            switch (args[i]) {
+                case "--games" -> { games = Integer.parseInt(value); i++; }
+                case "--configs" -> {
+                    for (String c : value.split(",")) configs.add(Config.parse(c));
+                    i++;
+                }
+                case "--bot" -> { bot = value; i++; }
+                case "--seed" -> { seed = Long.parseLong(value); i++; }
+                case "--threads" -> { threads = Integer.parseInt(value); i++; }
+                case "--format" -> { format = value; i++; }
+                default -> {
+                    System.err.println("Unknown option " + args[i]);
+                    System.err.println("Usage: BatchSimulator [--games N] [--configs WxHxM,...] [--bot solver|random] [--seed S] [--threads T] [--format csv|json]");
+                    System.exit(1);
+                }
+            }
+        }
+        if (configs.isEmpty()) {
+            // the default game, and the same board with more and fewer mines.
+            for (int mines = 10; mines <= 50; mines += 10) configs.add(new Config(20, 10, mines));
+        }
+
+        Supplier<BotStrategy> botFactory = switch (bot) {
+            case "solver" -> SolverBot::new;
+            case "random" -> RandomWalkBot::new;
+            default -> throw new IllegalArgumentException("Unknown bot " + bot);
+        };
+
+        var simulator = new BatchSimulator(botFactory, seed, new ForkJoinPool(threads));
+        boolean json = format.equals("json");
+        System.out.println(json ? "[" : "width,height,mines,games,wins,winRate,pokedMine,walkedOntoMine,sensorOntoMine,gaveUp,avgMovesToExit,minMovesToExit,maxMovesToExit,gamesPerSecond");
+        for (int i = 0; i < configs.size(); i++) {
+            Config config = configs.get(i);
+            long start = System.nanoTime();
+            Stats stats = simulator.run(config, games);
+            double gamesPerSecond = stats.games * 1e9 / (System.nanoTime() - start);
+            System.out.println(json ? toJson(config, stats, gamesPerSecond) + (i + 1 < configs.size() ? "," : "")
+                                    : toCsv(config, stats, gamesPerSecond));
+        }
+        if (json) System.out.println("]");
+        simulator.pool.shutdown();
+    }
+
+    /// @param botFactory makes one bot per task.
+    /// @param seed the seed of the first game.  Every other game seed is derived from it.
+    public BatchSimulator(Supplier<BotStrategy> botFactory, long seed, ForkJoinPool pool) {
+        this.botFactory = botFactory;
+        this.seed = seed;
+        this.pool = pool;
+    }
+
+    /// Play games number 0 to games-1 of this config.
+    public Stats run(Config config, int games) {
+        return pool.invoke(new SimulationTask(config, 0, games));
+    }
+
+    /// Play one game to the end, or until the bot gives up or runs out of turns, and count it in stats.
+    private void playOne(Config config, BotStrategy bot, int game, Stats stats) {
+        long gameSeed = NoGuessGenerator.deriveSeed(seed, game);
+        GameEngine engine = new GameEngine(config.width(), config.height(), gameSeed, config.mines());
+        bot.startGame(engine, new SplittableRandom(~gameSeed));
+        long maxTurns = 4L * config.width() * config.height() + 100;
+        for (long turn = 0; turn < maxTurns && !engine.isGameOver(); turn++) {
+            if (!bot.takeTurn()) break;
+        }
+        stats.add(engine.getResult(), engine.getMoveCount());
+    }
+
+    private class SimulationTask extends RecursiveTask<Stats> {
+        private final Config config;
+        private final int from, to;
+
+        SimulationTask(Config config, int from, int to) {
+            this.config = config;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected Stats compute() {
+            if (to - from <= GAMES_PER_TASK) {
+                Stats stats = new Stats();
+                BotStrategy bot = botFactory.get();
+                for (int game = from; game < to; game++) {
+                    playOne(config, bot, game, stats);
+                }
+                return stats;
+            }
+            int middle = (from + to) >>> 1;
+            var left = new SimulationTask(config, from, middle);
+            left.fork();
+            Stats stats = new SimulationTask(config, middle, to).compute();
+            stats.merge(left.join());
+            return stats;
+        }
+    }
+
+    private static String toCsv(Config c, Stats s, double gamesPerSecond) {
+        return String.format(Locale.ROOT, "%d,%d,%d,%d,%d,%.4f,%d,%d,%d,%d,%.2f,%d,%d,%.0f",
+                c.width(), c.height(), c.mines(), s.games, s.wins, s.getWinRate(),
+                s.pokedMine, s.walkedOntoMine, s.sensorOntoMine, s.gaveUp,
+                s.getAverageMovesToExit(), s.wins == 0 ? 0 : s.movesToExitMin, s.movesToExitMax, gamesPerSecond);
+    }
+
+    private static String toJson(Config c, Stats s, double gamesPerSecond) {
+        return String.format(Locale.ROOT,
+                "{\"width\":%d,\"height\":%d,\"mines\":%d,\"games\":%d,\"wins\":%d,\"winRate\":%.4f," +
+                "\"deaths\":{\"pokedMine\":%d,\"walkedOntoMine\":%d,\"sensorOntoMine\":%d},\"gaveUp\":%d," +
+                "\"movesToExit\":{\"avg\":%.2f,\"min\":%d,\"max\":%d},\"gamesPerSecond\":%.0f}",
+                c.width(), c.height(), c.mines(), s.games, s.wins, s.getWinRate(),
+                s.pokedMine, s.walkedOntoMine, s.sensorOntoMine, s.gaveUp,
+                s.getAverageMovesToExit(), s.wins == 0 ? 0 : s.movesToExitMin, s.movesToExitMax, gamesPerSecond);
+    }
+}
@@ -0,0 +1,44 @@
+package com.marginallyclever.slavadukerani;
+
+/// The tiles of a game board as seen by the rules ([GameEngine]) and the view ([GridPainter], [SlavaDukerani]).
+///
+/// [Grid] keeps every tile in memory.  [ChunkedBoard] makes tiles on demand, for maps too big to allocate up front.
+public interface Board {
+    int getGridWidth();
+
+    int getGridHeight();
+
+    /// @return one of [GridTile#TYPE_EMPTY], [GridTile#TYPE_MINE], [GridTile#TYPE_EXIT].
+    int getType(int x, int y);
+
+    /// @return the number of mines adjacent to (x,y), 0-8.
+    int getSensorValue(int x, int y);
+
+    boolean isHidden(int x, int y);
+
+    boolean isFlagged(int x, int y);
+
+    void setFlagged(int x, int y, boolean flagged);
+
+    /// Reveal the tile at (x,y) and, if it has no adjacent mines, flood reveal the surrounding area.
+    /// @param changes every tile that goes from hidden to revealed is appended here.
+    /// @return true if a mine is revealed.
+    boolean revealTile(int x, int y, ChangedTiles changes);
+
+    /// Hide one revealed tile again, as when [UndoHistory] takes back an action.  Its neighbours are left alone.
+    void hideTile(int x, int y);
+
+    /// @return the number of mines on the board, flagged or not.
+    long getNumMines();
+
+    /// @return the number of flagged tiles.
+    int getFlagCount();
+
+    /// @return true if every tile that is not a mine has been revealed.
+    boolean isAllSafeRevealed();
+
+    /// @return a lightweight view of the tile at (x,y).
+    default GridTile getTile(int x, int y) {
+        return new GridTile(this, x, y);
+    }
+}
@@ -0,0 +1,11 @@
+package com.marginallyclever.slavadukerani;
+
+import java.util.EventListener;
+
+/// BoardChangeListener is an interface for listening to the tiles changed by each action in SlavaDukerani.
+public interface BoardChangeListener extends EventListener {
+    /// Called after every action, even one that changed no tiles, since the player or sensor may have moved.
+    /// @param changes   the tiles changed by the action.  Only valid during the call.
+    /// @param flagsOnly true if the tiles changed their flags, false if they were revealed or hidden again.
+    void boardChanged(ChangedTiles changes, boolean flagsOnly);
+}
@@ -0,0 +1,182 @@
+package com.marginallyclever.slavadukerani;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.StringReader;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ReadableByteChannel;
+import java.util.Arrays;
+
+/// Reads a challenge map: equal length lines of 0s and 1s, where 1 is a mine.  Lines end with \n or \r\n, and blank
+/// lines are allowed only at the end.  The exit is in the bottom right corner.  The 2x2 start area and the exit may not
+/// hold mines.
+///
+/// The map is read once, a character at a time, straight into the cells of the [Grid].  Sensor values are counted as
+/// the mines arrive: a new tile counts the mines already read to its left and in the row above it, and a new mine adds
+/// one to the tiles already read to its left and in the row above.  So only three rows are ever touched and a tile is
+/// finished as soon as the row below it is read.  Mistakes are reported with their line and column.
+public class BoardParser {
+    private static final int BUFFER_SIZE = 1 << 16;
+    private static final int MAX_CELLS = Integer.MAX_VALUE - 8;  // the largest array most VMs will allocate.
+
+    /// The cells of a parsed map, in the layout of [Grid].
+    record Cells(int width, int height, byte [] cells, int numMines) {}
+
+    private byte [] cells = new byte[4096];
+    private int width = -1;  // unknown until the end of the first line.
+    private int row = 0;  // rows of tiles read so far.
+    private int column = 0;
+    private int line = 1;  // for error messages, counting blank lines.
+    private int numMines = 0;
+    private boolean afterCarriageReturn = false;
+    private boolean afterBlankLine = false;
+
+    private BoardParser() {}
+
+    /// @throws IllegalArgumentException if the map is not valid.
+    public static Grid parse(Reader reader) throws IOException {
+        return new Grid(read(reader));
+    }
+
+    /// Read a map of ASCII or UTF-8 bytes.
+    /// @throws IllegalArgumentException if the map is not valid.
+    public static Grid parse(ReadableByteChannel channel) throws IOException {
+        return new Grid(read(channel));
+    }
+
+    static Cells read(String input) {
+        try {
+            return read(new StringReader(input));
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);  // a StringReader never fails.
+        }
+    }
+
+    static Cells read(Reader reader) throws IOException {
+        BoardParser parser = new BoardParser();
+        char [] buffer = new char[BUFFER_SIZE];
+        int n;
+        while ((n = reader.read(buffer)) >= 0) {
+            for (int i = 0; i < n; i++) parser.accept(buffer[i]);
+        }
+        return parser.finish();
+    }
+
+    static Cells read(ReadableByteChannel channel) throws IOException {
+        BoardParser parser = new BoardParser();
+        ByteBuffer buffer = ByteBuffer.allocate(BUFFER_SIZE);
+        byte [] bytes = buffer.array();
+        while (channel.read(buffer) >= 0) {
+            for (int i = 0; i < buffer.position(); i++) parser.accept(bytes[i] & 0xFF);
+            buffer.clear();
+        }
+        return parser.finish();
+    }
+
+    private void accept(int c) {
+        if (afterCarriageReturn && c != '\n') {
+            throw error(column + 1, "expected a new line after \\r");
+        }
+        switch (c) {
+            case '0', '1' -> addTile(c == '1');
+            case '\r' -> afterCarriageReturn = true;
+            case '\n' -> endLine();
+            default -> throw error(column + 1, "expected 0 or 1 but found " + describe(c));
+        }
+    }
+
+    private void addTile(boolean mine) {
+        if (afterBlankLine) throw error(1, "blank lines are only allowed at the end");
+        if (width >= 0 && column >= width) {
+            throw error(column + 1, "line is longer than the first line, which has " + width + " tiles");
+        }
+        long index = (long) row * Math.max(width, 0) + column;
+        if (index >= MAX_CELLS) throw error(column + 1, "the board is too big");
+        if (index >= cells.length) {
+            cells = Arrays.copyOf(cells, (int) Math.min(MAX_CELLS, (long) cells.length * 2));
+        }
+        int i = (int) index;
+        int above = i - width;
+
+        // count the mines already read around this tile: to the left and in the row above.
+        int sensor = 0;
+        if (column > 0 && isMine(i - 1)) sensor++;
+        if (row > 0) {
+            for (int x = Math.max(0, column - 1); x <= Math.min(width - 1, column + 1); x++) {
+                if (isMine(above - column + x)) sensor++;
+            }
+        }
+        cells[i] = (byte) sensor;
+
+        if (mine) {
+            cells[i] |= (byte) (GridTile.TYPE_MINE << Grid.TYPE_SHIFT);
+            numMines++;
+            // and tell the tiles already read around this mine.
+            if (column > 0) cells[i - 1]++;
+            if (row > 0) {
+                for (int x = Math.max(0, column - 1); x <= Math.min(width - 1, column + 1); x++) {
+                    cells[above - column + x]++;
+                }
+            }
+        }
+        column++;
+    }
+
+    private boolean isMine(int i) {
+        return (cells[i] & Grid.TYPE_MASK) == GridTile.TYPE_MINE << Grid.TYPE_SHIFT;
+    }
+
+    private void endLine() {
+        afterCarriageReturn = false;
+        if (column == 0) {
+            if (row == 0) throw error(1, "the first line is empty");
+            afterBlankLine = true;
+            line++;
+            return;
+        }
+        if (width < 0) {
+            width = column;
+        } else if (column != width) {
+            throw error(column + 1, "line has " + column + " tiles but the first line has " + width);
+        }
+        row++;
+        line++;
+        column = 0;
+    }
+
+    private Cells finish() {
+        if (afterCarriageReturn) throw error(column + 1, "expected a new line after \\r");
+        if (column > 0) endLine();
+        if (width < 0) throw new IllegalArgumentException("The board is empty.");
+        int height = row;
+        if (width < 2 || height < 2) throw new IllegalArgumentException("Grid must be at least 2x2.");
+
+        for (int y = 0; y < 2; y++) {
+            for (int x = 0; x < 2; x++) {
+                if (isMine(y * width + x)) throw error(y + 1, x + 1, "the start area can't hold a mine");
+            }
+        }
+        int exit = height * width - 1;
+        if (isMine(exit)) throw error(height, width, "the exit can't hold a mine");
+        cells[exit] = (byte) ((cells[exit] & ~Grid.TYPE_MASK) | GridTile.TYPE_EXIT << Grid.TYPE_SHIFT);
+
+        byte [] result = cells.length == exit + 1 ? cells : Arrays.copyOf(cells, exit + 1);
+        return new Cells(width, height, result, numMines);
+    }
+
+    private IllegalArgumentException error(int column, String message) {
+        return error(line, column, message);
+    }
+
+    private static IllegalArgumentException error(int line, int column, String message) {
+        return new IllegalArgumentException("Line " + line + ", column " + column + ": " + message + ".");
+    }
+
+    private static String describe(int c) {
+        if (c == ' ') return "a space";
+        if (c == '\t') return "a tab";
+        if (c < 32 || c == 127) return String.format("character 0x%02X", c);
+        return "'" + (char) c + "'";
+    }
+}
@@ -0,0 +1,15 @@
+package com.marginallyclever.slavadukerani;
+
+import java.util.random.RandomGenerator;
+
+/// A computer player, used by [BatchSimulator] to play many games without a user interface.  One instance plays one
+/// game at a time on one thread, so implementations can keep per-game state in fields.
+public interface BotStrategy {
+    /// Get ready to play a new game.
+    /// @param random the bot's only source of randomness, so that games can be repeated.
+    void startGame(GameEngine engine, RandomGenerator random);
+
+    /// Take one action on the engine.
+    /// @return false to give up.
+    boolean takeTurn();
+}
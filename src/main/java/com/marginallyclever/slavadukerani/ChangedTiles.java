@@ -0,0 +1,74 @@
+package com.marginallyclever.slavadukerani;
+
+import java.util.Arrays;
+
+/// A reusable list of the tiles changed by one or more actions on a [Grid], along with their bounding box.  Callers
+/// use it to repaint and count only the tiles that changed.  [#clear()] it between actions to avoid allocating.
+public class ChangedTiles {
+    private int[] xs = new int[16];
+    private int[] ys = new int[16];
+    private int size = 0;
+    private int minX, minY, maxX, maxY;
+
+    public ChangedTiles() {
+        clear();
+    }
+
+    public void add(int x, int y) {
+        if(size == xs.length) {
+            xs = Arrays.copyOf(xs, size * 2);
+            ys = Arrays.copyOf(ys, size * 2);
+        }
+        xs[size] = x;
+        ys[size] = y;
+        size++;
+        minX = Math.min(minX, x);
+        minY = Math.min(minY, y);
+        maxX = Math.max(maxX, x);
+        maxY = Math.max(maxY, y);
+    }
+
+    public void clear() {
+        size = 0;
+        minX = Integer.MAX_VALUE;
+        minY = Integer.MAX_VALUE;
+        maxX = Integer.MIN_VALUE;
+        maxY = Integer.MIN_VALUE;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    public int getX(int i) {
+        return xs[i];
+    }
+
+    public int getY(int i) {
+        return ys[i];
+    }
+
+    /// @return the smallest x of any changed tile.  Only meaningful when not empty.
+    public int getMinX() {
+        return minX;
+    }
+
+    /// @return the smallest y of any changed tile.  Only meaningful when not empty.
+    public int getMinY() {
+        return minY;
+    }
+
+    /// @return the largest x of any changed tile.  Only meaningful when not empty.
+    public int getMaxX() {
+        return maxX;
+    }
+
+    /// @return the largest y of any changed tile.  Only meaningful when not empty.
+    public int getMaxY() {
+        return maxY;
+    }
+}
@@ -0,0 +1,433 @@
+package com.marginallyclever.slavadukerani;
+
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.SplittableRandom;
+
+/// A [Board] that is made on demand, one [#CHUNK_SIZE] x [#CHUNK_SIZE] chunk at a time, so the map can be far bigger
+/// than the heap and start-up time does not grow with its area.
+///
+/// The mines of each chunk come from a random generator seeded by hashing (seed, chunkX, chunkY), so any chunk can be
+/// made on its own and always comes out the same.  Each chunk holds round(density * free tiles) mines, spread with
+/// selection sampling like [Grid#placeMines()].  Sensor values on a chunk's border count the mines of the chunks next
+/// to it, which are made again from their hashes as needed.
+///
+/// Chunks are made when a read, a reveal, or the painter first touches them, and the least recently used chunks are
+/// dropped once more than `maxChunks` are in memory.  A dropped chunk that the player never touched costs nothing,
+/// since it can be made again.  A chunk with reveals or flags keeps just those as two bits per tile until it is needed
+/// again.
+///
+/// Cells use the same one byte layout as [Grid].  Not thread safe.
+public class ChunkedBoard implements Board {
+    public static final int CHUNK_BITS = 6;
+    public static final int CHUNK_SIZE = 1 << CHUNK_BITS;
+    private static final int CHUNK_MASK = CHUNK_SIZE - 1;
+    public static final int DEFAULT_MAX_CHUNKS = 1024;
+    /// the longest side, so the board in pixels still fits in an int.
+    public static final int MAX_SIDE = Integer.MAX_VALUE / GridTile.SIZE_X;
+    /// the most tiles one reveal will flood.  On a sparse map an opening could go on forever.  Clicking or chording a
+    /// revealed empty tile at the edge of a capped flood carries on from there, through [GameEngine#chord].
+    public static final int MAX_FLOOD = 1 << 20;
+
+    private static final int SENSOR_MASK = 0x0F;
+    private static final int TYPE_SHIFT = 4;
+    private static final int TYPE_MASK = 0x03 << TYPE_SHIFT;
+    private static final int REVEALED_BIT = 0x40;
+    private static final int FLAGGED_BIT = 0x80;
+
+    private final int width;
+    private final int height;
+    private final long seed;
+    private final double density;
+    private final int exitX;
+    private final int exitY;
+    private final long numMines;
+
+    // chunks in memory, least recently used first.
+    private final LinkedHashMap<Long, byte[]> chunks;
+    // the player's reveals and flags on chunks that were dropped: CHUNK_SIZE rows of revealed bits, then of flag bits.
+    private final Map<Long, long[]> saved = new HashMap<>();
+    private long lastKey = -1;  // no chunk has a negative key.
+    private byte[] lastChunk;
+    private long chunksMade = 0;
+
+    private final IntQueue toVisit = new IntQueue();
+    private int flagCount = 0;
+    private long revealedSafeCount = 0;
+
+    /// Construct a board with the exit in the bottom right corner.
+    /// @param density the fraction of tiles that are mines, 0 to 1.
+    public ChunkedBoard(int width, int height, long seed, double density) {
+        this(width, height, seed, density, width - 1, height - 1, DEFAULT_MAX_CHUNKS);
+    }
+
+    /// @param width     Width of the board in tiles, up to [#MAX_SIDE].
+    /// @param height    Height of the board in tiles, up to [#MAX_SIDE].
+    /// @param seed      Seed for the chunk hashes.
+    /// @param density   The fraction of tiles that are mines, 0 to 1.
+    /// @param exitX     The exit can be anywhere outside the 2x2 start area.
+    /// @param exitY     The exit can be anywhere outside the 2x2 start area.
+    /// @param maxChunks The most chunks to keep in memory at once.
+    /// @throws IllegalArgumentException if any of the above are out of range.
+    public ChunkedBoard(int width, int height, long seed, double density, int exitX, int exitY, int maxChunks) {
+        if (width < 2 || height < 2 || width > MAX_SIDE || height > MAX_SIDE) {
+            throw new IllegalArgumentException("Board sides must be between 2 and " + MAX_SIDE + ".");
+        }
+        if (!(density >= 0 && density <= 1)) {
+            throw new IllegalArgumentException("Mine density must be between 0 and 1.");
+        }
+        if (exitX < 0 || exitX >= width || exitY < 0 || exitY >= height || (exitX < 2 && exitY < 2)) {
+            throw new IllegalArgumentException("The exit must be on the board and outside the start area.");
+        }
+        if (maxChunks < 1) {
+            throw new IllegalArgumentException("At least one chunk must fit in memory.");
+        }
+        this.width = width;
+        this.height = height;
+        this.seed = seed;
+        this.density = density;
+        this.exitX = exitX;
+        this.exitY = exitY;
+        this.chunks = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Long, byte[]> eldest) {
+                if (size() <= maxChunks) return false;
+                save(eldest.getKey(), eldest.getValue());
+                return true;
+            }
+        };
+        this.numMines = countMines();
+
+        ChangedTiles changes = new ChangedTiles();
+        revealTile(0, 0, changes);
+        revealTile(1, 1, changes);
+    }
+
+    @Override
+    public int getGridWidth() {
+        return width;
+    }
+
+    @Override
+    public int getGridHeight() {
+        return height;
+    }
+
+    public int getExitX() {
+        return exitX;
+    }
+
+    public int getExitY() {
+        return exitY;
+    }
+
+    /// @return the number of mines on the whole board, worked out without making any chunks.
+    @Override
+    public long getNumMines() {
+        return numMines;
+    }
+
+    /// @return the number of chunks in memory now.
+    public int getChunkCount() {
+        return chunks.size();
+    }
+
+    /// @return the number of dropped chunks whose reveals and flags are kept.
+    public int getSavedChunkCount() {
+        return saved.size();
+    }
+
+    /// @return the number of times a chunk was made, including chunks made again after being dropped.
+    public long getChunksMade() {
+        return chunksMade;
+    }
+
+    @Override
+    public int getType(int x, int y) {
+        return (cell(x, y) & TYPE_MASK) >> TYPE_SHIFT;
+    }
+
+    @Override
+    public int getSensorValue(int x, int y) {
+        return cell(x, y) & SENSOR_MASK;
+    }
+
+    @Override
+    public boolean isHidden(int x, int y) {
+        return (cell(x, y) & REVEALED_BIT) == 0;
+    }
+
+    @Override
+    public boolean isFlagged(int x, int y) {
+        return (cell(x, y) & FLAGGED_BIT) != 0;
+    }
+
+    @Override
+    public void setFlagged(int x, int y, boolean flagged) {
+        byte [] chunk = chunk(x, y);
+        int i = offset(x, y);
+        if (flagged == ((chunk[i] & FLAGGED_BIT) != 0)) return;
+        if (flagged) {
+            chunk[i] |= (byte) FLAGGED_BIT;
+            flagCount++;
+        } else {
+            chunk[i] &= (byte) ~FLAGGED_BIT;
+            flagCount--;
+        }
+    }
+
+    @Override
+    public int getFlagCount() {
+        return flagCount;
+    }
+
+    /// @return the number of revealed tiles that are not mines.
+    public long getRevealedSafeCount() {
+        return revealedSafeCount;
+    }
+
+    @Override
+    public boolean isAllSafeRevealed() {
+        return revealedSafeCount == (long) width * height - numMines;
+    }
+
+    @Override
+    public boolean revealTile(int x, int y, ChangedTiles changes) {
+        GameEvents.Reveal event = new GameEvents.Reveal();
+        long start = PerformanceMetrics.start();
+        event.begin();
+        int before = changes.size();
+        boolean mine = reveal(x, y, changes);
+        PerformanceMetrics.REVEAL.recordSince(start);
+        if (event.shouldCommit()) {
+            event.x = x;
+            event.y = y;
+            event.tilesOpened = changes.size() - before;
+            event.mine = mine;
+            event.commit();
+        }
+        return mine;
+    }
+
+    private boolean reveal(int x, int y, ChangedTiles changes) {
+        if (isHidden(x, y)) {
+            setRevealed(x, y);
+            changes.add(x, y);
+        }
+        if (getType(x, y) == GridTile.TYPE_MINE) {
+            return true;
+        }
+        if (getSensorValue(x, y) == 0) {
+            revealAdjacentTiles(x, y, changes);
+        }
+        return false;
+    }
+
+    /// The flood fill of [Grid], with (x,y) pairs on the queue since the board may have more tiles than an int.
+    /// Stops after [#MAX_FLOOD] tiles.
+    private void revealAdjacentTiles(int startX, int startY, ChangedTiles changes) {
+        toVisit.clear();
+        toVisit.add(startX);
+        toVisit.add(startY);
+        int revealed = 0;
+
+        while (!toVisit.isEmpty() && revealed < MAX_FLOOD) {
+            int x = toVisit.poll();
+            int y = toVisit.poll();
+
+            for (int ny = Math.max(0, y - 1); ny <= Math.min(height - 1, y + 1); ny++) {
+                for (int nx = Math.max(0, x - 1); nx <= Math.min(width - 1, x + 1); nx++) {
+                    int c = cell(nx, ny);
+                    if ((c & (REVEALED_BIT | FLAGGED_BIT)) != 0) continue;
+                    setRevealed(nx, ny);
+                    changes.add(nx, ny);
+                    revealed++;
+                    if ((c & SENSOR_MASK) == 0) {
+                        toVisit.add(nx);
+                        toVisit.add(ny);
+                    }
+                }
+            }
+        }
+    }
+
+    private void setRevealed(int x, int y) {
+        byte [] chunk = chunk(x, y);
+        int i = offset(x, y);
+        if ((chunk[i] & REVEALED_BIT) != 0) return;
+        chunk[i] |= REVEALED_BIT;
+        if (((chunk[i] & TYPE_MASK) >> TYPE_SHIFT) != GridTile.TYPE_MINE) revealedSafeCount++;
+    }
+
+    @Override
+    public void hideTile(int x, int y) {
+        byte [] chunk = chunk(x, y);
+        int i = offset(x, y);
+        if ((chunk[i] & REVEALED_BIT) == 0) return;
+        chunk[i] &= (byte) ~REVEALED_BIT;
+        if (((chunk[i] & TYPE_MASK) >> TYPE_SHIFT) != GridTile.TYPE_MINE) revealedSafeCount--;
+    }
+
+    private int cell(int x, int y) {
+        return chunk(x, y)[offset(x, y)];
+    }
+
+    private static int offset(int x, int y) {
+        return ((y & CHUNK_MASK) << CHUNK_BITS) | (x & CHUNK_MASK);
+    }
+
+    /// @return the chunk holding (x,y), made if it is not in memory.
+    private byte [] chunk(int x, int y) {
+        long key = key(x >>> CHUNK_BITS, y >>> CHUNK_BITS);
+        if (key == lastKey) return lastChunk;
+        byte [] chunk = chunks.get(key);
+        if (chunk == null) {
+            chunk = makeChunk(x >>> CHUNK_BITS, y >>> CHUNK_BITS);
+            // may drop the least recently used chunk, never this one.
+            chunks.put(key, chunk);
+        }
+        lastKey = key;
+        lastChunk = chunk;
+        return chunk;
+    }
+
+    private static long key(int cx, int cy) {
+        return ((long) cx << 32) | cy;
+    }
+
+    private byte [] makeChunk(int cx, int cy) {
+        chunksMade++;
+        // the mines of this chunk and its neighbours, for the sensor values along the border.
+        long [][] around = new long[9][];
+        for (int dy = -1; dy <= 1; dy++) {
+            for (int dx = -1; dx <= 1; dx++) {
+                int nx = cx + dx, ny = cy + dy;
+                if (nx >= 0 && ny >= 0 && (long) nx << CHUNK_BITS < width && (long) ny << CHUNK_BITS < height) {
+                    around[(dy + 1) * 3 + dx + 1] = placeMines(nx, ny);
+                }
+            }
+        }
+
+        byte [] chunk = new byte[CHUNK_SIZE * CHUNK_SIZE];
+        long [] mines = around[4];
+        for (int ly = 0; ly < CHUNK_SIZE; ly++) {
+            for (int lx = 0; lx < CHUNK_SIZE; lx++) {
+                int sensor = 0;
+                for (int dy = -1; dy <= 1; dy++) {
+                    for (int dx = -1; dx <= 1; dx++) {
+                        if ((dx != 0 || dy != 0) && isMine(around, lx + dx, ly + dy)) sensor++;
+                    }
+                }
+                int type = (mines[ly] >>> lx & 1) != 0 ? GridTile.TYPE_MINE : GridTile.TYPE_EMPTY;
+                chunk[(ly << CHUNK_BITS) | lx] = (byte) (sensor | type << TYPE_SHIFT);
+            }
+        }
+        if (exitX >>> CHUNK_BITS == cx && exitY >>> CHUNK_BITS == cy) {
+            int i = offset(exitX, exitY);
+            chunk[i] = (byte) ((chunk[i] & ~TYPE_MASK) | GridTile.TYPE_EXIT << TYPE_SHIFT);
+        }
+
+        long [] bits = saved.remove(key(cx, cy));
+        if (bits != null) {
+            for (int ly = 0; ly < CHUNK_SIZE; ly++) {
+                for (int lx = 0; lx < CHUNK_SIZE; lx++) {
+                    int i = (ly << CHUNK_BITS) | lx;
+                    if ((bits[ly] >>> lx & 1) != 0) chunk[i] |= REVEALED_BIT;
+                    if ((bits[CHUNK_SIZE + ly] >>> lx & 1) != 0) chunk[i] |= (byte) FLAGGED_BIT;
+                }
+            }
+        }
+        return chunk;
+    }
+
+    /// @param lx, ly tile in the middle chunk of around, -1 to [#CHUNK_SIZE] inclusive.
+    private static boolean isMine(long [][] around, int lx, int ly) {
+        int ix = lx < 0 ? 0 : lx < CHUNK_SIZE ? 1 : 2;
+        int iy = ly < 0 ? 0 : ly < CHUNK_SIZE ? 1 : 2;
+        long [] rows = around[iy * 3 + ix];
+        return rows != null && (rows[ly & CHUNK_MASK] >>> (lx & CHUNK_MASK) & 1) != 0;
+    }
+
+    /// Keep the reveals and flags of a chunk that is being dropped.  Chunks the player never touched are not kept.
+    private void save(long key, byte [] chunk) {
+        long [] bits = new long[CHUNK_SIZE * 2];
+        boolean touched = false;
+        for (int i = 0; i < chunk.length; i++) {
+            if ((chunk[i] & (REVEALED_BIT | FLAGGED_BIT)) == 0) continue;
+            touched = true;
+            int ly = i >>> CHUNK_BITS, lx = i & CHUNK_MASK;
+            if ((chunk[i] & REVEALED_BIT) != 0) bits[ly] |= 1L << lx;
+            if ((chunk[i] & FLAGGED_BIT) != 0) bits[CHUNK_SIZE + ly] |= 1L << lx;
+        }
+        if (touched) saved.put(key, bits);
+        if (key == lastKey) {
+            lastKey = -1;
+            lastChunk = null;
+        }
+    }
+
+    /// @return the mines of one chunk, one row of bits per long.
+    private long [] placeMines(int cx, int cy) {
+        long [] rows = new long[CHUNK_SIZE];
+        int x0 = cx << CHUNK_BITS, y0 = cy << CHUNK_BITS;
+        int w = Math.min(CHUNK_SIZE, width - x0), h = Math.min(CHUNK_SIZE, height - y0);
+        long remaining = countFreeTiles(cx, cy);
+        long needed = minesFor(remaining);
+        SplittableRandom random = new SplittableRandom(chunkSeed(cx, cy));
+        for (int ly = 0; ly < h && needed > 0; ly++) {
+            for (int lx = 0; lx < w; lx++) {
+                if (isReserved(x0 + lx, y0 + ly)) continue;
+                if (needed > 0 && random.nextLong(remaining) < needed) {
+                    rows[ly] |= 1L << lx;
+                    needed--;
+                }
+                remaining--;
+            }
+        }
+        return rows;
+    }
+
+    /// [SplitMix64], so neighbouring chunks get unrelated mines.
+    private long chunkSeed(int cx, int cy) {
+        return SplitMix64.mix(seed + (key(cx, cy) + 1) * SplitMix64.GAMMA);
+    }
+
+    /// @return true for the 2x2 start area and the exit, which never hold a mine.
+    private boolean isReserved(int x, int y) {
+        return (x < 2 && y < 2) || (x == exitX && y == exitY);
+    }
+
+    private long countFreeTiles(int cx, int cy) {
+        int x0 = cx << CHUNK_BITS, y0 = cy << CHUNK_BITS;
+        long free = (long) Math.min(CHUNK_SIZE, width - x0) * Math.min(CHUNK_SIZE, height - y0);
+        if (cx == 0 && cy == 0) free -= 4;
+        if (exitX >>> CHUNK_BITS == cx && exitY >>> CHUNK_BITS == cy) free--;
+        return free;
+    }
+
+    private long minesFor(long freeTiles) {
+        return Math.round(density * freeTiles);
+    }
+
+    /// Add up the mines of every chunk without making any.  All chunks are full size except along the right and
+    /// bottom edges, and only the chunks with the start area or the exit have reserved tiles.
+    private long countMines() {
+        long fullColumns = width >>> CHUNK_BITS, fullRows = height >>> CHUNK_BITS;
+        int lastWidth = width & CHUNK_MASK, lastHeight = height & CHUNK_MASK;
+        long total = fullColumns * fullRows * minesFor(CHUNK_SIZE * CHUNK_SIZE)
+                + fullRows * minesFor((long) lastWidth * CHUNK_SIZE)
+                + fullColumns * minesFor((long) CHUNK_SIZE * lastHeight)
+                + minesFor((long) lastWidth * lastHeight);
+        total += minesFor(countFreeTiles(0, 0)) - minesFor(chunkArea(0, 0));
+        int ecx = exitX >>> CHUNK_BITS, ecy = exitY >>> CHUNK_BITS;
+        if (ecx != 0 || ecy != 0) {
+            total += minesFor(countFreeTiles(ecx, ecy)) - minesFor(chunkArea(ecx, ecy));
+        }
+        return total;
+    }
+
+    private long chunkArea(int cx, int cy) {
+        return (long) Math.min(CHUNK_SIZE, width - (cx << CHUNK_BITS)) * Math.min(CHUNK_SIZE, height - (cy << CHUNK_BITS));
+    }
+}
@@ -0,0 +1,307 @@
+package com.marginallyclever.slavadukerani;
+
+/// Plays a [Grid] by logic alone, using only what a player can see: the sensor values of revealed tiles and the
+/// flags.  It reveals tiles that are provably safe and flags tiles that are provably mines until it would have to guess.
+///
+/// Two rules are applied to each revealed numbered tile:
+/// - single cell: if the flags around a tile already match its number, every other hidden neighbour is safe.  If the
+///   hidden neighbours are exactly as many as the mines still missing, they are all mines.
+/// - subset: if the hidden neighbours of tile A are a subset of those of a nearby tile B, the tiles only B can see hold
+///   exactly (B's missing mines - A's missing mines) mines, which may prove them all safe or all mines.
+///
+/// The board is scanned once when the solver is made.  After that only tiles whose neighbourhood changed are
+/// re-examined: every reveal or flag queues the revealed tiles around it on a worklist, and a bitset keeps each tile
+/// on the worklist at most once.  The work is therefore proportional to the tiles revealed, not the board size.
+///
+/// Made with a [GameEngine], the solver plays its moves through [GameEngine#reveal] and [GameEngine#toggleFlag], so they
+/// are journaled, can be undone, and can win the game, and it stops when the game ends.  Made with a bare [Grid], it
+/// changes the grid directly, which is faster when nobody is watching.
+public class ConstraintSolver {
+    public enum Status {
+        /// every safe tile is revealed.
+        SOLVED,
+        /// no more tiles can be proven safe or mined.  The next move would be a guess.
+        STUCK,
+        /// a mine was revealed, which only happens when the grid held a wrong flag.
+        EXPLODED
+    }
+
+    // neighbourhoods are bit masks over a 7x7 window centered on the tile being examined: its neighbours are within 1
+    // tile, the tiles it is compared with are within 2, and their neighbours are within 3.
+    private static final int WINDOW = 7;
+    private static final int CENTER = 3;
+
+    private final Grid grid;
+    private final GameEngine engine;  // null to change the grid directly.
+    private final int width;
+    private final int height;
+    private final long [] queued;  // one bit per tile: is it on the worklist?
+    private final IntQueue worklist = new IntQueue();
+    private final ChangedTiles changes = new ChangedTiles();
+    private boolean exploded = false;
+
+    private long tilesRevealed = 0;
+    private long flagsPlaced = 0;
+    private long elapsedNanos = 0;
+
+    public static void main(String[] args) {
+        int width = args.length > 0 ? Integer.parseInt(args[0]) : 1000;
+        int height = args.length > 1 ? Integer.parseInt(args[1]) : 1000;
+        int mines = args.length > 2 ? Integer.parseInt(args[2]) : width * height / 8;
+        int seed = args.length > 3 ? Integer.parseInt(args[3]) : (int)(Math.random()*1000000);
+
+        Grid grid = new Grid(width, height, seed, mines);
+        ConstraintSolver solver = new ConstraintSolver(grid);
+        Status status = solver.solve();
+        System.out.printf("%dx%d, %d mines, seed %d: %s, exit %s.  %d tiles revealed, %d flags in %.1f ms (%.0f cells/sec)%n",
+                width, height, mines, seed, status,
+                solver.isExitReachable() ? "reachable" : "not reachable",
+                solver.getTilesRevealed(), solver.getFlagsPlaced(),
+                solver.getElapsedNanos() / 1e6, solver.getCellsPerSecond());
+    }
+
+    public ConstraintSolver(Grid grid) {
+        this(grid, null);
+    }
+
+    /// @throws IllegalArgumentException if the engine's board is not a [Grid].
+    public ConstraintSolver(GameEngine engine) {
+        this(asGrid(engine), engine);
+    }
+
+    private static Grid asGrid(GameEngine engine) {
+        if (!(engine.getBoard() instanceof Grid grid)) {
+            throw new IllegalArgumentException("ConstraintSolver can only solve a Grid.");
+        }
+        return grid;
+    }
+
+    private ConstraintSolver(Grid grid, GameEngine engine) {
+        this.grid = grid;
+        this.engine = engine;
+        this.width = grid.getGridWidth();
+        this.height = grid.getGridHeight();
+        this.queued = new long[(width * height + 63) >>> 6];
+
+        // the one full scan: queue everything the player can already see.
+        for (int y = 0; y < height; y++) {
+            for (int x = 0; x < width; x++) {
+                touch(x, y);
+            }
+        }
+    }
+
+    /// Apply the rules until no more progress can be made.
+    public Status solve() {
+        long start = System.nanoTime();
+        while (!worklist.isEmpty() && !isOver()) {
+            int i = worklist.poll();
+            queued[i >>> 6] &= ~(1L << i);
+            int x = i % width;
+            int y = i / width;
+            if (!applySingleCellRule(x, y)) {
+                applySubsetRule(x, y);
+            }
+        }
+        elapsedNanos += System.nanoTime() - start;
+        return getStatus();
+    }
+
+    /// @return true if a mine went off, or the engine's game ended some other way, such as a win by clearing.
+    private boolean isOver() {
+        return exploded || (engine != null && engine.isGameOver());
+    }
+
+    public Status getStatus() {
+        if (exploded) return Status.EXPLODED;
+        return grid.isAllSafeRevealed() ? Status.SOLVED : Status.STUCK;
+    }
+
+    /// Tell the solver that (x,y) changed outside of the solver, such as a guess by the caller.
+    /// Queues the tile and the revealed tiles around it.
+    public void tileChanged(int x, int y) {
+        touchNeighbourhood(x, y);
+    }
+
+    /// @return true if there is a path of revealed safe tiles from the start at (0,0) to the exit in the bottom right
+    /// corner, moving up, down, left and right like the player.
+    public boolean isExitReachable() {
+        long [] visited = new long[queued.length];
+        IntQueue toVisit = new IntQueue();
+        int exit = (height - 1) * width + (width - 1);
+        toVisit.add(0);
+        visited[0] |= 1L;
+        while (!toVisit.isEmpty()) {
+            int i = toVisit.poll();
+            if (i == exit) return true;
+            int x = i % width;
+            int y = i / width;
+            if (x > 0)          visit(x - 1, y, visited, toVisit);
+            if (x < width - 1)  visit(x + 1, y, visited, toVisit);
+            if (y > 0)          visit(x, y - 1, visited, toVisit);
+            if (y < height - 1) visit(x, y + 1, visited, toVisit);
+        }
+        return false;
+    }
+
+    private void visit(int x, int y, long [] visited, IntQueue toVisit) {
+        int i = y * width + x;
+        if ((visited[i >>> 6] & (1L << i)) != 0) return;
+        if (grid.isHidden(x, y) || grid.getType(x, y) == GridTile.TYPE_MINE) return;
+        visited[i >>> 6] |= 1L << i;
+        toVisit.add(i);
+    }
+
+    public long getTilesRevealed() {
+        return tilesRevealed;
+    }
+
+    public long getFlagsPlaced() {
+        return flagsPlaced;
+    }
+
+    public long getElapsedNanos() {
+        return elapsedNanos;
+    }
+
+    /// @return board cells per second of solving time.
+    public double getCellsPerSecond() {
+        if (elapsedNanos == 0) return 0;
+        return (double) width * height * 1e9 / elapsedNanos;
+    }
+
+    /// @return true if the tile made progress.
+    private boolean applySingleCellRule(int x, int y) {
+        long unknown = unknownNeighbours(x, y, x, y);
+        if (unknown == 0) return false;
+        int missing = grid.getSensorValue(x, y) - countFlaggedNeighbours(x, y);
+        if (missing == 0) {
+            revealAll(unknown, x, y);
+            return true;
+        }
+        if (missing == Long.bitCount(unknown)) {
+            flagAll(unknown, x, y);
+            return true;
+        }
+        return false;
+    }
+
+    /// Compare (x,y) with every revealed numbered tile within 2 tiles.  Stops at the first deduction and queues (x,y)
+    /// again, since it may still pair up with other tiles.
+    private void applySubsetRule(int x, int y) {
+        long unknownA = unknownNeighbours(x, y, x, y);
+        if (unknownA == 0) return;
+        int missingA = grid.getSensorValue(x, y) - countFlaggedNeighbours(x, y);
+
+        for (int by = Math.max(0, y - 2); by <= Math.min(height - 1, y + 2); by++) {
+            for (int bx = Math.max(0, x - 2); bx <= Math.min(width - 1, x + 2); bx++) {
+                if ((bx == x && by == y) || !isNumbered(bx, by)) continue;
+                long unknownB = unknownNeighbours(bx, by, x, y);
+                if (unknownB == 0) continue;
+                int missingB = grid.getSensorValue(bx, by) - countFlaggedNeighbours(bx, by);
+                if (((unknownA & ~unknownB) == 0 && applyDifference(unknownB & ~unknownA, missingB - missingA, x, y)) ||
+                    ((unknownB & ~unknownA) == 0 && applyDifference(unknownA & ~unknownB, missingA - missingB, x, y))) {
+                    touch(x, y);
+                    return;
+                }
+            }
+        }
+    }
+
+    /// @param difference tiles that hold exactly `mines` mines.
+    /// @return true if that proves anything.
+    private boolean applyDifference(long difference, int mines, int cx, int cy) {
+        if (difference == 0) return false;
+        if (mines == 0) {
+            revealAll(difference, cx, cy);
+            return true;
+        }
+        if (mines == Long.bitCount(difference)) {
+            flagAll(difference, cx, cy);
+            return true;
+        }
+        return false;
+    }
+
+    private boolean isNumbered(int x, int y) {
+        return !grid.isHidden(x, y) && grid.getSensorValue(x, y) > 0 && grid.getType(x, y) != GridTile.TYPE_MINE;
+    }
+
+    /// @return the hidden unflagged neighbours of (x,y) as bits in the window centered on (cx,cy).
+    private long unknownNeighbours(int x, int y, int cx, int cy) {
+        long mask = 0;
+        for (int ny = Math.max(0, y - 1); ny <= Math.min(height - 1, y + 1); ny++) {
+            for (int nx = Math.max(0, x - 1); nx <= Math.min(width - 1, x + 1); nx++) {
+                if (grid.isHidden(nx, ny) && !grid.isFlagged(nx, ny)) {
+                    mask |= 1L << ((ny - cy + CENTER) * WINDOW + (nx - cx + CENTER));
+                }
+            }
+        }
+        return mask;
+    }
+
+    private int countFlaggedNeighbours(int x, int y) {
+        int count = 0;
+        for (int ny = Math.max(0, y - 1); ny <= Math.min(height - 1, y + 1); ny++) {
+            for (int nx = Math.max(0, x - 1); nx <= Math.min(width - 1, x + 1); nx++) {
+                if (grid.isFlagged(nx, ny)) count++;
+            }
+        }
+        return count;
+    }
+
+    private void revealAll(long mask, int cx, int cy) {
+        for (long bits = mask; bits != 0 && !isOver(); bits &= bits - 1) {
+            int b = Long.numberOfTrailingZeros(bits);
+            int x = cx + b % WINDOW - CENTER;
+            int y = cy + b / WINDOW - CENTER;
+            if (!grid.isHidden(x, y)) continue;  // an earlier flood already got it.
+            ChangedTiles changed;
+            if (engine != null) {
+                engine.reveal(x, y);
+                changed = engine.getChangedTiles();
+                exploded = engine.getResult() == GameEngine.Result.POKED_MINE;
+            } else {
+                changes.clear();
+                exploded = grid.revealTile(x, y, changes);
+                changed = changes;
+            }
+            tilesRevealed += changed.size();
+            for (int i = 0; i < changed.size(); i++) {
+                touchNeighbourhood(changed.getX(i), changed.getY(i));
+            }
+        }
+    }
+
+    private void flagAll(long mask, int cx, int cy) {
+        for (long bits = mask; bits != 0 && !isOver(); bits &= bits - 1) {
+            int b = Long.numberOfTrailingZeros(bits);
+            int x = cx + b % WINDOW - CENTER;
+            int y = cy + b / WINDOW - CENTER;
+            // the tiles are hidden and unflagged, so toggling flags them.
+            if (engine != null) engine.toggleFlag(x, y);
+            else grid.setFlagged(x, y, true);
+            flagsPlaced++;
+            touchNeighbourhood(x, y);
+        }
+    }
+
+    /// Queue (x,y) and its neighbours, since their hidden neighbours may have changed.
+    private void touchNeighbourhood(int x, int y) {
+        for (int ny = Math.max(0, y - 1); ny <= Math.min(height - 1, y + 1); ny++) {
+            for (int nx = Math.max(0, x - 1); nx <= Math.min(width - 1, x + 1); nx++) {
+                touch(nx, ny);
+            }
+        }
+    }
+
+    /// Queue (x,y) if it is a revealed numbered tile that isn't queued already.
+    private void touch(int x, int y) {
+        if (!isNumbered(x, y)) return;
+        int i = y * width + x;
+        long bit = 1L << i;
+        if ((queued[i >>> 6] & bit) != 0) return;
+        queued[i >>> 6] |= bit;
+        worklist.add(i);
+    }
+}
@@ -0,0 +1,265 @@
+package com.marginallyclever.slavadukerani;
+
+/// The frontier of a [Grid]: its revealed numbered tiles that still border a hidden tile.  Every deduction starts
+/// from one of them, so [#findHint(int, int)] only looks there.
+///
+/// The [Grid] makes its index along with the board and reports each tile it reveals, hides or flags as it happens.
+/// That tile and its neighbours are put on or off the frontier right away, so the index is always up to date and a
+/// flood of any size costs a few reads per tile it opens, spread over the flood itself.  A frontier tile whose
+/// neighbourhood changed is marked unchecked.
+///
+/// Numbers only show within [GameEngine#SENSOR_RANGE] of the sensor, so a hint only uses those.
+/// [#findHint(int, int)] applies the rules of [ConstraintSolver] to the unchecked frontier tiles in the sensor's
+/// range, at most 25 of them, so a hint costs the same on any board.  When the sensor moves, every tile in its new range
+/// is checked again.
+///
+/// Unlike [ConstraintSolver], flags are not trusted.  They are the player's guesses, and a hint must be true even when
+/// a flag is wrong.
+///
+/// Costs two bits per tile.  Not thread safe: use it on the thread that changes the grid.
+public class FrontierIndex {
+    /// A tile that is certainly safe or certainly a mine.
+    /// @param mine  true if (x,y) is certainly a mine, false if it is certainly safe.
+    /// @param fromX the frontier tile whose number, alone or with a neighbour's, proves it.
+    /// @param fromY the frontier tile whose number, alone or with a neighbour's, proves it.
+    public record Hint(int x, int y, boolean mine, int fromX, int fromY) {}
+
+    // neighbourhoods are bit masks over a 7x7 window centered on the tile being examined, as in ConstraintSolver.
+    private static final int WINDOW = 7;
+    private static final int CENTER = 3;
+
+    private final Grid grid;
+    private final int width;
+    private final int height;
+    private final long [] member;     // one bit per tile: is it on the frontier?
+    private final long [] unchecked;  // one bit per tile: did its neighbourhood change since it was last checked?
+    private int size = 0;
+    // the sensor's range at the last hint, inclusive.  No tile is in it at first.
+    private int x0 = 0, y0 = 0, x1 = -1, y1 = -1;
+    private int current = -1;  // the tile that gave the last hint, checked again first.
+    private Hint last;
+
+    /// Made by the [Grid] along with its board, once the sensor values are known.  Reads each tile once to find the
+    /// frontier of a board that already has revealed tiles.
+    FrontierIndex(Grid grid) {
+        this.grid = grid;
+        this.width = grid.getGridWidth();
+        this.height = grid.getGridHeight();
+        int words = grid.getWordCount();
+        member = new long[words];
+        unchecked = new long[words];
+        if (grid.getHiddenCount() == width * height) return;
+        for (int y = 0; y < height; y++) {
+            for (int x = 0; x < width; x++) {
+                if (!grid.isHidden(x, y)) refresh(x, y);
+            }
+        }
+    }
+
+    /// Called by the grid when the tile at (x,y) is revealed.  It may join the frontier, and its neighbours on the
+    /// frontier may leave it.  Others can't join by losing a hidden neighbour, so a flood only costs a bit test for
+    /// most of them.
+    void tileRevealed(int x, int y) {
+        last = null;
+        refresh(x, y);
+        int left = Math.max(0, x - 1), right = Math.min(width - 1, x + 1);
+        for (int ny = Math.max(0, y - 1); ny <= Math.min(height - 1, y + 1); ny++) {
+            if (!anyMember(ny * width + left, ny * width + right)) continue;
+            for (int nx = left; nx <= right; nx++) {
+                int i = ny * width + nx;
+                if ((member[i >>> 6] & (1L << i)) != 0) refresh(nx, ny);
+            }
+        }
+    }
+
+    /// @return true if any tile from index `from` to `to`, inclusive and at most 64 apart, is on the frontier.
+    private boolean anyMember(int from, int to) {
+        long first = member[from >>> 6] & (-1L << from);
+        long lastWord = -1L >>> (63 - (to & 63));
+        if (from >>> 6 == to >>> 6) return (first & lastWord) != 0;
+        return first != 0 || (member[to >>> 6] & lastWord) != 0;
+    }
+
+    /// Called by the grid when the tile at (x,y) is hidden again, as by an undo, or flagged or unflagged.  It leaves the
+    /// frontier, and any revealed neighbour may join it or has a new neighbourhood to check.
+    void tileChanged(int x, int y) {
+        // an undo can hide the number that proved the last hint, so it is worked out again.
+        last = null;
+        for (int ny = Math.max(0, y - 1); ny <= Math.min(height - 1, y + 1); ny++) {
+            for (int nx = Math.max(0, x - 1); nx <= Math.min(width - 1, x + 1); nx++) {
+                refresh(nx, ny);
+            }
+        }
+    }
+
+    /// @return the number of tiles on the frontier.
+    public int size() {
+        return size;
+    }
+
+    /// @return true if the tile at (x,y) is on the frontier.
+    public boolean contains(int x, int y) {
+        int i = y * width + x;
+        return (member[i >>> 6] & (1L << i)) != 0;
+    }
+
+    /// Walk the frontier in board order: `for (int i = next(0); i >= 0; i = next(i + 1))`.
+    /// @return the board index (y * width + x) of the first frontier tile at or after index `from`, or -1 if none.
+    public int next(int from) {
+        int words = member.length;
+        int w = from >>> 6;
+        if (w >= words) return -1;
+        long bits = member[w] & (-1L << from);
+        while (bits == 0) {
+            if (++w == words) return -1;
+            bits = member[w];
+        }
+        return (w << 6) + Long.numberOfTrailingZeros(bits);
+    }
+
+    /// @param sensorX where the sensor is.  Only the numbers within [GameEngine#SENSOR_RANGE] of it are used.
+    /// @param sensorY where the sensor is.  Only the numbers within [GameEngine#SENSOR_RANGE] of it are used.
+    /// @return a hidden tile that is provably safe, or an unflagged tile that is provably a mine, or null if every move
+    /// left is a guess.  The tile that gave the last hint is tried first, so hints stay in the same area.
+    public Hint findHint(int sensorX, int sensorY) {
+        int range = GameEngine.SENSOR_RANGE;
+        int nx0 = Math.max(0, sensorX - range), nx1 = Math.min(width - 1, sensorX + range);
+        int ny0 = Math.max(0, sensorY - range), ny1 = Math.min(height - 1, sensorY + range);
+        if (nx0 != x0 || nx1 != x1 || ny0 != y0 || ny1 != y1) {
+            // other numbers are in view, so everything in view is checked again.
+            x0 = nx0;
+            x1 = nx1;
+            y0 = ny0;
+            y1 = ny1;
+            last = null;
+            current = -1;
+            for (int y = y0; y <= y1; y++) {
+                for (int x = x0; x <= x1; x++) {
+                    int i = y * width + x;
+                    unchecked[i >>> 6] |= member[i >>> 6] & (1L << i);
+                }
+            }
+        }
+        if (last != null) return last;
+        if (current >= 0 && (member[current >>> 6] & (1L << current)) != 0) {
+            last = check(current);
+            if (last != null) return last;
+        }
+        for (int y = y0; y <= y1; y++) {
+            for (int x = x0; x <= x1; x++) {
+                int i = y * width + x;
+                long bit = 1L << i;
+                if ((unchecked[i >>> 6] & bit) == 0) continue;
+                unchecked[i >>> 6] &= ~bit;
+                last = check(i);
+                if (last != null) {
+                    current = i;
+                    return last;
+                }
+            }
+        }
+        current = -1;
+        return null;
+    }
+
+    /// Put (x,y) on or off the frontier.  A tile on the frontier is marked unchecked, since its neighbours changed.
+    private void refresh(int x, int y) {
+        int i = y * width + x;
+        long bit = 1L << i;
+        boolean on = grid.isFrontier(x, y);
+        boolean was = (member[i >>> 6] & bit) != 0;
+        if (on) {
+            unchecked[i >>> 6] |= bit;
+            if (!was) {
+                member[i >>> 6] |= bit;
+                size++;
+            }
+        } else if (was) {
+            member[i >>> 6] &= ~bit;
+            unchecked[i >>> 6] &= ~bit;
+            size--;
+        }
+    }
+
+    /// Apply the single cell rule to tile i, then the subset rule with every numbered tile within 2 that is in view.
+    /// @return the first hint found, or null.
+    private Hint check(int i) {
+        int x = i % width, y = i / width;
+        long hiddenA = hiddenNeighbours(x, y, x, y);
+        if (hiddenA == 0) return null;
+        int missingA = missingMines(x, y);
+        Hint hint = deduce(hiddenA, missingA, x, y);
+        if (hint != null) return hint;
+
+        for (int by = Math.max(0, y - 2); by <= Math.min(height - 1, y + 2); by++) {
+            for (int bx = Math.max(0, x - 2); bx <= Math.min(width - 1, x + 2); bx++) {
+                if ((bx == x && by == y) || !inView(bx, by) || !isNumbered(bx, by)) continue;
+                long hiddenB = hiddenNeighbours(bx, by, x, y);
+                if (hiddenB == 0) continue;
+                int missingB = missingMines(bx, by);
+                if ((hiddenA & ~hiddenB) == 0) {
+                    hint = deduce(hiddenB & ~hiddenA, missingB - missingA, x, y);
+                } else if ((hiddenB & ~hiddenA) == 0) {
+                    hint = deduce(hiddenA & ~hiddenB, missingA - missingB, x, y);
+                }
+                if (hint != null) return hint;
+            }
+        }
+        return null;
+    }
+
+    /// @param tiles hidden tiles in the window centered on (cx,cy) that hold exactly `mines` mines.
+    /// @return a hint for one of them, or null if that proves nothing new.
+    private Hint deduce(long tiles, int mines, int cx, int cy) {
+        if (tiles == 0) return null;
+        boolean mine;
+        if (mines == 0) {
+            mine = false;
+        } else if (mines == Long.bitCount(tiles)) {
+            mine = true;
+        } else {
+            return null;
+        }
+        for (long bits = tiles; bits != 0; bits &= bits - 1) {
+            int b = Long.numberOfTrailingZeros(bits);
+            int x = cx + b % WINDOW - CENTER;
+            int y = cy + b / WINDOW - CENTER;
+            // a mine the player already flagged is no news.
+            if (mine && grid.isFlagged(x, y)) continue;
+            return new Hint(x, y, mine, cx, cy);
+        }
+        return null;
+    }
+
+    private boolean inView(int x, int y) {
+        return x >= x0 && x <= x1 && y >= y0 && y <= y1;
+    }
+
+    private boolean isNumbered(int x, int y) {
+        return !grid.isHidden(x, y) && grid.getSensorValue(x, y) > 0 && grid.getType(x, y) != GridTile.TYPE_MINE;
+    }
+
+    /// @return the hidden neighbours of (x,y), flagged or not, as bits in the window centered on (cx,cy).
+    private long hiddenNeighbours(int x, int y, int cx, int cy) {
+        long mask = 0;
+        for (int ny = Math.max(0, y - 1); ny <= Math.min(height - 1, y + 1); ny++) {
+            for (int nx = Math.max(0, x - 1); nx <= Math.min(width - 1, x + 1); nx++) {
+                if (grid.isHidden(nx, ny)) {
+                    mask |= 1L << ((ny - cy + CENTER) * WINDOW + (nx - cx + CENTER));
+                }
+            }
+        }
+        return mask;
+    }
+
+    /// @return the sensor value of (x,y) less the mines already revealed around it, as after an undone loss.
+    private int missingMines(int x, int y) {
+        int missing = grid.getSensorValue(x, y);
+        for (int ny = Math.max(0, y - 1); ny <= Math.min(height - 1, y + 1); ny++) {
+            for (int nx = Math.max(0, x - 1); nx <= Math.min(width - 1, x + 1); nx++) {
+                if (!grid.isHidden(nx, ny) && grid.getType(nx, ny) == GridTile.TYPE_MINE) missing--;
+            }
+        }
+        return missing;
+    }
+}
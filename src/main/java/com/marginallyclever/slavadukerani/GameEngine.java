@@ -0,0 +1,309 @@
+package com.marginallyclever.slavadukerani;
+
+/// The rules of one round of Slava Dukerani, with no user interface.  Holds the [Board], the player and sensor
+/// positions, and whether the game is over.  Needs no AWT or Swing, so it can run headless at simulation speed.
+///
+/// Every action returns a [Result] and records the tiles it revealed or flagged in [#getChangedTiles()], which is
+/// reused from one action to the next so that steady-state play allocates nothing.  With an [UndoHistory] attached,
+/// actions can be taken back.
+public class GameEngine {
+    /// What an action did to the game.
+    public enum Result {
+        /// The game goes on.
+        PLAYING,
+        /// The player or the sensor reached the exit, or every safe tile was revealed.
+        WON,
+        /// A mine was revealed by clicking on it or chording next to it.
+        POKED_MINE,
+        /// The player walked onto a mine.
+        WALKED_ONTO_MINE,
+        /// The sensor was pushed onto a mine.
+        SENSOR_ONTO_MINE;
+
+        public boolean isGameOver() {
+            return this != PLAYING;
+        }
+    }
+
+    public static final int SENSOR_RANGE = 2;  // range of the sensor
+
+    private final Board grid;
+    private final ChangedTiles changes = new ChangedTiles();
+    private int px = 0, py = 0;  // player position
+    private int sx = 1, sy = 1;  // sensor position
+    private Result result = Result.PLAYING;
+    private int moveCount = 0;
+    private boolean winWhenAllSafeRevealed = false;
+    private GameJournal journal;
+    private UndoHistory history;
+
+    /// Construct a new game with the specified grid size, seed, and number of mines.
+    /// @param gridWidth  Width of the grid in tiles.
+    /// @param gridHeight Height of the grid in tiles.
+    /// @param seed       Seed for the random number generator.
+    /// @param numMines   Number of mines to place on the grid.
+    public GameEngine(int gridWidth, int gridHeight, long seed, int numMines) {
+        this(new Grid(gridWidth, gridHeight, seed, numMines));
+    }
+
+    /// Construct a new game from a challenge map.  See [Grid#Grid(String)].
+    public GameEngine(String gridString) {
+        this(new Grid(gridString));
+    }
+
+    /// Construct a new game on any board, such as a [ChunkedBoard].
+    public GameEngine(Board board) {
+        this.grid = board;
+    }
+
+    public Board getBoard() {
+        return grid;
+    }
+
+    /// @return the tiles revealed or flagged by the most recent action.
+    public ChangedTiles getChangedTiles() {
+        return changes;
+    }
+
+    public int getPlayerX() {
+        return px;
+    }
+
+    public int getPlayerY() {
+        return py;
+    }
+
+    public int getSensorX() {
+        return sx;
+    }
+
+    public int getSensorY() {
+        return sy;
+    }
+
+    /// @return the number of times the player has stepped to a new tile.
+    public int getMoveCount() {
+        return moveCount;
+    }
+
+    /// @return [Result#PLAYING] until the game ends, then the action that ended it.
+    public Result getResult() {
+        return result;
+    }
+
+    public boolean isGameOver() {
+        return result.isGameOver();
+    }
+
+    public boolean isWon() {
+        return result == Result.WON;
+    }
+
+    /// @param win if true the game is also won by revealing every tile that is not a mine.
+    public void setWinWhenAllSafeRevealed(boolean win) {
+        winWhenAllSafeRevealed = win;
+    }
+
+    public boolean getWinWhenAllSafeRevealed() {
+        return winWhenAllSafeRevealed;
+    }
+
+    /// @param journal records every action from now on, or null to stop recording.
+    public void setJournal(GameJournal journal) {
+        this.journal = journal;
+    }
+
+    public GameJournal getJournal() {
+        return journal;
+    }
+
+    /// @param history keeps every action from now on so it can be undone, or null to turn undo off.
+    public void setUndoHistory(UndoHistory history) {
+        this.history = history;
+    }
+
+    public UndoHistory getUndoHistory() {
+        return history;
+    }
+
+    /// @return true if (x,y) is cardinally adjacent to the player, meaning the player can step there.
+    public boolean isNextToPlayer(int x, int y) {
+        return (x == px && Math.abs(y - py) == 1) ||
+               (y == py && Math.abs(x - px) == 1);
+    }
+
+    /// @return true if (x,y) is close enough to the sensor to show its sensor value.
+    public boolean isInSensorRange(int x, int y) {
+        return Math.abs(x - sx) <= SENSOR_RANGE && Math.abs(y - sy) <= SENSOR_RANGE;
+    }
+
+    /// Move the player one tile up, down, left or right.  Walking into a hidden tile reveals it, and walking into the
+    /// sensor pushes it.  Any other (dx,dy) is ignored.
+    public Result move(int dx, int dy) {
+        changes.clear();
+        if(isGameOver() || Math.abs(dx)+Math.abs(dy) != 1) return result;
+        if(journal != null) journal.record(GameJournal.Action.move(dx,dy),0,0);
+        if(history != null) history.begin(this);
+        doMove(dx,dy);
+        if(history != null) history.end(this,false);
+        return result;
+    }
+
+    private void doMove(int dx, int dy) {
+        int x = px+dx;
+        int y = py+dy;
+        // check bounds
+        if (x<0 || x>= grid.getGridWidth() || y<0 || y>= grid.getGridHeight()) return;
+
+        // walking into an unknown tile reveals that tile.
+        if(grid.isHidden(x,y)) {
+            grid.revealTile(x,y,changes);
+        }
+
+        int type = grid.getType(x,y);
+        if(type == GridTile.TYPE_MINE) {
+            // you died, game over
+            end(Result.WALKED_ONTO_MINE);
+        } else if(type == GridTile.TYPE_EXIT) {
+            // you win!
+            end(Result.WON);
+        }
+        // if pushing into the sensor, try to push the sensor
+        if(sx==x && sy==y) {
+            int bx2 = sx +dx;
+            int by2 = sy +dy;
+            if (bx2<0 || bx2>= grid.getGridWidth() || by2<0 || by2>= grid.getGridHeight()) return; // box out of bounds
+            int type2 = grid.getType(bx2,by2);
+            if(type2 == GridTile.TYPE_MINE) {
+                // equipment destroyed, game over.
+                end(Result.SENSOR_ONTO_MINE);
+            } else if(type2 == GridTile.TYPE_EXIT) {
+                // box pushed onto exit, you win!
+                end(Result.WON);
+            }
+            // move sensor
+            sx = bx2;
+            sy = by2;
+        }
+        px = x;
+        py = y;
+        moveCount++;
+        checkAllSafeRevealed();
+    }
+
+    /// Reveal a hidden tile that is not flagged.
+    public Result reveal(int x, int y) {
+        changes.clear();
+        if(isGameOver()) return result;
+        if(journal != null) journal.record(GameJournal.Action.REVEAL,x,y);
+        if(history != null) history.begin(this);
+
+        if(grid.isHidden(x,y) && !grid.isFlagged(x,y)) {
+            if(grid.revealTile(x,y,changes)) {
+                end(Result.POKED_MINE);
+            }
+        }
+        checkAllSafeRevealed();
+        if(history != null) history.end(this,false);
+        return result;
+    }
+
+    /// Flag or unflag a hidden tile.
+    public Result toggleFlag(int x, int y) {
+        changes.clear();
+        if(isGameOver()) return result;
+        if(journal != null) journal.record(GameJournal.Action.FLAG,x,y);
+        if(history != null) history.begin(this);
+
+        if(grid.isHidden(x,y)) {
+            grid.setFlagged(x,y,!grid.isFlagged(x,y));
+            changes.add(x,y);
+        }
+        if(history != null) history.end(this,true);
+        return result;
+    }
+
+    /// "Chording": on a revealed tile whose sensor value equals the number of adjacent flags, reveal every adjacent
+    /// hidden tile that is not flagged.  On a revealed empty tile, flood reveal from it again.  That only does anything
+    /// at the edge of a flood that stopped at [ChunkedBoard#MAX_FLOOD], and carries it on from there.
+    public Result chord(int x, int y) {
+        changes.clear();
+        if(isGameOver()) return result;
+        if(journal != null) journal.record(GameJournal.Action.CHORD,x,y);
+        if(history != null) history.begin(this);
+        doChord(x,y);
+        if(history != null) history.end(this,false);
+        return result;
+    }
+
+    private void doChord(int x, int y) {
+        int sensorValue = grid.getSensorValue(x,y);
+        if(grid.isHidden(x,y) || grid.getType(x,y) == GridTile.TYPE_MINE) return;
+        if(sensorValue == 0) {
+            // the board floods from a revealed empty tile as from a hidden one, skipping flags.
+            grid.revealTile(x,y,changes);
+            checkAllSafeRevealed();
+            return;
+        }
+
+        int x0 = Math.max(0,x-1), x1 = Math.min(grid.getGridWidth()-1,x+1);
+        int y0 = Math.max(0,y-1), y1 = Math.min(grid.getGridHeight()-1,y+1);
+        int adjacentFlags = 0;
+        for(int ay=y0; ay<=y1; ay++) {
+            for(int ax=x0; ax<=x1; ax++) {
+                if(grid.isFlagged(ax,ay) && (ax!=x || ay!=y)) adjacentFlags++;
+            }
+        }
+        if(adjacentFlags != sensorValue) return;
+
+        boolean failed = false;
+        for(int ay=y0; ay<=y1; ay++) {
+            for(int ax=x0; ax<=x1; ax++) {
+                if(grid.isHidden(ax,ay) && !grid.isFlagged(ax,ay)) {
+                    failed |= grid.revealTile(ax,ay,changes);
+                }
+            }
+        }
+        if(failed) {
+            end(Result.POKED_MINE);
+        }
+        checkAllSafeRevealed();
+    }
+
+    /// Take back the most recent action, even one that ended the game.  The tiles it changed are in
+    /// [#getChangedTiles()] afterward.
+    /// @return false if undo is off or there is nothing left to undo.
+    public boolean undo() {
+        changes.clear();
+        if(history == null || !history.undo(this)) return false;
+        if(journal != null) journal.record(GameJournal.Action.UNDO,0,0);
+        return true;
+    }
+
+    /// Put the player, the sensor and the outcome back where they were, as when loading a saved game.
+    /// @throws IllegalArgumentException if a position is off the board.
+    void restore(int playerX, int playerY, int sensorX, int sensorY, int moveCount, Result result) {
+        int w = grid.getGridWidth(), h = grid.getGridHeight();
+        if(playerX<0 || playerX>=w || playerY<0 || playerY>=h || sensorX<0 || sensorX>=w || sensorY<0 || sensorY>=h) {
+            throw new IllegalArgumentException("Player and sensor must be on the board.");
+        }
+        px = playerX;
+        py = playerY;
+        sx = sensorX;
+        sy = sensorY;
+        this.moveCount = moveCount;
+        this.result = result;
+    }
+
+    /// End the game with a win if that option is on and every safe tile is revealed.  Constant time.
+    private void checkAllSafeRevealed() {
+        if(winWhenAllSafeRevealed && grid.isAllSafeRevealed()) {
+            end(Result.WON);
+        }
+    }
+
+    /// The first action to end the game decides how it ended.
+    private void end(Result why) {
+        if(!isGameOver()) result = why;
+    }
+}
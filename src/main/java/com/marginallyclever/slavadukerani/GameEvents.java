@@ -0,0 +1,95 @@
+package com.marginallyclever.slavadukerani;
+
+import jdk.jfr.*;
+
+/// JDK Flight Recorder events for the hot paths of the game.  They cost next to nothing unless a recording is running.
+/// Start one with `java -XX:StartFlightRecording=filename=game.jfr -jar SlavaDukerani.jar`, or from
+/// `Help > Performance Metrics`, then open the file in JDK Mission Control or read it with `jfr print`.
+///
+/// Each event's duration is the time spent on the work it describes.  [PerformanceMetrics] keeps the same timings in
+/// histograms, for a quick look without a recording.
+final class GameEvents {
+    static final String CATEGORY = "Slava Dukerani";
+
+    private GameEvents() {}
+
+    @Name("com.marginallyclever.slavadukerani.GridCreated")
+    @Label("Grid Created")
+    @Category(CATEGORY)
+    @Description("Mines placed and sensor values counted for a new Grid.")
+    static class GridCreated extends Event {
+        @Label("Width")
+        int width;
+
+        @Label("Height")
+        int height;
+
+        @Label("Mines")
+        int mines;
+    }
+
+    @Name("com.marginallyclever.slavadukerani.Reveal")
+    @Label("Reveal")
+    @Category(CATEGORY)
+    @Description("One call to Board.revealTile, with any flood fill it started.")
+    static class Reveal extends Event {
+        @Label("X")
+        int x;
+
+        @Label("Y")
+        int y;
+
+        @Label("Tiles Opened")
+        int tilesOpened;
+
+        @Label("Mine")
+        boolean mine;
+    }
+
+    @Name("com.marginallyclever.slavadukerani.Frame")
+    @Label("Frame")
+    @Category(CATEGORY)
+    @Description("One SlavaDukerani.paintComponent.")
+    static class Frame extends Event {
+        @Label("Clip Width")
+        @Description("In pixels.")
+        int clipWidth;
+
+        @Label("Clip Height")
+        @Description("In pixels.")
+        int clipHeight;
+    }
+
+    @Name("com.marginallyclever.slavadukerani.FirstFrame")
+    @Label("First Frame")
+    @Category(CATEGORY)
+    @Description("The end of the first frame of a board after launch, once per run.  See Startup.")
+    static class FirstFrame extends Event {
+        @Label("Since Main")
+        @Timespan(Timespan.MILLISECONDS)
+        long sinceMain;
+
+        @Label("Since Launch")
+        @Description("Includes starting the JVM.  0 if the operating system does not say when the process started.")
+        @Timespan(Timespan.MILLISECONDS)
+        long sinceProcessStart;
+    }
+
+    @Name("com.marginallyclever.slavadukerani.InputLatency")
+    @Label("Input Latency")
+    @Category(CATEGORY)
+    @Description("From a key or mouse event being handled to the end of the frame that shows what it did.")
+    static class InputLatency extends Event {
+        @Label("Input")
+        String input;
+
+        @Label("Latency")
+        @Timespan(Timespan.NANOSECONDS)
+        long latency;
+
+        @Label("Queued")
+        @Description("How long the event waited in the AWT queue before it was handled.")
+        @Timespan(Timespan.MILLISECONDS)
+        long queued;
+    }
+}
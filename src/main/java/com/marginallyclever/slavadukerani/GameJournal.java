@@ -0,0 +1,370 @@
+package com.marginallyclever.slavadukerani;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+/// A record of every action in one game, so that bug reports can be reproduced and speedruns checked.
+///
+/// A [GameEngine] with a journal adds each move, reveal, flag and chord to it with the time since the game began.
+/// Actions go into a ring of longs first, which allocates nothing, and are encoded into the journal a ring at a time.
+///
+/// The file starts with the magic number "SDKJ" and then varints: version, width, height, mines, seed (zigzag),
+/// options (bit 0: win by clearing, bit 1: huge map), and the exit x and y.  Each action is a varint of (milliseconds
+/// since the previous action << 4 | [Action] ordinal), then varints x and y for reveals, flags and chords.  The file
+/// ends with a 15 and an 8 byte checksum of the final state, see [#checksum(GameEngine)].  Version 2 had no exit, which
+/// was always in the bottom right corner.  Version 1 also had no undo and used 3 bits for the action, with 7 at the
+/// end.
+///
+/// Only undos that took something back are recorded, so a replay with an unlimited [UndoHistory] always undoes the
+/// same actions.
+///
+/// `java -cp SlavaDukerani.jar com.marginallyclever.slavadukerani.GameJournal game.sdkj` replays a journal headless
+/// at full speed and checks the checksum.
+public class GameJournal {
+    public static final int MAGIC = 0x53444B4A;  // "SDKJ"
+    public static final int VERSION = 3;
+    public static final String EXTENSION = "sdkj";
+
+    private static final int ACTION_BITS = 4;
+    private static final int END = (1 << ACTION_BITS) - 1;
+    private static final int V1_ACTION_BITS = 3;
+    private static final int OPTION_WIN_BY_CLEARING = 1;
+    private static final int OPTION_CHUNKED = 2;
+    private static final int RING_ACTIONS = 1024;
+
+    public enum Action {
+        MOVE_RIGHT(1, 0), MOVE_LEFT(-1, 0), MOVE_DOWN(0, 1), MOVE_UP(0, -1), REVEAL, FLAG, CHORD, UNDO;
+
+        private static final Action [] ALL = values();
+
+        public final int dx, dy;
+
+        Action() {
+            this(0, 0);
+        }
+
+        Action(int dx, int dy) {
+            this.dx = dx;
+            this.dy = dy;
+        }
+
+        public boolean isMove() {
+            return dx != 0 || dy != 0;
+        }
+
+        /// @return true if the action is on a tile, so x and y are recorded.
+        public boolean hasTile() {
+            return this == REVEAL || this == FLAG || this == CHORD;
+        }
+
+        /// @return the move one tile in the direction (dx,dy).
+        static Action move(int dx, int dy) {
+            if (dx == 1) return MOVE_RIGHT;
+            if (dx == -1) return MOVE_LEFT;
+            return dy == 1 ? MOVE_DOWN : MOVE_UP;
+        }
+    }
+
+    /// Everything needed to make the same board again.  The seed is the final one, after any no guessing search.
+    ///
+    /// On a huge map, mines is the number expected on average, which sets the density mines / (width * height).  It is
+    /// a long because huge maps can have more than an int can count.  Only huge maps can move the exit from the bottom
+    /// right corner.
+    public record Settings(int width, int height, long mines, long seed, boolean winWhenAllSafeRevealed, boolean chunked,
+                           int exitX, int exitY) {
+        /// Settings with the exit in the bottom right corner.
+        public Settings(int width, int height, long mines, long seed, boolean winWhenAllSafeRevealed, boolean chunked) {
+            this(width, height, mines, seed, winWhenAllSafeRevealed, chunked, width - 1, height - 1);
+        }
+
+        /// @return a new game on the board these settings describe.
+        /// @throws IllegalArgumentException if the settings do not make a valid board.
+        public GameEngine newGame() {
+            if (!chunked) {
+                if (mines > Integer.MAX_VALUE) throw new IllegalArgumentException("Too many mines.  Try a huge map.");
+                if (exitX != width - 1 || exitY != height - 1) {
+                    throw new IllegalArgumentException("Only huge maps can move the exit.");
+                }
+            }
+            GameEngine engine = chunked
+                    ? new GameEngine(new ChunkedBoard(width, height, seed, mines / ((double) width * height),
+                            exitX, exitY, ChunkedBoard.DEFAULT_MAX_CHUNKS))
+                    : new GameEngine(width, height, seed, (int) mines);
+            engine.setWinWhenAllSafeRevealed(winWhenAllSafeRevealed);
+            return engine;
+        }
+    }
+
+    private final Settings settings;
+    private final long startNanos = System.nanoTime();
+    // two longs per action: milliseconds since the start, then the action and its tile.
+    private final long [] ring = new long[RING_ACTIONS * 2];
+    private int ringCount = 0;
+    private long lastMillis = 0;
+    private int actionCount = 0;
+    private byte [] encoded = new byte[4096];
+    private int encodedLength = 0;
+
+    public GameJournal(Settings settings) {
+        this.settings = settings;
+        writeInt(MAGIC);
+        writeVarint(VERSION);
+        writeVarint(settings.width());
+        writeVarint(settings.height());
+        writeVarint(settings.mines());
+        writeVarint(zigzag(settings.seed()));
+        writeVarint((settings.winWhenAllSafeRevealed() ? OPTION_WIN_BY_CLEARING : 0)
+                  | (settings.chunked() ? OPTION_CHUNKED : 0));
+        writeVarint(settings.exitX());
+        writeVarint(settings.exitY());
+    }
+
+    public Settings getSettings() {
+        return settings;
+    }
+
+    public int getActionCount() {
+        return actionCount;
+    }
+
+    /// Called by [GameEngine] for each action.
+    void record(Action action, int x, int y) {
+        ring[ringCount * 2] = (System.nanoTime() - startNanos) / 1_000_000;
+        ring[ringCount * 2 + 1] = (long) action.ordinal() << 58 | (long) x << 29 | y;
+        actionCount++;
+        if (++ringCount == RING_ACTIONS) flush();
+    }
+
+    /// Encode the actions waiting in the ring.
+    public void flush() {
+        for (int i = 0; i < ringCount; i++) {
+            long millis = ring[i * 2];
+            long packed = ring[i * 2 + 1];
+            int ordinal = (int) (packed >>> 58);
+            writeVarint(Math.max(0, millis - lastMillis) << ACTION_BITS | ordinal);
+            lastMillis = millis;
+            if (Action.ALL[ordinal].hasTile()) {
+                writeVarint(packed >>> 29 & 0x1FFFFFFF);
+                writeVarint(packed & 0x1FFFFFFF);
+            }
+        }
+        ringCount = 0;
+    }
+
+    /// Save the journal so far with the checksum of the game as it is now.  The journal can keep recording.
+    public void save(Path path, GameEngine engine) throws IOException {
+        flush();
+        ByteBuffer footer = ByteBuffer.allocate(1 + Long.BYTES);
+        footer.put((byte) END).putLong(checksum(engine)).flip();
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            ByteBuffer body = ByteBuffer.wrap(encoded, 0, encodedLength);
+            while (body.hasRemaining()) channel.write(body);
+            while (footer.hasRemaining()) channel.write(footer);
+        }
+    }
+
+    /// A hash of everything an action can change: which tiles are revealed and flagged, the player and sensor, the
+    /// move count and the result.  A [Grid] hashes every tile.  Other boards, which may be too big to scan, hash their
+    /// flag count and revealed count.
+    public static long checksum(GameEngine engine) {
+        long h = mix(engine.getPlayerX(), engine.getPlayerY());
+        h = mix(h, engine.getSensorX());
+        h = mix(h, engine.getSensorY());
+        h = mix(h, engine.getMoveCount());
+        h = mix(h, engine.getResult().ordinal());
+        Board board = engine.getBoard();
+        h = mix(h, board.getFlagCount());
+        if (board instanceof Grid grid) {
+            long [] mines = new long[1], hidden = new long[1], flags = new long[1];
+            for (int w = 0, words = grid.getWordCount(); w < words; w++) {
+                grid.pack(w, 1, mines, hidden, flags);
+                h = mix(mix(h, hidden[0]), flags[0]);
+            }
+        } else if (board instanceof ChunkedBoard chunked) {
+            h = mix(h, chunked.getRevealedSafeCount());
+        }
+        return h;
+    }
+
+    /// @return the running hash h with the next value mixed in.
+    private static long mix(long h, long value) {
+        return SplitMix64.mix(h * 31 + value + SplitMix64.GAMMA);
+    }
+
+    private void writeInt(int value) {
+        for (int shift = 24; shift >= 0; shift -= 8) writeByte(value >>> shift);
+    }
+
+    private void writeVarint(long value) {
+        while ((value & ~0x7FL) != 0) {
+            writeByte((int) (value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        writeByte((int) value);
+    }
+
+    private void writeByte(int b) {
+        if (encodedLength == encoded.length) encoded = Arrays.copyOf(encoded, encoded.length * 2);
+        encoded[encodedLength++] = (byte) b;
+    }
+
+    private static long zigzag(long value) {
+        return (value << 1) ^ (value >> 63);
+    }
+
+    /// Reads a saved journal one action at a time.
+    public static class Reader {
+        private final byte [] data;
+        private int position = 0;
+        private final Settings settings;
+        private long millis = 0;
+        private Action action;
+        private int x, y;
+        private long checksum;
+        private boolean ended = false;
+        private final int actionBits;
+
+        /// @throws IOException if the file can't be read or is not a journal.
+        public Reader(Path path) throws IOException {
+            this(Files.readAllBytes(path));
+        }
+
+        public Reader(byte [] data) throws IOException {
+            this.data = data;
+            if (data.length < 4 || ((data[0] & 0xFF) << 24 | (data[1] & 0xFF) << 16 | (data[2] & 0xFF) << 8 | (data[3] & 0xFF)) != MAGIC) {
+                throw new IOException("Not a Slava Dukerani journal.");
+            }
+            position = 4;
+            long version = readVarint();
+            if (version < 1 || version > VERSION) throw new IOException("Unsupported journal version " + version + ".");
+            actionBits = (version == 1) ? V1_ACTION_BITS : ACTION_BITS;
+            int width = (int) readVarint();
+            int height = (int) readVarint();
+            long mines = readVarint();
+            long z = readVarint();
+            long seed = (z >>> 1) ^ -(z & 1);
+            int options = (int) readVarint();
+            int exitX = (version < 3) ? width - 1 : (int) readVarint();
+            int exitY = (version < 3) ? height - 1 : (int) readVarint();
+            settings = new Settings(width, height, mines, seed,
+                    (options & OPTION_WIN_BY_CLEARING) != 0, (options & OPTION_CHUNKED) != 0, exitX, exitY);
+        }
+
+        public Settings getSettings() {
+            return settings;
+        }
+
+        /// Read the next action.
+        /// @return false at the end of the journal, after which [#getChecksum()] is valid.
+        public boolean next() throws IOException {
+            if (ended) return false;
+            long head = readVarint();
+            int ordinal = (int) (head & ((1 << actionBits) - 1));
+            if (ordinal == (1 << actionBits) - 1) {
+                if (position + Long.BYTES > data.length) throw new IOException("Journal ends in the middle of the checksum.");
+                checksum = ByteBuffer.wrap(data, position, Long.BYTES).getLong();
+                ended = true;
+                return false;
+            }
+            if (ordinal >= Action.ALL.length) throw new IOException("Corrupt journal.");
+            millis += head >>> actionBits;
+            action = Action.ALL[ordinal];
+            if (action.hasTile()) {
+                x = (int) readVarint();
+                y = (int) readVarint();
+            } else {
+                x = 0;
+                y = 0;
+            }
+            return true;
+        }
+
+        /// @return the time of the current action in milliseconds since the game began.
+        public long getMillis() {
+            return millis;
+        }
+
+        public Action getAction() {
+            return action;
+        }
+
+        public int getX() {
+            return x;
+        }
+
+        public int getY() {
+            return y;
+        }
+
+        /// @return the checksum of the final state, once [#next()] has returned false.
+        public long getChecksum() {
+            return checksum;
+        }
+
+        private long readVarint() throws IOException {
+            long value = 0;
+            for (int shift = 0; shift < 64; shift += 7) {
+                if (position >= data.length) throw new IOException("Journal ends unexpectedly.");
+                int b = data[position++];
+                value |= (long) (b & 0x7F) << shift;
+                if ((b & 0x80) == 0) return value;
+            }
+            throw new IOException("Corrupt journal.");
+        }
+    }
+
+    /// Apply one action to a game.
+    public static GameEngine.Result apply(GameEngine engine, Action action, int x, int y) {
+        return switch (action) {
+            case REVEAL -> engine.reveal(x, y);
+            case FLAG -> engine.toggleFlag(x, y);
+            case CHORD -> engine.chord(x, y);
+            case UNDO -> {
+                engine.undo();
+                yield engine.getResult();
+            }
+            default -> engine.move(action.dx, action.dy);
+        };
+    }
+
+    /// The outcome of a headless replay.
+    public record Replay(GameEngine engine, int actions, long expectedChecksum, long actualChecksum) {
+        public boolean isVerified() {
+            return expectedChecksum == actualChecksum;
+        }
+    }
+
+    /// Play a journal as fast as possible, with no user interface, and compare the final state with the saved checksum.
+    public static Replay replay(Reader reader) throws IOException {
+        GameEngine engine = reader.getSettings().newGame();
+        engine.setUndoHistory(new UndoHistory(Long.MAX_VALUE));
+        int actions = 0;
+        while (reader.next()) {
+            apply(engine, reader.getAction(), reader.getX(), reader.getY());
+            actions++;
+        }
+        return new Replay(engine, actions, reader.getChecksum(), checksum(engine));
+    }
+
+    public static void main(String[] args) throws IOException {
+        if (args.length < 1) {
+            System.out.println("Usage: GameJournal <journal." + EXTENSION + ">");
+            return;
+        }
+        Reader reader = new Reader(Path.of(args[0]));
+        Settings s = reader.getSettings();
+        long start = System.nanoTime();
+        Replay replay = replay(reader);
+        double ms = (System.nanoTime() - start) / 1e6;
+        System.out.printf("%dx%d, %d mines, exit (%d,%d), seed %d: %d actions replayed in %.1f ms.  %s after %d moves.  %s%n",
+                s.width(), s.height(), s.mines(), s.exitX(), s.exitY(), s.seed(), replay.actions(), ms,
+                replay.engine().getResult(), replay.engine().getMoveCount(),
+                replay.isVerified() ? "Final state verified." : "FINAL STATE DOES NOT MATCH.");
+    }
+}
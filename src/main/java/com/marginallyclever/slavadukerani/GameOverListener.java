@@ -5,4 +5,7 @@ import java.util.EventListener;
 /// GameOverListener is an interface for listening to game over events from SlavaDukerani.
 public interface GameOverListener extends EventListener {
     void gameOver(boolean won);
+
+    /// Called when an undo takes back the action that ended the game.
+    default void gameResumed() {}
 }
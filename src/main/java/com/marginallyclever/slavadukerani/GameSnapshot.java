@@ -0,0 +1,145 @@
+package com.marginallyclever.slavadukerani;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.LongBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/// Saves a game in progress to a compact binary file and loads it back.
+///
+/// The file is a fixed size header followed by three bit sets of one bit per tile, 64 tiles per long, in row-major
+/// order: the mines, the hidden tiles, and the flags.  That is 3 bits per tile, so a 2 gigacell board is about 800 MB.
+/// Sensor values and the exit are not stored, they are worked out again from the mines.
+///
+/// Header, big-endian:
+/// - int magic "SDKR", short version, short options (bit 0: win by clearing)
+/// - int width, int height
+/// - int playerX, playerY, sensorX, sensorY
+/// - int move count, int [GameEngine.Result] ordinal
+/// - long elapsed seconds
+///
+/// Saving streams the bit sets out through a [FileChannel] a block at a time.  Loading memory maps the file and reads
+/// the bit sets in place, so neither direction copies the whole file through the heap.
+public class GameSnapshot {
+    public static final int MAGIC = 0x53444B52;  // "SDKR"
+    public static final short VERSION = 1;
+    public static final String EXTENSION = "sdkr";
+
+    private static final int HEADER_BYTES = 48;
+    private static final short OPTION_WIN_BY_CLEARING = 1;
+    private static final int WORDS_PER_BLOCK = 8192;  // 512k tiles per write.
+
+    /// A game read back from a file.
+    public record Loaded(GameEngine engine, long elapsedSeconds) {}
+
+    /// @throws IllegalArgumentException if the game is not played on a [Grid].
+    public static void save(GameEngine engine, long elapsedSeconds, Path path) throws IOException {
+        if (!(engine.getBoard() instanceof Grid grid)) {
+            throw new IllegalArgumentException("Only games on a Grid can be saved.");
+        }
+        int words = grid.getWordCount();
+        long sectionBytes = (long) words * Long.BYTES;
+
+        ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES);
+        header.putInt(MAGIC);
+        header.putShort(VERSION);
+        header.putShort(engine.getWinWhenAllSafeRevealed() ? OPTION_WIN_BY_CLEARING : 0);
+        header.putInt(grid.getGridWidth());
+        header.putInt(grid.getGridHeight());
+        header.putInt(engine.getPlayerX());
+        header.putInt(engine.getPlayerY());
+        header.putInt(engine.getSensorX());
+        header.putInt(engine.getSensorY());
+        header.putInt(engine.getMoveCount());
+        header.putInt(engine.getResult().ordinal());
+        header.putLong(elapsedSeconds);
+        header.flip();
+
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            writeFully(channel, header, 0);
+
+            // one pass over the board fills a block of each bit set, then each block goes to its own section.
+            int blockWords = Math.min(words, WORDS_PER_BLOCK);
+            long [] mines = new long[blockWords];
+            long [] hidden = new long[blockWords];
+            long [] flags = new long[blockWords];
+            ByteBuffer buffer = ByteBuffer.allocateDirect(blockWords * Long.BYTES);
+            for (int first = 0; first < words; first += blockWords) {
+                int count = Math.min(blockWords, words - first);
+                grid.pack(first, count, mines, hidden, flags);
+                long offset = HEADER_BYTES + (long) first * Long.BYTES;
+                writeBlock(channel, buffer, mines, count, offset);
+                writeBlock(channel, buffer, hidden, count, offset + sectionBytes);
+                writeBlock(channel, buffer, flags, count, offset + sectionBytes * 2);
+            }
+        }
+    }
+
+    /// @throws IOException if the file can't be read or is not a valid save.
+    public static Loaded load(Path path) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            long size = channel.size();
+            if (size < HEADER_BYTES) throw new IOException("Not a Slava Dukerani save file.");
+            // the mapping stays valid after the channel is closed.
+            MappedByteBuffer map = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+
+            if (map.getInt() != MAGIC) throw new IOException("Not a Slava Dukerani save file.");
+            short version = map.getShort();
+            if (version != VERSION) throw new IOException("Unsupported save file version " + version + ".");
+            short options = map.getShort();
+            int width = map.getInt();
+            int height = map.getInt();
+            int playerX = map.getInt();
+            int playerY = map.getInt();
+            int sensorX = map.getInt();
+            int sensorY = map.getInt();
+            int moveCount = map.getInt();
+            int resultOrdinal = map.getInt();
+            long elapsedSeconds = map.getLong();
+
+            GameEngine.Result [] results = GameEngine.Result.values();
+            if (width < 0 || height < 0 || resultOrdinal < 0 || resultOrdinal >= results.length) {
+                throw new IOException("Corrupt save file.");
+            }
+            long words = ((long) width * height + 63) >>> 6;
+            if (size != HEADER_BYTES + words * Long.BYTES * 3) {
+                throw new IOException("Save file is the wrong size for a " + width + "x" + height + " board.");
+            }
+
+            try {
+                Grid grid = Grid.unpack(width, height,
+                        section(map, 0, words), section(map, 1, words), section(map, 2, words));
+                GameEngine engine = new GameEngine(grid);
+                engine.restore(playerX, playerY, sensorX, sensorY, moveCount, results[resultOrdinal]);
+                engine.setWinWhenAllSafeRevealed((options & OPTION_WIN_BY_CLEARING) != 0);
+                return new Loaded(engine, elapsedSeconds);
+            } catch (IllegalArgumentException e) {
+                throw new IOException("Corrupt save file: " + e.getMessage(), e);
+            }
+        }
+    }
+
+    /// @return bit set number `index` of the file, read in place.
+    private static LongBuffer section(MappedByteBuffer map, int index, long words) {
+        int start = (int) (HEADER_BYTES + index * words * Long.BYTES);
+        return map.slice(start, (int) (words * Long.BYTES)).asLongBuffer();
+    }
+
+    private static void writeBlock(FileChannel channel, ByteBuffer buffer, long [] words, int count, long position)
+            throws IOException {
+        buffer.clear();
+        buffer.asLongBuffer().put(words, 0, count);
+        buffer.limit(count * Long.BYTES);
+        writeFully(channel, buffer, position);
+    }
+
+    private static void writeFully(FileChannel channel, ByteBuffer buffer, long position) throws IOException {
+        while (buffer.hasRemaining()) {
+            position += channel.write(buffer, position);
+        }
+    }
+}
@@ -0,0 +1,112 @@
+package com.marginallyclever.slavadukerani;
+
+import javax.swing.*;
+import java.awt.*;
+import java.awt.image.BufferedImage;
+import java.util.HashMap;
+import java.util.Map;
+
+/// Pre-rendered text for the board.  The sensor digits 1-8 are drawn once into tile-sized images with the text
+/// already centered, so drawing a sensor value is a single allocation-free blit.  Each zoom level gets its own set of
+/// digits the first time it is drawn.  The game over banner fonts and their metrics are derived once instead of on
+/// every paint.
+public class GlyphCache {
+    private static final GlyphCache INSTANCE = new GlyphCache();
+
+    public static final String WIN_TEXT = "You Win!";
+    public static final String LOSE_TEXT = "Game Over";
+
+    /// tiles smaller than this are too small to read a digit, so none is drawn.
+    public static final int MIN_DIGIT_SIZE = 10;
+
+    private final Font digitBase;
+    private final Map<Integer, BufferedImage[]> digitsBySize = new HashMap<>();
+    private final BufferedImage [] digits;
+    private final Font bannerFont;
+    private final FontMetrics bannerMetrics;
+    private final int winTextWidth;
+    private final int loseTextWidth;
+
+    public static GlyphCache getInstance() {
+        return INSTANCE;
+    }
+
+    private GlyphCache() {
+        Font base = UIManager.getFont("Panel.font");
+        if (base == null) base = new Font(Font.DIALOG, Font.PLAIN, 12);
+
+        // a scratch image to measure text with, since there may not be a screen yet.
+        BufferedImage scratch = new BufferedImage(1, 1, BufferedImage.TYPE_INT_ARGB);
+        Graphics2D g = scratch.createGraphics();
+
+        digitBase = base.deriveFont(Font.BOLD);
+        digits = getDigits(GridTile.SIZE_X);
+
+        bannerFont = base.deriveFont(Font.BOLD, 64f);
+        bannerMetrics = g.getFontMetrics(bannerFont);
+        winTextWidth = bannerMetrics.stringWidth(WIN_TEXT);
+        loseTextWidth = bannerMetrics.stringWidth(LOSE_TEXT);
+        g.dispose();
+    }
+
+    /// @return the digits 1-8 for size x size tiles, at half the tile height like the 16 point digits of a 32 pixel tile.
+    private synchronized BufferedImage [] getDigits(int size) {
+        return digitsBySize.computeIfAbsent(size, s -> {
+            BufferedImage scratch = new BufferedImage(1, 1, BufferedImage.TYPE_INT_ARGB);
+            Graphics2D g = scratch.createGraphics();
+            Font font = digitBase.deriveFont(s / 2f);
+            FontMetrics metrics = g.getFontMetrics(font);
+            g.dispose();
+            BufferedImage [] images = new BufferedImage[9];
+            for (int i = 1; i < images.length; ++i) {
+                images[i] = renderDigit(i, font, metrics, s);
+            }
+            return images;
+        });
+    }
+
+    private static BufferedImage renderDigit(int value, Font font, FontMetrics fm, int size) {
+        BufferedImage image = ArtCache.createCompatibleImage(size, size, Transparency.TRANSLUCENT);
+        Graphics2D g = image.createGraphics();
+        g.setRenderingHint(RenderingHints.KEY_TEXT_ANTIALIASING, RenderingHints.VALUE_TEXT_ANTIALIAS_ON);
+        g.setFont(font);
+        g.setColor(Color.BLACK);
+        // center the text in the tile using FontMetrics
+        String text = Integer.toString(value);
+        int sx = (size - fm.stringWidth(text)) / 2;
+        int sy = (size - fm.getHeight()) / 2 + fm.getAscent();
+        g.drawString(text, sx, sy);
+        g.dispose();
+        return image;
+    }
+
+    /// Draw a sensor value centered in the tile whose top left corner is at (drawX,drawY).
+    /// @param sensorValue 1-8.  Other values draw nothing.
+    public void drawSensorValue(Graphics g, int drawX, int drawY, int sensorValue) {
+        if (sensorValue <= 0 || sensorValue >= digits.length) return;
+        g.drawImage(digits[sensorValue], drawX, drawY, null);
+    }
+
+    /// Draw a sensor value centered in a size x size tile.  Nothing is drawn on tiles smaller than [#MIN_DIGIT_SIZE].
+    public void drawSensorValue(Graphics g, int drawX, int drawY, int sensorValue, int size) {
+        if (size == GridTile.SIZE_X) {
+            drawSensorValue(g, drawX, drawY, sensorValue);
+            return;
+        }
+        if (sensorValue <= 0 || sensorValue >= digits.length || size < MIN_DIGIT_SIZE) return;
+        g.drawImage(getDigits(size)[sensorValue], drawX, drawY, null);
+    }
+
+    /// Draw the game over banner centered in a width x height area.
+    public void drawBanner(Graphics g, boolean won, int width, int height) {
+        String text = won ? WIN_TEXT : LOSE_TEXT;
+        int textWidth = won ? winTextWidth : loseTextWidth;
+        Font oldFont = g.getFont();
+        g.setFont(bannerFont);
+        int sx = (width - textWidth) / 2;
+        int sy = (height - bannerMetrics.getHeight()) / 2 + bannerMetrics.getAscent();
+        g.setColor(won ? Color.BLUE : Color.RED);
+        g.drawString(text, sx, sy);
+        g.setFont(oldFont);
+    }
+}
@@ -1,250 +1,442 @@
 package com.marginallyclever.slavadukerani;
 
-import javax.imageio.ImageIO;
-import java.awt.*;
-import java.awt.image.BufferedImage;
-import java.util.LinkedList;
-import java.util.Objects;
-import java.util.Queue;
-import java.util.Random;
-
-public class Grid {
+import java.nio.LongBuffer;
+import java.util.SplittableRandom;
+import java.util.random.RandomGenerator;
+
+/// The game board.  Holds the mine layout, sensor values, and the hidden/flagged state of every tile.
+///
+/// Tiles are packed into one byte per cell in a flat row-major array, so a 10,000 x 10,000 board costs 100,000,000
+/// bytes (about 95 MiB of heap) instead of the ~36 bytes per cell of one object per tile.  Measured on a 4000x4000
+/// board, 64-bit JVM with compressed oops: 1.03 bytes per cell packed, 36.0 bytes per cell with a `GridTile[][]`.
+///
+/// Bit layout of each cell, chosen so that a freshly allocated array is an empty, hidden board:
+/// - bits 0-3: sensor value (0-8)
+/// - bits 4-5: tile type ([GridTile#TYPE_EMPTY], [GridTile#TYPE_MINE], [GridTile#TYPE_EXIT], [GridTile#TYPE_RESERVED])
+/// - bit 6: revealed
+/// - bit 7: flagged
+public class Grid implements Board {
+    public static final int BYTES_PER_CELL = 1;
+
+    private static final int SENSOR_MASK = 0x0F;
+    static final int TYPE_SHIFT = 4;
+    static final int TYPE_MASK = 0x03 << TYPE_SHIFT;
+    private static final int REVEALED_BIT = 0x40;
+    private static final int FLAGGED_BIT = 0x80;
+
     private int gridWidth = 20;
     private int gridHeight = 10;  // grid width and height
-    private GridTile [][] tiles;
+    private byte [] cells;
 
-    private final Random rand;
+    private final RandomGenerator.SplittableGenerator rand;
+    private final IntQueue toVisit = new IntQueue();
+    private final ChangedTiles scratchChanges = new ChangedTiles();
     private int numMines = 0;
+    private FrontierIndex frontier;  // made along with the board, once the sensor values are known.
 
-    private BufferedImage
-            flagImage,
-            mineImage,
-            exitImage,
-            emptyImage,
-            hiddenImage;
+    // kept up to date as tiles change, so none of the stats need a scan of the board.
+    private int flagCount = 0;
+    private int hiddenCount = 0;
+    private int revealedSafeCount = 0;
 
     /// Construct a new Grid game with the specified grid size, seed, and number of mines.
     /// @param gridWidth  Width of the grid in tiles.
     /// @param gridHeight Height of the grid in tiles.
     /// @param seed       Seed for the random number generator.
     /// @param numMines   Number of mines to place on the grid.
-    public Grid(int gridWidth, int gridHeight,int seed,int numMines) {
+    /// @throws IllegalArgumentException if the grid is smaller than 2x2 or the mines don't fit.
+    public Grid(int gridWidth, int gridHeight,long seed,int numMines) {
         this.gridWidth = gridWidth;
         this.gridHeight = gridHeight;
         this.numMines = numMines;
+        checkSettings(gridWidth, gridHeight, numMines);
 
-        rand = new Random(seed);
+        rand = new SplittableRandom(seed);
 
         initGrid();
     }
 
     /// input is a string of 0s and 1s, where 1 represents a mine and 0 represents an empty tile.
     /// The string is read row by row, starting from the top-left corner of the grid.  every row is terminated with a \n
+    /// See [BoardParser] for the details.
+    /// @throws IllegalArgumentException if the string is not a valid map.
     public Grid(String input) {
-        String[] rows = input.split("\n");
-        this.gridHeight = rows.length;
-        this.gridWidth = rows[0].length();
-        this.tiles = new GridTile[gridWidth][gridHeight];
-        this.numMines = 0;
+        this(BoardParser.read(input));
+    }
 
-        rand = new Random();
-        initGrid();
+    /// A board read by [BoardParser], with the mines, sensor values and exit already in place.
+    Grid(BoardParser.Cells parsed) {
+        this.gridWidth = parsed.width();
+        this.gridHeight = parsed.height();
+        this.numMines = parsed.numMines();
+        checkSize(gridWidth, gridHeight);
+        rand = new SplittableRandom();
+        cells = parsed.cells();
+        hiddenCount = cells.length;
+        frontier = new FrontierIndex(this);
+        revealTile(0,0);
+        revealTile(1,1);
+    }
 
-        for (int y = 0; y < gridHeight; y++) {
-            for (int x = 0; x < gridWidth; x++) {
-                char c = rows[y].charAt(x);
-                var tile = new GridTile(x,y);
-                tiles[x][y] = tile;
-                tile.type = (c == '1') ? GridTile.TYPE_MINE : GridTile.TYPE_EMPTY;
-                if(c=='1') numMines++;
-            }
-        }
+    /// An empty board, for [#unpack].
+    private Grid(int gridWidth, int gridHeight) {
+        this.gridWidth = gridWidth;
+        this.gridHeight = gridHeight;
+        checkSize(gridWidth, gridHeight);
+        rand = new SplittableRandom();
+        cells = new byte[gridWidth * gridHeight];
+        hiddenCount = cells.length;
+        frontier = new FrontierIndex(this);
     }
 
     private void initGrid() {
-        loadArt();
-
-        // allocate empty grid
-        tiles = new GridTile[gridWidth][gridHeight];
-        for (int x = 0; x< gridWidth; x++) {
-            for (int y = 0; y< gridHeight; y++) {
-                tiles[x][y] = new GridTile(x,y);
-            }
-        }
-        tiles[gridWidth-1][gridHeight-1].type = 2; // exit
-
-        // temp fill so first click isn't a mine, will be cleared later
-        tiles[0][0].type = GridTile.TYPE_RESERVED;
-        tiles[1][0].type = GridTile.TYPE_RESERVED;
-        tiles[0][1].type = GridTile.TYPE_RESERVED;
-        tiles[1][1].type = GridTile.TYPE_RESERVED;
-
-        // add some mines
+        GameEvents.GridCreated event = new GameEvents.GridCreated();
+        long start = PerformanceMetrics.start();
+        event.begin();
+        // allocate empty grid.  every cell starts empty, hidden, and unflagged.
+        cells = new byte[Math.multiplyExact(gridWidth, gridHeight)];
+        hiddenCount = cells.length;
+        setType(gridWidth-1,gridHeight-1,GridTile.TYPE_EXIT);
+
+        // add some mines.  the 2x2 start area is kept clear so the first click isn't a mine.
         placeMines();
 
-        tiles[0][0].type = GridTile.TYPE_EMPTY; // clear
-        tiles[0][1].type = GridTile.TYPE_EMPTY; // clear
-        tiles[1][0].type = GridTile.TYPE_EMPTY; // clear
-        tiles[1][1].type = GridTile.TYPE_EMPTY; // clear
-
         calculateSensorValues();
+        PerformanceMetrics.GRID_CREATED.recordSince(start);
+        if(event.shouldCommit()) {
+            event.width = gridWidth;
+            event.height = gridHeight;
+            event.mines = numMines;
+            event.commit();
+        }
         revealTile(0,0);
         revealTile(1,1);
     }
 
-    private void loadArt() {
-        try {
-            flagImage = ImageIO.read(Objects.requireNonNull(getClass().getResourceAsStream("flag-32.png")));
-            mineImage = ImageIO.read(Objects.requireNonNull(getClass().getResourceAsStream("mine.png")));
-            exitImage = ImageIO.read(Objects.requireNonNull(getClass().getResourceAsStream("exit-32.png")));
-            hiddenImage = ImageIO.read(Objects.requireNonNull(getClass().getResourceAsStream("hidden.png")));
-        } catch(Exception e) {
-            System.out.println("Error loading images: " + e.getMessage());
+    /// Check the settings of a new board without making one.
+    /// @throws IllegalArgumentException if `new Grid(gridWidth, gridHeight, seed, numMines)` would throw it.
+    public static void checkSettings(int gridWidth, int gridHeight, int numMines) {
+        checkSize(gridWidth, gridHeight);
+        int free = countFreeTiles(gridWidth, gridHeight);
+        if(numMines<0 || numMines>free) {
+            throw new IllegalArgumentException("Number of mines must be between 0 and "+free+" for a "
+                    +gridWidth+"x"+gridHeight+" grid.");
         }
     }
 
+    private static void checkSize(int gridWidth, int gridHeight) {
+        if(gridWidth<2 || gridHeight<2) {
+            throw new IllegalArgumentException("Grid must be at least 2x2.");
+        }
+        if((long)gridWidth*gridHeight > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("Grid must have at most "+Integer.MAX_VALUE+" tiles.");
+        }
+    }
+
+    /// @return the number of tiles that may hold a mine: everything except the 2x2 start area and the exit.
+    private static int countFreeTiles(int gridWidth, int gridHeight) {
+        int exitReserved = (gridWidth==2 && gridHeight==2) ? 0 : 1;  // on a 2x2 grid the exit is in the start area.
+        return gridWidth*gridHeight - 4 - exitReserved;
+    }
+
+    @Override
     public int getGridWidth() {
         return gridWidth;
     }
 
+    @Override
     public int getGridHeight() {
         return gridHeight;
     }
 
-    public int getNumMines() {
+    @Override
+    public long getNumMines() {
         return numMines;
     }
 
-    public GridTile getTile(int x, int y) {
-        return tiles[x][y];
+    private int index(int x, int y) {
+        return y * gridWidth + x;
+    }
+
+    @Override
+    public int getType(int x, int y) {
+        return (cells[index(x,y)] & TYPE_MASK) >> TYPE_SHIFT;
+    }
+
+    private void setType(int x, int y, int type) {
+        int i = index(x,y);
+        cells[i] = (byte)((cells[i] & ~TYPE_MASK) | (type << TYPE_SHIFT));
+    }
+
+    @Override
+    public int getSensorValue(int x, int y) {
+        return cells[index(x,y)] & SENSOR_MASK;
+    }
+
+    @Override
+    public boolean isHidden(int x, int y) {
+        return (cells[index(x,y)] & REVEALED_BIT) == 0;
+    }
+
+    private void setRevealed(int i) {
+        setRevealed(i % gridWidth, i / gridWidth);
+    }
+
+    private void setRevealed(int x, int y) {
+        int i = index(x,y);
+        if((cells[i] & REVEALED_BIT) != 0) return;
+        cells[i] |= REVEALED_BIT;
+        hiddenCount--;
+        if(((cells[i] & TYPE_MASK) >> TYPE_SHIFT) != GridTile.TYPE_MINE) revealedSafeCount++;
+        frontier.tileRevealed(x, y);
+    }
+
+    @Override
+    public void hideTile(int x, int y) {
+        int i = index(x,y);
+        if((cells[i] & REVEALED_BIT) == 0) return;
+        cells[i] &= (byte)~REVEALED_BIT;
+        hiddenCount++;
+        if(((cells[i] & TYPE_MASK) >> TYPE_SHIFT) != GridTile.TYPE_MINE) revealedSafeCount--;
+        frontier.tileChanged(x, y);
+    }
+
+    @Override
+    public boolean isFlagged(int x, int y) {
+        return (cells[index(x,y)] & FLAGGED_BIT) != 0;
+    }
+
+    @Override
+    public void setFlagged(int x, int y, boolean flagged) {
+        int i = index(x,y);
+        if(flagged == ((cells[i] & FLAGGED_BIT) != 0)) return;
+        if(flagged) {
+            cells[i] |= (byte)FLAGGED_BIT;
+            flagCount++;
+        } else {
+            cells[i] &= (byte)~FLAGGED_BIT;
+            flagCount--;
+        }
+        frontier.tileChanged(x, y);
+    }
+
+    @Override
+    public int getFlagCount() {
+        return flagCount;
+    }
+
+    /// @return true if (x,y) is revealed, not a mine, and has a sensor value and a hidden neighbour, flagged or not.
+    /// See [FrontierIndex].
+    boolean isFrontier(int x, int y) {
+        byte c = cells[index(x,y)];
+        if((c & REVEALED_BIT) == 0 || (c & SENSOR_MASK) == 0 || (c & TYPE_MASK) == GridTile.TYPE_MINE << TYPE_SHIFT) {
+            return false;
+        }
+        for(int ny = Math.max(0,y-1); ny <= Math.min(gridHeight-1,y+1); ny++) {
+            for(int nx = Math.max(0,x-1); nx <= Math.min(gridWidth-1,x+1); nx++) {
+                if((cells[index(nx,ny)] & REVEALED_BIT) == 0) return true;
+            }
+        }
+        return false;
+    }
+
+    /// @return the frontier of this grid, always up to date.
+    public FrontierIndex getFrontierIndex() {
+        return frontier;
+    }
+
+    /// @return the number of tiles not yet revealed.
+    public int getHiddenCount() {
+        return hiddenCount;
+    }
+
+    /// @return the number of revealed tiles that are not mines.
+    public int getRevealedSafeCount() {
+        return revealedSafeCount;
+    }
+
+    /// @return the number of tiles that are not mines.
+    public int getSafeTileCount() {
+        return cells.length - numMines;
+    }
+
+    @Override
+    public boolean isAllSafeRevealed() {
+        return revealedSafeCount == getSafeTileCount();
     }
 
     /// Calculate the sensor values for all tiles based on the current mine placement.  Called after placing mines.
-    private void calculateSensorValues() {
-        for (int x = 0; x< getGridWidth(); x++) {
-            for (int y = 0; y< getGridHeight(); y++) {
-                if(getTile(x,y).type == 1) {
-                    updateAdjacentSensorValues(x,y);
-                }
+    /// Any old sensor values are replaced, so it can be called again, and the frontier is found again from them.  See
+    /// [SensorCounter].
+    void calculateSensorValues() {
+        SensorCounter.count(cells,gridWidth,gridHeight);
+        frontier = new FrontierIndex(this);
+    }
+
+    /// Place exactly numMines mines on the empty tiles using selection sampling (Knuth's algorithm S): walk the tiles
+    /// once and pick each empty tile with probability (mines still needed) / (empty tiles still unseen).  Every layout
+    /// is equally likely, the same seed always gives the same layout, and it finishes in one pass at any density.
+    ///
+    /// The 2x2 start area and the exit never get a mine.  Any mines already placed are removed first, so it can be
+    /// called again.
+    void placeMines() {
+        final int mineBits = GridTile.TYPE_MINE << TYPE_SHIFT;
+        final int exit = cells.length-1;
+        long remaining = countFreeTiles(gridWidth, gridHeight);
+        long needed = numMines;
+        for(int i=0; i<cells.length; ++i) {
+            if((cells[i] & TYPE_MASK) == mineBits) cells[i] &= (byte)~TYPE_MASK;
+            if(i==0 || i==1 || i==gridWidth || i==gridWidth+1 || i==exit) continue;
+            if(needed>0 && rand.nextLong(remaining) < needed) {
+                cells[i] |= (byte)mineBits;
+                needed--;
             }
+            remaining--;
         }
     }
 
-    /// Raise the sensor value of all tiles adjacent to the given coordinates.  Called when placing mines.
-    private void updateAdjacentSensorValues(int x, int y) {
-        for (int dx=-1;dx<=1;dx++) {
-            for (int dy=-1;dy<=1;dy++) {
-                if(dx==0 && dy==0) continue;
-                int nx = x+dx;
-                int ny = y+dy;
-                if (nx>=0 && nx< getGridWidth() && ny>=0 && ny< getGridHeight()) {
-                    tiles[nx][ny].sensorValue++;
-                }
+    /// Hide every tile and remove every flag, as if no move had been made.  Lets benchmarks replay reveals.
+    void hideAll() {
+        for(int i=0; i<cells.length; ++i) {
+            cells[i] &= (byte)~(REVEALED_BIT|FLAGGED_BIT);
+        }
+        flagCount = 0;
+        hiddenCount = cells.length;
+        revealedSafeCount = 0;
+        frontier = new FrontierIndex(this);
+    }
+
+    /// @return the number of longs needed for one bit per tile.
+    int getWordCount() {
+        return (cells.length + 63) >>> 6;
+    }
+
+    /// Copy one bit per tile into the arrays, 64 tiles per long, starting with tile `firstWord * 64`.
+    /// @param count the number of longs to fill in each array.
+    void pack(int firstWord, int count, long [] mines, long [] hidden, long [] flags) {
+        final int mineBits = GridTile.TYPE_MINE << TYPE_SHIFT;
+        for(int w=0; w<count; ++w) {
+            long m = 0, h = 0, f = 0;
+            int start = (firstWord + w) << 6;
+            int end = Math.min(cells.length, start + 64);
+            for(int i=start; i<end; ++i) {
+                long bit = 1L << i;
+                byte c = cells[i];
+                if((c & TYPE_MASK) == mineBits) m |= bit;
+                if((c & REVEALED_BIT) == 0) h |= bit;
+                if((c & FLAGGED_BIT) != 0) f |= bit;
             }
+            mines[w] = m;
+            hidden[w] = h;
+            flags[w] = f;
         }
     }
 
-    private void placeMines() {
-        int placed=0;
-        while(placed<numMines) {
-            int x = (int)(rand.nextDouble() * getGridWidth());
-            int y = (int)(rand.nextDouble() * getGridHeight());
-            if(getTile(x,y).type==0) {
-                getTile(x,y).type = 1;
-                placed++;
+    /// Make a board from the bits written by [#pack].  The exit goes in the bottom right corner and the sensor values
+    /// are calculated from the mines.
+    /// @throws IllegalArgumentException if the size is invalid.
+    static Grid unpack(int gridWidth, int gridHeight, LongBuffer mines, LongBuffer hidden, LongBuffer flags) {
+        Grid grid = new Grid(gridWidth, gridHeight);
+        byte [] cells = grid.cells;
+        final byte mineBits = (byte)(GridTile.TYPE_MINE << TYPE_SHIFT);
+        for(int w=0, words=grid.getWordCount(); w<words; ++w) {
+            long m = mines.get(w);
+            int start = w << 6;
+            for(; m != 0; m &= m-1) {
+                int i = start + Long.numberOfTrailingZeros(m);
+                if(i >= cells.length-1) break;  // the exit is the last tile and never holds a mine.
+                cells[i] = mineBits;
+                grid.numMines++;
+            }
+        }
+        grid.setType(gridWidth-1,gridHeight-1,GridTile.TYPE_EXIT);
+        grid.calculateSensorValues();
+
+        grid.hiddenCount = cells.length;
+        for(int w=0, words=grid.getWordCount(); w<words; ++w) {
+            long shown = ~hidden.get(w);
+            long f = flags.get(w);
+            int start = w << 6;
+            for(; shown != 0; shown &= shown-1) {
+                int i = start + Long.numberOfTrailingZeros(shown);
+                if(i >= cells.length) break;
+                grid.setRevealed(i);
+            }
+            for(; f != 0; f &= f-1) {
+                int i = start + Long.numberOfTrailingZeros(f);
+                if(i >= cells.length) break;
+                cells[i] |= (byte)FLAGGED_BIT;
+                grid.flagCount++;
             }
         }
+        return grid;
     }
 
     ///  returns true if a mine is revealed.
     public boolean revealTile(int x, int y) {
-        GridTile tile = getTile(x,y);
-        tile.hidden = false;
-        if (tile.type == 1) {
-            System.out.println("Poked a mine.  Game over!");
+        scratchChanges.clear();
+        return revealTile(x,y,scratchChanges);
+    }
+
+    @Override
+    public boolean revealTile(int x, int y, ChangedTiles changes) {
+        GameEvents.Reveal event = new GameEvents.Reveal();
+        long start = PerformanceMetrics.start();
+        event.begin();
+        int before = changes.size();
+        boolean mine = reveal(x,y,changes);
+        PerformanceMetrics.REVEAL.recordSince(start);
+        if(event.shouldCommit()) {
+            event.x = x;
+            event.y = y;
+            event.tilesOpened = changes.size() - before;
+            event.mine = mine;
+            event.commit();
+        }
+        return mine;
+    }
+
+    private boolean reveal(int x, int y, ChangedTiles changes) {
+        if(isHidden(x,y)) {
+            setRevealed(x,y);
+            changes.add(x,y);
+        }
+        if (getType(x,y) == GridTile.TYPE_MINE) {
             return true;
         }
 
-        if (tile.sensorValue == 0) {
-            revealAdjacentTiles(tile);
+        if (getSensorValue(x,y) == 0) {
+            revealAdjacentTiles(x,y,changes);
         }
 
         return false;
     }
 
-    /// Recursively visit all adjacent hidden tiles with sensorValue=0 and reveal them until reaching tiles with
-    /// sensorValue>0.  Called when clearing a tile with sensorValue=0.
-    private void revealAdjacentTiles(GridTile startTile) {
-        // use a queue to avoid stack overflow from recursion, and a visited set to avoid infinite loops.
-        Queue<GridTile> toVisit = new LinkedList<>();
-        boolean [][] visited = new boolean [getGridWidth()][getGridHeight()];
-        toVisit.add(startTile);
+    /// Visit all adjacent hidden tiles with sensorValue=0 and reveal them until reaching tiles with sensorValue>0.
+    /// Called when clearing a tile with sensorValue=0.
+    ///
+    /// Runs in O(revealed tiles): each tile is revealed the moment it is queued, so the revealed bit doubles as the
+    /// visited bitmap and no tile is queued twice.  The queue is reused between calls.
+    private void revealAdjacentTiles(int startX, int startY, ChangedTiles changes) {
+        toVisit.clear();
+        toVisit.add(index(startX,startY));
 
         while(!toVisit.isEmpty()) {
-            var tile = toVisit.poll();
-            visited[startTile.x][startTile.y] = true;
-            tile.hidden = false;
-            if (tile.sensorValue > 0) continue;
+            int i = toVisit.poll();
+            int x = i % gridWidth;
+            int y = i / gridWidth;
 
             // queue new adjacent hidden unflagged tiles.
-            for (int dx = -1; dx <= 1; dx++) {
-                for (int dy = -1; dy <= 1; dy++) {
-                    int nx = tile.x + dx;
-                    int ny = tile.y + dy;
-                    if (nx >= 0 && nx < getGridWidth() && ny >= 0 && ny < getGridHeight()) {
-                        GridTile adjacentTile = getTile(nx,ny);
-                        // seen or in queue already, skip
-                        if(visited[adjacentTile.x][adjacentTile.y] || toVisit.contains(adjacentTile)) continue;
-                        // not hidden or flagged, skip
-                        if(!adjacentTile.hidden || adjacentTile.flagged) continue;
-                        // do it!
-                        toVisit.add(adjacentTile);
-                    }
-                }
-            }
-        }
-    }
-
-    public void paintComponent(Graphics g,boolean showAll) {
-        // draw all tiles
-        for(int x = 0; x< getGridWidth(); ++x) {
-            for(int y = 0; y< getGridHeight(); ++y) {
-                drawOneTile(g,x,y,showAll);
-            }
-        }
-    }
-
-    private void drawOneTile(Graphics g, int x, int y,boolean showAll) {
-        GridTile tile = getTile(x,y);
-        int drawX = x * GridTile.SIZE_X;
-        int drawY = y * GridTile.SIZE_Y;
-
-        // draw hidden tile
-        if(tile.hidden) {
-            PanelHelper.drawImage(g,hiddenImage,x,y,Color.GRAY);
-            if(showAll) {
-                // if game over, show mines
-                if(tile.type==1) {
-                    PanelHelper.drawImage(g, mineImage,x,y,Color.BLACK);
+            for (int ny = Math.max(0,y-1); ny <= Math.min(gridHeight-1,y+1); ny++) {
+                for (int nx = Math.max(0,x-1); nx <= Math.min(gridWidth-1,x+1); nx++) {
+                    int n = index(nx,ny);
+                    // already revealed or flagged, skip
+                    if((cells[n] & (REVEALED_BIT|FLAGGED_BIT)) != 0) continue;
+                    // do it!
+                    setRevealed(nx,ny);
+                    changes.add(nx,ny);
+                    if((cells[n] & SENSOR_MASK) == 0) toVisit.add(n);
                 }
-            } else if(tile.flagged) {
-                PanelHelper.drawImage(g, flagImage,x,y,Color.WHITE);
-            }
-        } else {
-            // draw revealed tile
-            switch (tile.type) {
-                case GridTile.TYPE_EMPTY:
-                    PanelHelper.drawImage(g,emptyImage,x,y,Color.WHITE);
-                    // draw tile border
-                    g.setColor(Color.DARK_GRAY);
-                    g.drawRect(drawX, drawY, GridTile.SIZE_X, GridTile.SIZE_Y);
-                    break;
-                case GridTile.TYPE_MINE:
-                    PanelHelper.drawImage(g, mineImage,x,y,Color.BLACK);
-                    break;
-                case GridTile.TYPE_EXIT:
-                    PanelHelper.drawImage(g, exitImage,x,y,Color.GREEN);
-                    break;
             }
         }
     }
@@ -0,0 +1,164 @@
+package com.marginallyclever.slavadukerani;
+
+import java.awt.*;
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferInt;
+
+/// Draws the tiles of a [Board].  Kept apart from the boards so the game rules never need AWT.
+///
+/// Tiles are drawn with art pre-scaled to the tile size, see [ArtCache#getTileArt(int)].  Below [#AGGREGATE_BELOW]
+/// pixels per tile the art can't be seen anyway, so each tile becomes one pixel of a plain color in a scratch image,
+/// which is then stretched over the clip in one draw.
+public class GridPainter {
+    /// tiles smaller than this many pixels are drawn as single pixels.
+    public static final int AGGREGATE_BELOW = 4;
+
+    private static final int HIDDEN_RGB = 0x808080;
+    private static final int FLAG_RGB = 0xE03030;
+    private static final int EMPTY_RGB = 0xFFFFFF;
+    private static final int MINE_RGB = 0x000000;
+    private static final int EXIT_RGB = 0x00FF00;
+
+    // from green for safe through yellow to red for a mine, in steps of 1%.  See through, so the tile still shows.
+    private static final Color [] CHANCE_COLORS = new Color[101];
+    static {
+        for(int i = 0; i < CHANCE_COLORS.length; i++) {
+            int rgb = Color.HSBtoRGB((100 - i) / 300f, 1, 1);
+            CHANCE_COLORS[i] = new Color(rgb & 0xFFFFFF | 0x80000000, true);
+        }
+    }
+
+    // reused by paintAggregated, which is only called from one thread at a time: the EDT or a benchmark.
+    private static BufferedImage scratch;
+
+    /// Draw the tiles of the grid that fall inside the clip of g, at the default tile size.
+    /// @param showAll if true, reveal the hidden mines, as at the end of the game.
+    public static void paint(Graphics g, Board grid, boolean showAll) {
+        paint(g, grid, showAll, GridTile.SIZE_X);
+    }
+
+    /// Draw the tiles of the grid that fall inside the clip of g.
+    /// @param showAll  if true, reveal the hidden mines, as at the end of the game.
+    /// @param tileSize the width and height of one tile in pixels.
+    public static void paint(Graphics g, Board grid, boolean showAll, int tileSize) {
+        // draw only the tiles inside the clip.  Tile borders spill one pixel into the next tile, so widen by one.
+        int x0 = 0, y0 = 0, x1 = grid.getGridWidth()-1, y1 = grid.getGridHeight()-1;
+        Rectangle clip = g.getClipBounds();
+        if(clip != null) {
+            x0 = Math.max(x0, (clip.x - 1) / tileSize);
+            y0 = Math.max(y0, (clip.y - 1) / tileSize);
+            x1 = Math.min(x1, (clip.x + clip.width) / tileSize);
+            y1 = Math.min(y1, (clip.y + clip.height) / tileSize);
+        }
+        if(x1 < x0 || y1 < y0) return;
+        if(tileSize < AGGREGATE_BELOW) {
+            paintAggregated(g,grid,showAll,tileSize,x0,y0,x1,y1);
+            return;
+        }
+        ArtCache.TileArt art = ArtCache.getInstance().getTileArt(tileSize);
+        for(int x = x0; x<= x1; ++x) {
+            for(int y = y0; y<= y1; ++y) {
+                drawOneTile(g,grid,art,x,y,showAll);
+            }
+        }
+    }
+
+    /// Shade each hidden, unflagged tile inside the clip of g by its chance of holding a mine.  Tiles with no answer are
+    /// left alone, and so is everything below [#AGGREGATE_BELOW] pixels per tile, where the shades can't be told apart.
+    public static void paintProbabilities(Graphics g, Board grid, MineProbabilities.Result chances, int tileSize) {
+        if(tileSize < AGGREGATE_BELOW) return;
+        int w = grid.getGridWidth();
+        int x0 = 0, y0 = 0, x1 = w-1, y1 = grid.getGridHeight()-1;
+        Rectangle clip = g.getClipBounds();
+        if(clip != null) {
+            x0 = Math.max(x0, clip.x / tileSize);
+            y0 = Math.max(y0, clip.y / tileSize);
+            x1 = Math.min(x1, (clip.x + clip.width) / tileSize);
+            y1 = Math.min(y1, (clip.y + clip.height) / tileSize);
+        }
+        int [] cells = chances.cells();
+        float [] probabilities = chances.probabilities();
+        for(int y = y0; y <= y1; ++y) {
+            // the tiles next to a number are in board order, so walk them along the row.
+            int k = chances.indexOf(y * w + x0);
+            for(int x = x0; x <= x1; ++x) {
+                int i = y * w + x;
+                while(k < cells.length && cells[k] < i) k++;
+                if(!grid.isHidden(x,y) || grid.isFlagged(x,y)) continue;
+                float chance = (k < cells.length && cells[k] == i) ? probabilities[k] : chances.interior();
+                if(Float.isNaN(chance)) continue;
+                g.setColor(CHANCE_COLORS[Math.round(chance * 100)]);
+                g.fillRect(x * tileSize, y * tileSize, tileSize, tileSize);
+            }
+        }
+    }
+
+    private static void drawOneTile(Graphics g, Board grid, ArtCache.TileArt art, int x, int y, boolean showAll) {
+        int size = art.size();
+
+        // draw hidden tile
+        if(grid.isHidden(x,y)) {
+            PanelHelper.drawImage(g,art.hidden(),x,y,Color.GRAY,size);
+            if(showAll) {
+                // if game over, show mines
+                if(grid.getType(x,y)==GridTile.TYPE_MINE) {
+                    PanelHelper.drawImage(g,art.mine(),x,y,Color.BLACK,size);
+                }
+            } else if(grid.isFlagged(x,y)) {
+                PanelHelper.drawImage(g,art.flag(),x,y,Color.WHITE,size);
+            }
+        } else {
+            // draw revealed tile
+            switch (grid.getType(x,y)) {
+                case GridTile.TYPE_EMPTY:
+                    PanelHelper.drawImage(g,null,x,y,Color.WHITE,size);  // empty tiles have no art
+                    // draw tile border
+                    g.setColor(Color.DARK_GRAY);
+                    g.drawRect(x * size, y * size, size, size);
+                    break;
+                case GridTile.TYPE_MINE:
+                    PanelHelper.drawImage(g,art.mine(),x,y,Color.BLACK,size);
+                    break;
+                case GridTile.TYPE_EXIT:
+                    PanelHelper.drawImage(g,art.exit(),x,y,Color.GREEN,size);
+                    break;
+            }
+        }
+    }
+
+    /// One pixel per tile, written straight into the pixels of the scratch image.
+    private static void paintAggregated(Graphics g, Board grid, boolean showAll, int tileSize,
+                                        int x0, int y0, int x1, int y1) {
+        int w = x1 - x0 + 1, h = y1 - y0 + 1;
+        if(scratch == null || scratch.getWidth() < w || scratch.getHeight() < h) {
+            int sw = Math.max(w, scratch == null ? 0 : scratch.getWidth());
+            int sh = Math.max(h, scratch == null ? 0 : scratch.getHeight());
+            scratch = new BufferedImage(sw, sh, BufferedImage.TYPE_INT_RGB);
+        }
+        int [] pixels = ((DataBufferInt) scratch.getRaster().getDataBuffer()).getData();
+        int stride = scratch.getWidth();
+        for(int y = y0; y <= y1; ++y) {
+            int row = (y - y0) * stride - x0;
+            for(int x = x0; x <= x1; ++x) {
+                pixels[row + x] = colorOf(grid, x, y, showAll);
+            }
+        }
+        g.drawImage(scratch,
+                x0 * tileSize, y0 * tileSize, (x1 + 1) * tileSize, (y1 + 1) * tileSize,
+                0, 0, w, h, null);
+    }
+
+    private static int colorOf(Board grid, int x, int y, boolean showAll) {
+        int type = grid.getType(x,y);
+        if(grid.isHidden(x,y)) {
+            if(showAll && type == GridTile.TYPE_MINE) return MINE_RGB;
+            return (!showAll && grid.isFlagged(x,y)) ? FLAG_RGB : HIDDEN_RGB;
+        }
+        return switch (type) {
+            case GridTile.TYPE_MINE -> MINE_RGB;
+            case GridTile.TYPE_EXIT -> EXIT_RGB;
+            // sensor values are left out: they only show near the sensor.
+            default -> EMPTY_RGB;
+        };
+    }
+}
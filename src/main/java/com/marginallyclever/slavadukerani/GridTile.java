@@ -1,7 +1,12 @@
 package com.marginallyclever.slavadukerani;
 
+import java.util.Objects;
+
 /// A single tile of the game board. Contains the tile's coordinates, type (empty, mine, or exit), sensor value, and
 /// whether it's hidden or flagged.
+///
+/// The tile does not own any state.  It is a lightweight view of one cell of a [Board], so it is cheap to create
+/// and always reflects the current state of the board.
 public class GridTile {
     static final int SIZE_X = 32;
     static final int SIZE_Y = 32;
@@ -11,14 +16,44 @@ public class GridTile {
     public static final int TYPE_EXIT = 2;
     public static final int TYPE_RESERVED = 3;
 
-    public int x, y;
-    public int type = TYPE_EMPTY;
-    public int sensorValue = 0;
-    public boolean hidden = true;
-    public boolean flagged = false;
+    private final Board grid;
+    public final int x, y;
 
-    public GridTile(int x, int y) {
+    GridTile(Board grid, int x, int y) {
+        this.grid = grid;
         this.x = x;
         this.y = y;
     }
+
+    public int getType() {
+        return grid.getType(x,y);
+    }
+
+    public int getSensorValue() {
+        return grid.getSensorValue(x,y);
+    }
+
+    public boolean isHidden() {
+        return grid.isHidden(x,y);
+    }
+
+    public boolean isFlagged() {
+        return grid.isFlagged(x,y);
+    }
+
+    public void setFlagged(boolean flagged) {
+        grid.setFlagged(x,y,flagged);
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (!(o instanceof GridTile other)) return false;
+        return x == other.x && y == other.y && grid == other.grid;
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(System.identityHashCode(grid), x, y);
+    }
 }
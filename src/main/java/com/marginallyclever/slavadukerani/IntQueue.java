@@ -0,0 +1,56 @@
+package com.marginallyclever.slavadukerani;
+
+import java.util.NoSuchElementException;
+
+/// A first-in-first-out queue of primitive ints backed by a growable ring buffer.  Keep one around and [#clear()] it
+/// between uses so that steady-state use allocates nothing and never boxes.
+class IntQueue {
+    private int[] buffer;
+    private int head = 0;
+    private int size = 0;
+
+    IntQueue() {
+        this(64);
+    }
+
+    IntQueue(int initialCapacity) {
+        buffer = new int[Math.max(1,initialCapacity)];
+    }
+
+    void add(int value) {
+        if(size == buffer.length) grow();
+        buffer[(head + size) % buffer.length] = value;
+        size++;
+    }
+
+    int poll() {
+        if(size == 0) throw new NoSuchElementException();
+        int value = buffer[head];
+        head = (head + 1) % buffer.length;
+        size--;
+        return value;
+    }
+
+    boolean isEmpty() {
+        return size == 0;
+    }
+
+    int size() {
+        return size;
+    }
+
+    void clear() {
+        head = 0;
+        size = 0;
+    }
+
+    private void grow() {
+        int[] bigger = new int[buffer.length * 2];
+        // unroll the ring so the oldest element is at index 0.
+        int firstPart = Math.min(size, buffer.length - head);
+        System.arraycopy(buffer, head, bigger, 0, firstPart);
+        System.arraycopy(buffer, 0, bigger, firstPart, size - firstPart);
+        buffer = bigger;
+        head = 0;
+    }
+}
@@ -0,0 +1,68 @@
+package com.marginallyclever.slavadukerani;
+
+import javax.swing.*;
+import java.io.IOException;
+import java.util.function.Consumer;
+
+/// Plays a [GameJournal] back on a [SlavaDukerani], keeping the recorded time between actions divided by the speed.
+/// The player's own input is ignored until the playback ends.
+public class JournalPlayback {
+    public static final Integer [] SPEEDS = { 1, 2, 5, 10, 25, 50, 100 };
+
+    private final SlavaDukerani game;
+    private final GameJournal.Reader reader;
+    private final int speed;
+    private final Consumer<Boolean> whenDone;
+    private final Timer timer;
+    private long lastMillis = 0;
+
+    /// @param speed    1 for real time, 100 for a hundred times faster.
+    /// @param whenDone told on the Swing thread if the final state matched the journal's checksum.
+    public JournalPlayback(SlavaDukerani game, GameJournal.Reader reader, int speed, Consumer<Boolean> whenDone) {
+        if (speed < 1) throw new IllegalArgumentException("Speed must be at least 1.");
+        this.game = game;
+        this.reader = reader;
+        this.speed = speed;
+        this.whenDone = whenDone;
+        this.timer = new Timer(0, e -> step());
+        timer.setRepeats(false);
+    }
+
+    public void start() {
+        game.setInputEnabled(false);
+        scheduleNext();
+    }
+
+    /// Stop early.  whenDone is not called.
+    public void stop() {
+        timer.stop();
+        game.setInputEnabled(true);
+    }
+
+    private void step() {
+        game.play(reader.getAction(), reader.getX(), reader.getY());
+        scheduleNext();
+    }
+
+    private void scheduleNext() {
+        boolean more;
+        try {
+            more = reader.next();
+        } catch (IOException e) {
+            System.out.println("Journal playback stopped: " + e.getMessage());
+            stop();
+            whenDone.accept(false);
+            return;
+        }
+        if (!more) {
+            stop();
+            // the last actions may still be on the game's queue.
+            game.whenIdle(() -> whenDone.accept(reader.getChecksum() == GameJournal.checksum(game.getEngine())));
+            return;
+        }
+        long delay = (reader.getMillis() - lastMillis) / speed;
+        lastMillis = reader.getMillis();
+        timer.setInitialDelay((int) Math.min(Integer.MAX_VALUE, delay));
+        timer.restart();
+    }
+}
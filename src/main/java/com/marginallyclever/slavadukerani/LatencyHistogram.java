@@ -0,0 +1,83 @@
+package com.marginallyclever.slavadukerani;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/// A fixed size histogram of durations in nanoseconds, for tail latencies.
+///
+/// Buckets are log-linear: every power of two is split into [#SUB_BUCKETS] equal parts, so any value is known to
+/// within 1/8 of itself from a few nanoseconds to centuries, in 496 counters.  Recording is one atomic increment and
+/// allocates nothing, so it is safe from any thread and cheap enough for every frame.
+public class LatencyHistogram {
+    private static final int SUB_BITS = 3;
+    private static final int SUB_BUCKETS = 1 << SUB_BITS;
+    private static final int BUCKETS = (64 - SUB_BITS + 1) * SUB_BUCKETS;
+
+    private final String name;
+    private final AtomicLongArray counts = new AtomicLongArray(BUCKETS);
+
+    public LatencyHistogram(String name) {
+        this.name = name;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public void record(long nanos) {
+        counts.incrementAndGet(bucket(Math.max(0, nanos)));
+    }
+
+    /// Record the time since start, unless start is 0.  See [PerformanceMetrics#start()].
+    public void recordSince(long start) {
+        if (start != 0) record(System.nanoTime() - start);
+    }
+
+    public void reset() {
+        for (int i = 0; i < BUCKETS; i++) counts.set(i, 0);
+    }
+
+    /// Read every count once, for a consistent set of percentiles.
+    public long [] snapshot() {
+        long [] copy = new long[BUCKETS];
+        for (int i = 0; i < BUCKETS; i++) copy[i] = counts.get(i);
+        return copy;
+    }
+
+    public static long count(long [] snapshot) {
+        long total = 0;
+        for (long c : snapshot) total += c;
+        return total;
+    }
+
+    /// @param fraction 0.5 for the median, 0.99 for the 99th percentile, 1 for the largest value.
+    /// @return the upper edge of the bucket holding that value, in nanoseconds, or 0 if nothing was recorded.
+    public static long percentile(long [] snapshot, double fraction) {
+        long total = count(snapshot);
+        if (total == 0) return 0;
+        long rank = Math.max(1, (long) Math.ceil(fraction * total));
+        long seen = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            seen += snapshot[i];
+            if (seen >= rank) return upperEdge(i);
+        }
+        return upperEdge(BUCKETS - 1);
+    }
+
+    /// Values below [#SUB_BUCKETS] get a bucket each.  Above that the top bit picks the row and the next
+    /// [#SUB_BITS] bits pick the bucket in the row.
+    private static int bucket(long value) {
+        if (value < SUB_BUCKETS) return (int) value;
+        int top = 63 - Long.numberOfLeadingZeros(value);
+        int sub = (int) (value >>> (top - SUB_BITS)) & (SUB_BUCKETS - 1);
+        return (top - SUB_BITS + 1) * SUB_BUCKETS + sub;
+    }
+
+    private static long upperEdge(int bucket) {
+        if (bucket < SUB_BUCKETS) return bucket;
+        int top = bucket / SUB_BUCKETS + SUB_BITS - 1;
+        int sub = bucket % SUB_BUCKETS;
+        if (top >= 63) return Long.MAX_VALUE;
+        long width = 1L << (top - SUB_BITS);
+        return (1L << top) + (sub + 1) * width - 1;
+    }
+}
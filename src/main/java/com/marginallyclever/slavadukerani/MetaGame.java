@@ -1,12 +1,31 @@
 package com.marginallyclever.slavadukerani;
 
 import javax.swing.*;
+import javax.swing.filechooser.FileNameExtensionFilter;
 import java.awt.*;
 import java.awt.event.ActionEvent;
 import java.awt.event.InputEvent;
 import java.awt.event.KeyEvent;
+import java.awt.event.WindowAdapter;
+import java.awt.event.WindowEvent;
+import java.io.FilterReader;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.Reader;
+import java.io.StringReader;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
 
-/// MetaGame runs multiple instances of [SlavaDukerani] and provides a UX to control them.
+/// MetaGame runs multiple instances of [SlavaDukerani] and provides a UX to control them.  It plays one board at a
+/// time, or a [Tournament] of many side by side.  In a tournament the menus and the mine count and time in the menu
+/// bar follow the board the player picked last.
 public class MetaGame extends JPanel implements FlagChangeListener, GameOverListener {
     private SlavaDukerani game = null;
     private final MetaGameSettingsPanel settingsPanel = new MetaGameSettingsPanel(20,10,30,(int)(Math.random()*1000000));
@@ -14,16 +33,42 @@ public class MetaGame extends JPanel implements FlagChangeListener, GameOverList
     private final JMenuBar menuBar = new JMenuBar();
     private final JFormattedTextField numMinesLeft = PanelHelper.addNumberFieldInt("Number of mines left", 0);
     private final JTextField timeDisplay = new JTextField("0");
+    private final JProgressBar progressBar = new JProgressBar(0, 100);
+    private Generator<?> generator;
     private final JMenuItem settingsButton = new JMenuItem("Settings");
     private final JMenuItem newGame = new JMenuItem("New Game");
     private final JMenuItem resetGame = new JMenuItem("Restart");
+    private final JMenuItem newTournament = new JMenuItem("Tournament...");
+    private Tournament tournament;
     // Add copy/paste menu items (stubs) for future implementation
     private final JMenuItem pasteBoard = new JMenuItem("Paste Board");
+    private final JMenuItem importBoard = new JMenuItem("Import Board...");
+    private final JMenuItem saveGame = new JMenuItem("Save...");
+    private final JMenuItem loadGame = new JMenuItem("Load...");
+    private final JMenuItem saveJournal = new JMenuItem("Save Journal...");
+    private final JMenuItem replayJournal = new JMenuItem("Replay Journal...");
+    private final JMenuItem undo = new JMenuItem("Undo");
+    private final JMenuItem hint = new JMenuItem("Hint");
+    private final JMenuItem zoomIn = new JMenuItem("Zoom In");
+    private final JMenuItem zoomOut = new JMenuItem("Zoom Out");
+    private final JMenuItem actualSize = new JMenuItem("Actual Size");
+    private final JCheckBoxMenuItem showMinimap = new JCheckBoxMenuItem("Minimap", true);
+    private Minimap minimap;
+    private final JCheckBoxMenuItem showProbabilities = new JCheckBoxMenuItem("Mine Probabilities");
+    private final JCheckBoxMenuItem showMetrics = new JCheckBoxMenuItem("Performance Metrics");
+    private JDialog metricsDialog;
+    private MetricsPanel metricsPanel;
+    private final JFileChooser journalChooser = new JFileChooser();
+    private JournalPlayback playback;
+    private final JFileChooser saveChooser = new JFileChooser();
+    private final JFileChooser importChooser = new JFileChooser();
     private Timer timer;
     private long seconds;
+    private long totalMines;
 
 
     public static void main( String[] args ) {
+        Startup.begin();
         frame.setDefaultCloseOperation(JFrame.EXIT_ON_CLOSE);
         frame.add(new MetaGame());
         frame.pack();
@@ -37,9 +82,34 @@ public class MetaGame extends JPanel implements FlagChangeListener, GameOverList
 
         newGame.addActionListener(e -> startNewGame());
         resetGame.addActionListener(e -> resetGame());
+        newTournament.addActionListener(e -> tournamentAction());
         settingsButton.addActionListener(e->showSettingsDialog());
         // wire copy/paste actions to empty stubs
         pasteBoard.addActionListener(e -> pasteBoardAction());
+        importBoard.addActionListener(e -> importBoardAction());
+        saveGame.addActionListener(e -> saveGameAction());
+        loadGame.addActionListener(e -> loadGameAction());
+        saveJournal.addActionListener(e -> saveJournalAction());
+        replayJournal.addActionListener(e -> replayJournalAction());
+        undo.addActionListener(e -> undoAction());
+        hint.addActionListener(e -> { if (game != null) game.hint(); });
+        zoomIn.addActionListener(e -> { if (game != null) game.zoom(1, null); });
+        zoomOut.addActionListener(e -> { if (game != null) game.zoom(-1, null); });
+        actualSize.addActionListener(e -> { if (game != null) game.setTileSize(GridTile.SIZE_X, null); });
+        showMinimap.addActionListener(e -> {
+            if (minimap != null) minimap.setVisible(showMinimap.isSelected());
+            revalidate();
+        });
+        showProbabilities.addActionListener(e -> {
+            if (tournament != null) {
+                for (SlavaDukerani each : tournament.getGames()) each.setShowProbabilities(showProbabilities.isSelected());
+            } else if (game != null) {
+                game.setShowProbabilities(showProbabilities.isSelected());
+            }
+        });
+        showMetrics.addActionListener(e -> showMetrics(showMetrics.isSelected()));
+        journalChooser.setFileFilter(new FileNameExtensionFilter("Slava Dukerani journals", GameJournal.EXTENSION));
+        saveChooser.setFileFilter(new FileNameExtensionFilter("Slava Dukerani saves", GameSnapshot.EXTENSION));
 
         startNewGame();
     }
@@ -56,34 +126,195 @@ public class MetaGame extends JPanel implements FlagChangeListener, GameOverList
         resetGame();
     }
 
+    /// Make the board in the background.  The current game can still be played meanwhile.
     private void resetGame() {
-        int totalMines = settingsPanel.getMines();
-        numMinesLeft.setValue(totalMines);
-        if (game != null) {
-            game.removeFlagChangeListener(this);
-            game.setRequestFocusEnabled(false);
+        int width = settingsPanel.getBoardWidth();
+        int height = settingsPanel.getBoardHeight();
+        long mines = settingsPanel.getMines();
+        long seed = settingsPanel.getSeed();
+        boolean chunked = settingsPanel.getChunked();
+        int exitX = settingsPanel.getExitX();
+        int exitY = settingsPanel.getExitY();
+        boolean winWhenAllSafeRevealed = settingsPanel.getWinWhenAllSafeRevealed();
+        // the no guessing search has to solve whole boards, so it is skipped for huge maps.
+        boolean noGuessing = settingsPanel.getNoGuessing() && !chunked;
+        // more than an int is only possible on a huge map.  The search turns this down as too many mines.
+        int gridMines = (int) Math.min(mines, Integer.MAX_VALUE);
+        startGenerator(new Generator<GameEngine>("Invalid settings") {
+            @Override
+            protected GameEngine doInBackground() {
+                long boardSeed = seed;
+                if (noGuessing) {
+                    int candidates = NoGuessGenerator.DEFAULT_MAX_CANDIDATES;
+                    boardSeed = NoGuessGenerator.findSolvableSeed(width, height, gridMines, seed, candidates,
+                            checked -> setProgress(checked * 100 / candidates));
+                }
+                var settings = new GameJournal.Settings(width, height, mines, boardSeed, winWhenAllSafeRevealed, chunked,
+                        exitX, exitY);
+                GameEngine engine = settings.newGame();
+                // record every action so the game can be replayed.
+                engine.setJournal(new GameJournal(settings));
+                return engine;
+            }
+
+            @Override
+            void start(GameEngine engine) {
+                startGeneratedGame(engine);
+            }
+        }, noGuessing ? "Looking for a board without guessing..." : "Making the board...");
+    }
+
+    /// Makes the [GameEngine] of a new game, or the engines of a tournament, off the Swing thread, then starts the game
+    /// on the Swing thread.  Boards that are pasted, imported, or loaded are read the same way.  Only the newest one is
+    /// started: another game starting first cancels it.
+    private abstract class Generator<T> extends SwingWorker<T, Void> {
+        private final String errorTitle;
+
+        Generator(String errorTitle) {
+            this.errorTitle = errorTitle;
         }
-        game = new SlavaDukerani(
-                settingsPanel.getBoardWidth(),
-                settingsPanel.getBoardHeight(),
-                settingsPanel.getSeed(),
-                settingsPanel.getMines());
-        startGame(game);
+
+        /// Called on the Swing thread with what [#doInBackground()] made.
+        abstract void start(T made);
+
+        @Override
+        protected void done() {
+            if (generator != this) return;
+            generator = null;
+            hideProgress();
+            T made;
+            try {
+                made = get();
+            } catch (InterruptedException | CancellationException e) {
+                return;
+            } catch (ExecutionException e) {
+                Throwable cause = e.getCause();
+                if (!(cause instanceof IllegalArgumentException || cause instanceof IllegalStateException
+                        || cause instanceof IOException)) {
+                    cause.printStackTrace();
+                }
+                JOptionPane.showMessageDialog(frame, cause.getMessage(), errorTitle, JOptionPane.ERROR_MESSAGE);
+                return;
+            }
+            start(made);
+        }
+
+        /// @return channel, reporting how much of it has been read as progress.  Reading stops once cancelled.
+        ReadableByteChannel reportProgress(FileChannel channel) throws IOException {
+            long size = Math.max(1, channel.size());
+            return new ReadableByteChannel() {
+                @Override
+                public int read(ByteBuffer buffer) throws IOException {
+                    if (isCancelled()) throw new InterruptedIOException();
+                    int n = channel.read(buffer);
+                    setProgress((int) Math.min(100, channel.position() * 100 / size));
+                    return n;
+                }
+
+                @Override
+                public boolean isOpen() {
+                    return channel.isOpen();
+                }
+
+                @Override
+                public void close() throws IOException {
+                    channel.close();
+                }
+            };
+        }
+
+        /// @return a reader of text, reporting how much of it has been read as progress.  Reading stops once cancelled.
+        Reader reportProgress(String text) {
+            long size = Math.max(1, text.length());
+            return new FilterReader(new StringReader(text)) {
+                private long read = 0;
+
+                @Override
+                public int read(char [] buffer, int offset, int length) throws IOException {
+                    if (isCancelled()) throw new InterruptedIOException();
+                    int n = super.read(buffer, offset, length);
+                    if (n > 0) read += n;
+                    setProgress((int) Math.min(100, read * 100 / size));
+                    return n;
+                }
+            };
+        }
+    }
+
+    /// Run a [Generator], cancelling any other, and show its progress in the menu bar.
+    private void startGenerator(Generator<?> next, String message) {
+        cancelGeneration();
+        generator = next;
+        progressBar.setString(message);
+        progressBar.setIndeterminate(true);
+        progressBar.setValue(0);
+        progressBar.setVisible(true);
+        menuBar.revalidate();
+        next.addPropertyChangeListener(e -> {
+            if (generator == next && "progress".equals(e.getPropertyName())) {
+                progressBar.setIndeterminate(false);
+                progressBar.setValue((Integer) e.getNewValue());
+            }
+        });
+        next.execute();
+    }
+
+    private void cancelGeneration() {
+        if (generator == null) return;
+        generator.cancel(true);
+        generator = null;
+        hideProgress();
+    }
+
+    private void hideProgress() {
+        progressBar.setVisible(false);
+        menuBar.revalidate();
+    }
+
+    /// Start a game made from [GameJournal.Settings], either new or replayed.
+    private void startGeneratedGame(GameEngine engine) {
+        totalMines = engine.getBoard().getNumMines();
+        numMinesLeft.setValue(totalMines);
+        startGame(new SlavaDukerani(engine));
     }
 
     private void startGame(SlavaDukerani game) {
+        startGame(game, 0);
+    }
+
+    /// @param seconds the time already spent on this game.
+    private void startGame(SlavaDukerani game, long seconds) {
+        // a board still being made would replace this one when it is done.
+        cancelGeneration();
+        leaveGame(game);
+        this.game = game;
+        GameEngine engine = game.getEngine();
+        if (engine.getUndoHistory() == null) {
+            engine.setUndoHistory(new UndoHistory(settingsPanel.getUndoBudget()));
+        }
         removeAll();
         var pane = new JScrollPane(game);
         Dimension max = getSingleScreenSize(0.9f);
         pane.setMaximumSize(max);
         add(pane, BorderLayout.CENTER);
+
+        minimap = new Minimap(game);
+        minimap.setVisible(showMinimap.isSelected());
+        game.addBoardChangeListener(minimap);
+        game.setShowProbabilities(showProbabilities.isSelected());
+        // keep the view rectangle on the minimap in step with scrolling and zooming.
+        pane.getViewport().addChangeListener(e -> minimap.repaint());
+        JPanel side = new JPanel(new BorderLayout());
+        side.add(minimap, BorderLayout.NORTH);
+        add(side, BorderLayout.EAST);
         frame.pack();
         frame.setLocationRelativeTo(null);
         revalidate();
 
         game.addFlagChangeListener(this);
         game.addGameOverListener(this);
-        startNewTimer();
+        enableAnalysis();
+        startNewTimer(seconds);
 
         game.setFocusable(true);
         // set focus on the game.
@@ -96,7 +327,138 @@ public class MetaGame extends JPanel implements FlagChangeListener, GameOverList
             }
         });
 
+        if (!game.getEngine().isGameOver()) {
+            timer.start();
+        }
+    }
+
+    /// Stop the game or tournament being played, unless next is the game being played.
+    private void leaveGame(SlavaDukerani next) {
+        if (tournament != null) {
+            tournament.stop();
+            tournament = null;
+        }
+        if (this.game != null && this.game != next) {
+            this.game.removeFlagChangeListener(this);
+            this.game.removeGameOverListener(this);
+            this.game.setRequestFocusEnabled(false);
+            this.game.stopActions();
+        }
+        if (playback != null) {
+            playback.stop();
+            playback = null;
+        }
+    }
+
+    /// Ask how many boards to play, then make them in the background from the current settings.
+    private void tournamentAction() {
+        var count = new JSpinner(new SpinnerNumberModel(16, 2, Tournament.MAX_BOARDS, 1));
+        var sameBoard = new JCheckBox();
+        sameBoard.setToolTipText("Every board has the same mines, or each has its own seed.");
+        JPanel panel = new JPanel(new GridLayout(0, 2, 5, 5));
+        panel.add(new JLabel("Boards"));
+        panel.add(count);
+        panel.add(new JLabel("Same board for everyone"));
+        panel.add(sameBoard);
+        int result = JOptionPane.showConfirmDialog(frame, panel, "Tournament", JOptionPane.OK_CANCEL_OPTION);
+        if (result != JOptionPane.OK_OPTION) return;
+
+        int boards = (Integer) count.getValue();
+        boolean same = sameBoard.isSelected();
+        settingsPanel.newSeed();
+        int width = settingsPanel.getBoardWidth();
+        int height = settingsPanel.getBoardHeight();
+        long mines = settingsPanel.getMines();
+        long seed = settingsPanel.getSeed();
+        boolean chunked = settingsPanel.getChunked();
+        int exitX = settingsPanel.getExitX();
+        int exitY = settingsPanel.getExitY();
+        boolean winWhenAllSafeRevealed = settingsPanel.getWinWhenAllSafeRevealed();
+        boolean noGuessing = settingsPanel.getNoGuessing() && !chunked;
+        // more than an int is only possible on a huge map.  The search turns this down as too many mines.
+        int gridMines = (int) Math.min(mines, Integer.MAX_VALUE);
+        // the boards share the memory one game would have for undo.
+        long undoBudget = settingsPanel.getUndoBudget() / boards;
+        startGenerator(new Generator<List<GameEngine>>("Invalid settings") {
+            @Override
+            protected List<GameEngine> doInBackground() {
+                List<GameEngine> engines = new ArrayList<>();
+                int candidates = NoGuessGenerator.DEFAULT_MAX_CANDIDATES;
+                // one search per different board: everyone playing the same board shares the first one's result.
+                int searches = same ? 1 : boards;
+                long boardSeed = seed;
+                for (int i = 0; i < boards; i++) {
+                    if (i < searches) {
+                        boardSeed = seed + i;
+                        if (noGuessing) {
+                            int done = i;
+                            boardSeed = NoGuessGenerator.findSolvableSeed(width, height, gridMines, boardSeed, candidates,
+                                    checked -> setProgress((done * candidates + checked) * 100 / (searches * candidates)));
+                        }
+                    }
+                    if (!noGuessing) setProgress(i * 100 / boards);
+                    var settings = new GameJournal.Settings(width, height, mines, boardSeed, winWhenAllSafeRevealed,
+                            chunked, exitX, exitY);
+                    GameEngine engine = settings.newGame();
+                    engine.setJournal(new GameJournal(settings));
+                    engine.setUndoHistory(new UndoHistory(undoBudget));
+                    engines.add(engine);
+                }
+                return engines;
+            }
+
+            @Override
+            void start(List<GameEngine> engines) {
+                startTournament(engines);
+            }
+        }, noGuessing ? "Looking for boards without guessing..." : "Making the boards...");
+    }
+
+    private void startTournament(List<GameEngine> engines) {
+        cancelGeneration();
+        leaveGame(null);
+        game = null;
+        removeAll();
+        minimap = null;
+        tournament = new Tournament(engines, getSingleScreenSize(0.85f), this::watch);
+        for (SlavaDukerani each : tournament.getGames()) each.setShowProbabilities(showProbabilities.isSelected());
+        var pane = new JScrollPane(tournament);
+        pane.setMaximumSize(getSingleScreenSize(0.9f));
+        add(pane, BorderLayout.CENTER);
+        frame.pack();
+        frame.setLocationRelativeTo(null);
+        revalidate();
+
+        startNewTimer(0);
         timer.start();
+        SlavaDukerani first = tournament.getFocused();
+        SwingUtilities.invokeLater(() -> {
+            if (!first.requestFocusInWindow()) first.requestFocus();
+        });
+    }
+
+    /// Follow the tournament board the player picked: the menus act on it, and the menu bar shows its mines and time.
+    private void watch(SlavaDukerani next) {
+        if (game != null) {
+            game.removeFlagChangeListener(this);
+            game.removeGameOverListener(this);
+        }
+        game = next;
+        game.addFlagChangeListener(this);
+        game.addGameOverListener(this);
+        enableAnalysis();
+        Board board = next.getEngine().getBoard();
+        totalMines = board.getNumMines();
+        numMinesLeft.setValue(totalMines - board.getFlagCount());
+        // called while the tournament is being made, before it can be asked.
+        seconds = (tournament == null) ? 0 : tournament.getSeconds(next);
+        showTime();
+    }
+
+    /// Hints and mine probabilities need a [Grid], so they are greyed out on huge maps.
+    private void enableAnalysis() {
+        hint.setEnabled(game.canAnalyze());
+        showProbabilities.setEnabled(game.canAnalyze());
     }
 
     private Dimension getSingleScreenSize(float scale) {
@@ -112,26 +474,32 @@ public class MetaGame extends JPanel implements FlagChangeListener, GameOverList
         return new Dimension(800, 600);
     }
 
-    private void startNewTimer() {
+    private void startNewTimer(long startSeconds) {
         // stop any existing timer to avoid multiple timers running concurrently
         if (timer != null) {
             timer.stop();
         }
-        seconds = 0;
+        seconds = startSeconds;
+        showTime();
         timer = new Timer(1000, e -> {
             //System.out.println(seconds%2==0?"tick":"tock");
-            seconds++;
-            long h = seconds / 3600;
-            long m = (seconds % 3600) / 60;
-            long s = seconds % 60;
-            StringBuilder sb = new StringBuilder();
-            if(h>0) sb.append(String.format("%02d",h)).append(":");
-            if(h>0||m>0) sb.append(String.format("%02d",m)).append(":");
-            sb.append(String.format("%02d",s));
-            timeDisplay.setText(sb.toString());
+            // each board of a tournament keeps its own time.
+            seconds = (tournament == null) ? seconds + 1 : tournament.getSeconds(game);
+            showTime();
         });
     }
 
+    private void showTime() {
+        long h = seconds / 3600;
+        long m = (seconds % 3600) / 60;
+        long s = seconds % 60;
+        StringBuilder sb = new StringBuilder();
+        if(h>0) sb.append(String.format("%02d",h)).append(":");
+        if(h>0||m>0) sb.append(String.format("%02d",m)).append(":");
+        sb.append(String.format("%02d",s));
+        timeDisplay.setText(sb.toString());
+    }
+
     private void initMenuBar() {
         frame.setJMenuBar(menuBar);
         JMenu menu = new JMenu("Game");
@@ -141,9 +509,18 @@ public class MetaGame extends JPanel implements FlagChangeListener, GameOverList
         newGame.setAccelerator(KeyStroke.getKeyStroke(KeyEvent.VK_N, InputEvent.CTRL_DOWN_MASK));
         menu.add(resetGame);
         resetGame.setAccelerator(KeyStroke.getKeyStroke(KeyEvent.VK_R, InputEvent.CTRL_DOWN_MASK));
+        menu.add(newTournament);
         // add Copy/Paste menu items (stubs)
         menu.add(pasteBoard);
         pasteBoard.setAccelerator(KeyStroke.getKeyStroke(KeyEvent.VK_V, InputEvent.CTRL_DOWN_MASK));
+        menu.add(importBoard);
+        importBoard.setAccelerator(KeyStroke.getKeyStroke(KeyEvent.VK_I, InputEvent.CTRL_DOWN_MASK));
+        menu.add(saveGame);
+        saveGame.setAccelerator(KeyStroke.getKeyStroke(KeyEvent.VK_S, InputEvent.CTRL_DOWN_MASK));
+        menu.add(loadGame);
+        loadGame.setAccelerator(KeyStroke.getKeyStroke(KeyEvent.VK_O, InputEvent.CTRL_DOWN_MASK));
+        menu.add(saveJournal);
+        menu.add(replayJournal);
 
         menu.add(new JSeparator());
         var exitItem = new JMenuItem(new AbstractAction("Exit") {
@@ -155,6 +532,25 @@ public class MetaGame extends JPanel implements FlagChangeListener, GameOverList
         menu.add(exitItem);
         exitItem.setAccelerator(KeyStroke.getKeyStroke(KeyEvent.VK_Q, InputEvent.CTRL_DOWN_MASK));
 
+        menu = new JMenu("Edit");
+        menuBar.add(menu);
+        menu.add(undo);
+        undo.setAccelerator(KeyStroke.getKeyStroke(KeyEvent.VK_Z, InputEvent.CTRL_DOWN_MASK));
+        menu.add(hint);
+        hint.setAccelerator(KeyStroke.getKeyStroke(KeyEvent.VK_H, 0));
+
+        menu = new JMenu("View");
+        menuBar.add(menu);
+        menu.add(zoomIn);
+        zoomIn.setAccelerator(KeyStroke.getKeyStroke(KeyEvent.VK_EQUALS, InputEvent.CTRL_DOWN_MASK));
+        menu.add(zoomOut);
+        zoomOut.setAccelerator(KeyStroke.getKeyStroke(KeyEvent.VK_MINUS, InputEvent.CTRL_DOWN_MASK));
+        menu.add(actualSize);
+        actualSize.setAccelerator(KeyStroke.getKeyStroke(KeyEvent.VK_0, InputEvent.CTRL_DOWN_MASK));
+        menu.add(showMinimap);
+        menu.add(showProbabilities);
+        showProbabilities.setAccelerator(KeyStroke.getKeyStroke(KeyEvent.VK_P, InputEvent.CTRL_DOWN_MASK));
+
         menu = new JMenu("Help");
         menuBar.add(menu);
         menu.add(new AbstractAction("Website") {
@@ -178,12 +574,18 @@ public class MetaGame extends JPanel implements FlagChangeListener, GameOverList
                                 "WASD/Arrow keys to move and push your sensor equipment.\n" +
                                 "Q/Mouse left click to reveal hidden tiles.\n" +
                                 "E/Mouse right click to flag/unflag mines.\n" +
+                                "H for a hint.\n" +
                                 "Reach the bottom right corner to win."
                         );
 
             }
         });
+        menu.add(showMetrics);
 
+        progressBar.setStringPainted(true);
+        progressBar.setVisible(false);
+        progressBar.setToolTipText("New Game or Restart starts over.");
+        menuBar.add(progressBar);
         menuBar.add(numMinesLeft);
         menuBar.add(timeDisplay);
         numMinesLeft.setEditable(false);
@@ -198,23 +600,209 @@ public class MetaGame extends JPanel implements FlagChangeListener, GameOverList
 
     @Override
     public void flagCountChanged(int flagCount) {
-        numMinesLeft.setValue(settingsPanel.getMines()- flagCount);
+        numMinesLeft.setValue(totalMines - flagCount);
     }
 
     @Override
     public void gameOver(boolean won) {
-        timer.stop();
+        // the other boards of a tournament are still being played.
+        if (tournament == null) timer.stop();
     }
 
-    // Stub for paste action; to be implemented later.
+    /// Undoing the action that ended the game starts the clock again.
+    @Override
+    public void gameResumed() {
+        if (!timer.isRunning()) timer.start();
+    }
+
+    /// Read a board from the clipboard and parse it in the background.
     private void pasteBoardAction() {
-        // read clipboard to String
+        String clipboard;
         try {
-            String clipboard = (String) Toolkit.getDefaultToolkit().getSystemClipboard().getData(java.awt.datatransfer.DataFlavor.stringFlavor);
-            // attempt to parse clipboard as a board and start a new game with it
-            startGame(new SlavaDukerani(clipboard));
+            clipboard = (String) Toolkit.getDefaultToolkit().getSystemClipboard().getData(java.awt.datatransfer.DataFlavor.stringFlavor);
         } catch (Exception e) {
             JOptionPane.showMessageDialog(frame, "Failed to parse board from clipboard. Please ensure the clipboard contains a valid board string.", "Error", JOptionPane.ERROR_MESSAGE);
+            return;
         }
+        startGenerator(new Generator<Grid>("Failed to parse board from clipboard") {
+            @Override
+            protected Grid doInBackground() throws IOException {
+                return BoardParser.parse(reportProgress(clipboard));
+            }
+
+            @Override
+            void start(Grid grid) {
+                startImportedGame(grid);
+            }
+        }, "Reading the board...");
+    }
+
+    /// Read a challenge map from a text file, in the same format as Paste Board.
+    private void importBoardAction() {
+        if (importChooser.showOpenDialog(frame) != JFileChooser.APPROVE_OPTION) return;
+        Path path = importChooser.getSelectedFile().toPath();
+        startGenerator(new Generator<Grid>("Failed to import board") {
+            @Override
+            protected Grid doInBackground() throws IOException {
+                try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+                    return BoardParser.parse(reportProgress(channel));
+                }
+            }
+
+            @Override
+            void start(Grid grid) {
+                startImportedGame(grid);
+            }
+        }, "Reading the board...");
+    }
+
+    private void startImportedGame(Grid grid) {
+        var imported = new SlavaDukerani(new GameEngine(grid));
+        totalMines = grid.getNumMines();
+        numMinesLeft.setValue(totalMines);
+        imported.setWinWhenAllSafeRevealed(settingsPanel.getWinWhenAllSafeRevealed());
+        startGame(imported);
+    }
+
+    private void saveGameAction() {
+        if (game == null) return;
+        if (saveChooser.showSaveDialog(frame) != JFileChooser.APPROVE_OPTION) return;
+        Path path = saveChooser.getSelectedFile().toPath();
+        if (!path.getFileName().toString().endsWith("." + GameSnapshot.EXTENSION)) {
+            path = path.resolveSibling(path.getFileName() + "." + GameSnapshot.EXTENSION);
+        }
+        Path savePath = path;
+        SlavaDukerani saving = game;
+        // save after the actions already asked for, and before any that come later.
+        saving.whenIdle(() -> {
+            setCursor(Cursor.getPredefinedCursor(Cursor.WAIT_CURSOR));
+            try {
+                GameSnapshot.save(saving.getEngine(), seconds, savePath);
+            } catch (IOException | IllegalArgumentException e) {
+                JOptionPane.showMessageDialog(frame, "Failed to save: " + e.getMessage(), "Error", JOptionPane.ERROR_MESSAGE);
+            } finally {
+                setCursor(Cursor.getDefaultCursor());
+            }
+        });
+    }
+
+    private void loadGameAction() {
+        if (saveChooser.showOpenDialog(frame) != JFileChooser.APPROVE_OPTION) return;
+        Path path = saveChooser.getSelectedFile().toPath();
+        startGenerator(new Generator<GameSnapshot.Loaded>("Failed to load") {
+            @Override
+            protected GameSnapshot.Loaded doInBackground() throws IOException {
+                return GameSnapshot.load(path);
+            }
+
+            @Override
+            void start(GameSnapshot.Loaded loaded) {
+                Board board = loaded.engine().getBoard();
+                totalMines = board.getNumMines();
+                numMinesLeft.setValue(totalMines - board.getFlagCount());
+                startGame(new SlavaDukerani(loaded.engine()), loaded.elapsedSeconds());
+            }
+        }, "Loading the game...");
+    }
+
+    /// Take back the last action.  See [#gameResumed()].
+    private void undoAction() {
+        if (game != null) game.undo();
+    }
+
+    /// Open or close the [MetricsPanel].  Metrics are only collected while it is open.
+    private void showMetrics(boolean show) {
+        if (!show) {
+            closeMetrics();
+            return;
+        }
+        if (metricsDialog == null) {
+            metricsDialog = new JDialog(frame, "Performance Metrics", false);
+            // a recording still running is offered for saving first.
+            metricsDialog.setDefaultCloseOperation(WindowConstants.DO_NOTHING_ON_CLOSE);
+            metricsPanel = new MetricsPanel();
+            metricsDialog.add(metricsPanel);
+            metricsDialog.addWindowListener(new WindowAdapter() {
+                @Override
+                public void windowClosing(WindowEvent e) {
+                    closeMetrics();
+                }
+
+                @Override
+                public void windowClosed(WindowEvent e) {
+                    showMetrics.setSelected(false);
+                }
+            });
+            metricsDialog.pack();
+            metricsDialog.setLocationRelativeTo(frame);
+        }
+        metricsDialog.setVisible(true);
+    }
+
+    private void closeMetrics() {
+        if (metricsDialog == null) return;
+        if (metricsPanel.confirmClose()) {
+            metricsDialog.dispose();
+        } else {
+            showMetrics.setSelected(true);
+        }
+    }
+
+    private void saveJournalAction() {
+        GameJournal journal = (game == null) ? null : game.getEngine().getJournal();
+        if (journal == null) {
+            JOptionPane.showMessageDialog(frame, "Only games made from the settings are recorded.", "No journal", JOptionPane.INFORMATION_MESSAGE);
+            return;
+        }
+        if (journalChooser.showSaveDialog(frame) != JFileChooser.APPROVE_OPTION) return;
+        Path path = journalChooser.getSelectedFile().toPath();
+        if (!path.getFileName().toString().endsWith("." + GameJournal.EXTENSION)) {
+            path = path.resolveSibling(path.getFileName() + "." + GameJournal.EXTENSION);
+        }
+        Path savePath = path;
+        SlavaDukerani saving = game;
+        saving.whenIdle(() -> {
+            try {
+                journal.save(savePath, saving.getEngine());
+            } catch (IOException e) {
+                JOptionPane.showMessageDialog(frame, "Failed to save journal: " + e.getMessage(), "Error", JOptionPane.ERROR_MESSAGE);
+            }
+        });
+    }
+
+    private void replayJournalAction() {
+        if (journalChooser.showOpenDialog(frame) != JFileChooser.APPROVE_OPTION) return;
+        GameJournal.Reader reader;
+        try {
+            reader = new GameJournal.Reader(journalChooser.getSelectedFile().toPath());
+        } catch (IOException | IllegalArgumentException e) {
+            JOptionPane.showMessageDialog(frame, "Failed to read journal: " + e.getMessage(), "Error", JOptionPane.ERROR_MESSAGE);
+            return;
+        }
+        Integer speed = (Integer) JOptionPane.showInputDialog(frame, "Playback speed (times real time)", "Replay Journal",
+                JOptionPane.QUESTION_MESSAGE, null, JournalPlayback.SPEEDS, JournalPlayback.SPEEDS[0]);
+        if (speed == null) return;
+
+        startGenerator(new Generator<GameEngine>("Failed to read journal") {
+            @Override
+            protected GameEngine doInBackground() {
+                GameEngine engine = reader.getSettings().newGame();
+                // the journal only holds undos that worked, so never forget what it might take back.
+                engine.setUndoHistory(new UndoHistory(Long.MAX_VALUE));
+                return engine;
+            }
+
+            @Override
+            void start(GameEngine engine) {
+                startGeneratedGame(engine);
+                playback = new JournalPlayback(game, reader, speed, verified -> {
+                    playback = null;
+                    JOptionPane.showMessageDialog(frame,
+                            verified ? "Replay finished.  The final state matches the journal." : "Replay finished, but the final state does NOT match the journal.",
+                            "Replay Journal", verified ? JOptionPane.INFORMATION_MESSAGE : JOptionPane.WARNING_MESSAGE);
+                });
+                playback.start();
+            }
+        }, "Making the board...");
     }
 }
@@ -9,6 +9,12 @@ public class MetaGameSettingsPanel extends JPanel {
     private final JFormattedTextField heightField;
     private final JFormattedTextField minesField;
     private final JFormattedTextField seedField;
+    private final JFormattedTextField undoField;
+    private final JFormattedTextField exitXField;
+    private final JFormattedTextField exitYField;
+    private final JCheckBox clearToWinBox = new JCheckBox();
+    private final JCheckBox noGuessingBox = new JCheckBox();
+    private final JCheckBox chunkedBox = new JCheckBox();
 
     public static void main(String[] args) {
         JFrame frame = new JFrame("MetaGameSettingsPanel");
@@ -22,10 +28,14 @@ public class MetaGameSettingsPanel extends JPanel {
     public MetaGameSettingsPanel(int width,int height,int mines,int seed) {
         super(new GridLayout(0, 2,5,5));
 
-        minesField = PanelHelper.addNumberFieldInt("Number of mines", mines);
+        minesField = PanelHelper.addNumberFieldLong("Number of mines.  On a huge map, the number expected on average.", mines);
         widthField = PanelHelper.addNumberFieldInt("Width", width);
         seedField = PanelHelper.addNumberFieldInt("Map Seed", seed);
         heightField = PanelHelper.addNumberFieldInt("Height", height);
+        undoField = PanelHelper.addNumberFieldInt("Undo memory", (int)(UndoHistory.DEFAULT_BUDGET_BYTES >> 20));
+        String exitTip = "Huge maps only.  Negative values count back from the right or bottom edge, so -1 is the last.";
+        exitXField = PanelHelper.addNumberField(exitTip, -1, PanelHelper.getNumberFormatterInt(-ChunkedBoard.MAX_SIDE));
+        exitYField = PanelHelper.addNumberField(exitTip, -1, PanelHelper.getNumberFormatterInt(-ChunkedBoard.MAX_SIDE));
 
         add(new JLabel("Width"));
         add(widthField);
@@ -35,6 +45,24 @@ public class MetaGameSettingsPanel extends JPanel {
         add(minesField);
         add(new JLabel("Seed"));
         add(seedField);
+        clearToWinBox.setToolTipText("Also win by revealing every tile that is not a mine.");
+        add(new JLabel("Win by clearing"));
+        add(clearToWinBox);
+        noGuessingBox.setToolTipText("Only make boards that can be solved from the start to the exit by logic alone.");
+        add(new JLabel("No guessing"));
+        add(noGuessingBox);
+        chunkedBox.setToolTipText("Make the map a piece at a time as it is explored, for maps too big to fit in memory.");
+        add(new JLabel("Huge map"));
+        add(chunkedBox);
+        add(new JLabel("Exit column"));
+        add(exitXField);
+        add(new JLabel("Exit row"));
+        add(exitYField);
+        chunkedBox.addItemListener(e -> enableExit());
+        enableExit();
+        undoField.setToolTipText("The most memory, in MB, kept for undo.  The oldest moves are forgotten first.");
+        add(new JLabel("Undo memory (MB)"));
+        add(undoField);
     }
 
     // NOTE: do NOT override Component.getWidth()/getHeight().
@@ -47,14 +75,54 @@ public class MetaGameSettingsPanel extends JPanel {
         return ((Number)heightField.getValue()).intValue();
     }
 
-    public int getMines() {
-        return ((Number)minesField.getValue()).intValue();
+    /// @return the number of mines.  On a huge map, the number expected on average.
+    public long getMines() {
+        return ((Number)minesField.getValue()).longValue();
     }
 
     public int getSeed() {
         return ((Number)seedField.getValue()).intValue();
     }
 
+    public boolean getWinWhenAllSafeRevealed() {
+        return clearToWinBox.isSelected();
+    }
+
+    public boolean getNoGuessing() {
+        return noGuessingBox.isSelected();
+    }
+
+    /// @return true to build a [ChunkedBoard] instead of a [Grid].
+    public boolean getChunked() {
+        return chunkedBox.isSelected();
+    }
+
+    /// @return the column of the exit.  Only huge maps can move it from the bottom right corner.
+    public int getExitX() {
+        return getExit(exitXField, getBoardWidth());
+    }
+
+    /// @return the row of the exit.  Only huge maps can move it from the bottom right corner.
+    public int getExitY() {
+        return getExit(exitYField, getBoardHeight());
+    }
+
+    private int getExit(JFormattedTextField field, int side) {
+        if (!getChunked()) return side - 1;
+        int value = ((Number)field.getValue()).intValue();
+        return value < 0 ? side + value : value;
+    }
+
+    private void enableExit() {
+        exitXField.setEnabled(chunkedBox.isSelected());
+        exitYField.setEnabled(chunkedBox.isSelected());
+    }
+
+    /// @return the memory budget of [UndoHistory], in bytes.
+    public long getUndoBudget() {
+        return Math.max(0, ((Number)undoField.getValue()).longValue()) << 20;
+    }
+
     public int newSeed() {
         int s = (int)(Math.random()*1000000);
         seedField.setValue(s);
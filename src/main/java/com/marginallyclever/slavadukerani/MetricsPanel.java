@@ -0,0 +1,168 @@
+package com.marginallyclever.slavadukerani;
+
+import jdk.jfr.Configuration;
+import jdk.jfr.Recording;
+
+import javax.swing.*;
+import javax.swing.filechooser.FileNameExtensionFilter;
+import javax.swing.table.AbstractTableModel;
+import java.awt.*;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.text.ParseException;
+
+/// Shows the [PerformanceMetrics] histograms as percentiles, refreshed once a second while visible, and can start
+/// and save a flight recording of the [GameEvents] so players can send one in with a bug report.
+public class MetricsPanel extends JPanel {
+    private static final String [] COLUMNS = { "Metric", "Count", "p50 ms", "p90 ms", "p99 ms", "p99.9 ms", "Max ms" };
+    private static final double [] FRACTIONS = { 0.5, 0.9, 0.99, 0.999, 1.0 };
+
+    private final Object [][] rows = new Object[PerformanceMetrics.ALL.size()][COLUMNS.length];
+    private final AbstractTableModel model = new AbstractTableModel() {
+        @Override
+        public int getRowCount() {
+            return rows.length;
+        }
+
+        @Override
+        public int getColumnCount() {
+            return COLUMNS.length;
+        }
+
+        @Override
+        public String getColumnName(int column) {
+            return COLUMNS[column];
+        }
+
+        @Override
+        public Object getValueAt(int row, int column) {
+            return rows[row][column];
+        }
+    };
+    private final Timer refresh = new Timer(1000, e -> refresh());
+    private final JButton recordButton = new JButton("Start Recording");
+    private Recording recording;
+
+    public static void main(String[] args) {
+        JFrame frame = new JFrame("MetricsPanel");
+        frame.setDefaultCloseOperation(JFrame.EXIT_ON_CLOSE);
+        frame.add(new MetricsPanel());
+        frame.pack();
+        frame.setLocationRelativeTo(null);
+        frame.setVisible(true);
+    }
+
+    public MetricsPanel() {
+        super(new BorderLayout(5, 5));
+        JTable table = new JTable(model);
+        table.setPreferredScrollableViewportSize(new Dimension(560, table.getRowHeight() * rows.length));
+        add(new JScrollPane(table), BorderLayout.CENTER);
+
+        JButton resetButton = new JButton("Reset");
+        resetButton.addActionListener(e -> {
+            PerformanceMetrics.resetAll();
+            refresh();
+        });
+        recordButton.setToolTipText("Record the game's Flight Recorder events, then save them to a .jfr file.");
+        recordButton.addActionListener(e -> toggleRecording());
+        JPanel buttons = new JPanel(new FlowLayout(FlowLayout.RIGHT));
+        buttons.add(resetButton);
+        buttons.add(recordButton);
+        add(buttons, BorderLayout.SOUTH);
+        refresh();
+    }
+
+    /// Metrics are only collected while the panel is on screen.
+    @Override
+    public void addNotify() {
+        super.addNotify();
+        PerformanceMetrics.setEnabled(true);
+        refresh.start();
+    }
+
+    @Override
+    public void removeNotify() {
+        refresh.stop();
+        PerformanceMetrics.setEnabled(false);
+        // only still recording if the window went away without asking [#confirmClose()].
+        if (recording != null) discardRecording();
+        super.removeNotify();
+    }
+
+    /// Call before closing the panel.  If a recording is running, ask whether to save it.
+    /// @return false if the player would rather keep the panel open.
+    public boolean confirmClose() {
+        if (recording == null) return true;
+        int choice = JOptionPane.showConfirmDialog(this, "A recording is still running.  Save it before closing?",
+                "Performance Metrics", JOptionPane.YES_NO_CANCEL_OPTION, JOptionPane.WARNING_MESSAGE);
+        if (choice == JOptionPane.YES_OPTION) {
+            stopAndSaveRecording();
+        } else if (choice == JOptionPane.NO_OPTION) {
+            discardRecording();
+        }
+        return recording == null;
+    }
+
+    private void refresh() {
+        for (int r = 0; r < rows.length; r++) {
+            LatencyHistogram histogram = PerformanceMetrics.ALL.get(r);
+            long [] snapshot = histogram.snapshot();
+            rows[r][0] = histogram.getName();
+            rows[r][1] = LatencyHistogram.count(snapshot);
+            for (int i = 0; i < FRACTIONS.length; i++) {
+                rows[r][2 + i] = String.format("%.3f", LatencyHistogram.percentile(snapshot, FRACTIONS[i]) / 1e6);
+            }
+        }
+        model.fireTableDataChanged();
+    }
+
+    private void toggleRecording() {
+        if (recording == null) {
+            try {
+                recording = new Recording(Configuration.getConfiguration("default"));
+            } catch (IOException | ParseException e) {
+                JOptionPane.showMessageDialog(this, "Failed to start recording: " + e.getMessage(), "Error", JOptionPane.ERROR_MESSAGE);
+                return;
+            }
+            recording.setName("Slava Dukerani");
+            recording.enable(GameEvents.GridCreated.class).withoutThreshold();
+            recording.enable(GameEvents.Reveal.class).withoutThreshold();
+            recording.enable(GameEvents.Frame.class).withoutThreshold();
+            recording.enable(GameEvents.InputLatency.class).withoutThreshold();
+            // committed once, at the first frame, so only a recording started before that frame has one.
+            recording.enable(GameEvents.FirstFrame.class);
+            recording.start();
+            recordButton.setText("Stop and Save...");
+            return;
+        }
+        stopAndSaveRecording();
+    }
+
+    private void discardRecording() {
+        recording.stop();
+        recording.close();
+        recording = null;
+        recordButton.setText("Start Recording");
+    }
+
+    /// Stop recording and ask where to save it.  Cancelling the file chooser throws the recording away.
+    private void stopAndSaveRecording() {
+        recording.stop();
+        JFileChooser chooser = new JFileChooser();
+        chooser.setFileFilter(new FileNameExtensionFilter("Flight recordings", "jfr"));
+        if (chooser.showSaveDialog(this) == JFileChooser.APPROVE_OPTION) {
+            Path path = chooser.getSelectedFile().toPath();
+            if (!path.getFileName().toString().endsWith(".jfr")) {
+                path = path.resolveSibling(path.getFileName() + ".jfr");
+            }
+            try {
+                recording.dump(path);
+            } catch (IOException e) {
+                JOptionPane.showMessageDialog(this, "Failed to save recording: " + e.getMessage(), "Error", JOptionPane.ERROR_MESSAGE);
+            }
+        }
+        recording.close();
+        recording = null;
+        recordButton.setText("Start Recording");
+    }
+}
@@ -0,0 +1,751 @@
+package com.marginallyclever.slavadukerani;
+
+import javax.swing.*;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Consumer;
+
+/// Works out the chance that each hidden tile of a [Grid] holds a mine, from the numbers the player can see, the flags,
+/// and the number of mines on the board.  Numbers only show within [GameEngine#SENSOR_RANGE] of the sensor, so only
+/// those are used.  A revealed tile out of range only says that it is safe.  Unlike [FrontierIndex], flags are taken
+/// as mines, so a wrong flag can leave a group of tiles with no answer.
+///
+/// The hidden tiles next to a number in view are split into components: tiles that share a number are in the same
+/// component.  Each component is counted on its own, in parallel.  A forward and a backward pass over its tiles keep,
+/// for each way the numbers still open could be filled so far, the number of ways to get there by mine count.  That
+/// counts every layout without listing them, and it is exact up to [#MAX_EXACT_CELLS] tiles.  Bigger components are
+/// counted with each mine weighted by the odds of the rest of the board instead.
+///
+/// The components are then weighted by how many ways the hidden tiles away from any number can hold the mines left
+/// over.  That weighting is exact while the components hold at most [#MAX_EXACT_FRONTIER] tiles in all.  Past that,
+/// one mine density is found for the whole board such that the expected number of mines matches.
+///
+/// [#capture(Grid)] takes what is needed from the grid on the thread that changes it.  The counting then runs on this
+/// object's own thread.  Components that are the same as last time, tile for tile and number for number, are not
+/// counted again, so only what a reveal changed is recounted.
+public class MineProbabilities {
+    /// the most tiles in a component that is counted exactly.
+    public static final int MAX_EXACT_CELLS = 256;
+    /// the most tiles in all components for the mines left over to be weighted exactly.
+    public static final int MAX_EXACT_FRONTIER = 400;
+    /// the most counts kept while counting one component exactly.  Past this it is counted by odds.
+    public static final int EXACT_BUDGET = 1 << 21;
+    /// the most partial layouts kept for one step of counting a component by odds.  Past this the component is left
+    /// without an answer.
+    public static final int MAX_STATES = 1 << 12;
+    // each number still open needs 4 bits of the state, and the state is a non-negative long.
+    private static final int SLOTS = 15;
+    private static final int ITERATIONS = 30;
+    // densities are searched between 1/(1+e^40) and 1-1/(1+e^40), until the expected mines are this close.
+    private static final double MAX_LOG_ODDS = 40;
+    private static final double TOLERANCE = 0.01;
+
+    /// The hidden unflagged tiles next to some numbers, and those numbers.
+    /// Equal when the tiles and the numbers are the same, so it can be looked up in the cache.
+    static final class Component {
+        final int [] cells;          // board indices, ascending.
+        final int [][] constraints;  // for each number, the positions in cells of its hidden unflagged neighbours.
+        final int [] needs;          // for each number, how many of those are mines.
+        private final int hash;
+
+        Component(int [] cells, int [][] constraints, int [] needs) {
+            this.cells = cells;
+            this.constraints = constraints;
+            this.needs = needs;
+            this.hash = 31 * (31 * Arrays.hashCode(cells) + Arrays.deepHashCode(constraints)) + Arrays.hashCode(needs);
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            return o instanceof Component other && hash == other.hash && Arrays.equals(cells, other.cells)
+                    && Arrays.equals(needs, other.needs) && Arrays.deepEquals(constraints, other.constraints);
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+    }
+
+    /// What [#capture(Grid)] took from the board.
+    /// @param numbers each number next to a hidden unflagged tile, as its mines still missing, how many of those
+    ///                tiles there are, then their board indices.
+    /// @param length  how much of numbers is used.
+    /// @param hidden  hidden unflagged tiles.
+    /// @param mines   the mines not yet flagged or revealed.
+    public record Problem(int [] numbers, int length, long hidden, long mines) {}
+
+    /// @param cells         board indices of the tiles next to a number in view, ascending.
+    /// @param probabilities the chance of a mine in each of those, or NaN where there is no answer.
+    /// @param interior      the chance of a mine in every other hidden unflagged tile.
+    public record Result(int [] cells, float [] probabilities, float interior) {
+        /// @return the position in cells of the first tile at or after board index i.
+        public int indexOf(int i) {
+            int found = Arrays.binarySearch(cells, i);
+            return found >= 0 ? found : -found - 1;
+        }
+    }
+
+    private final ExecutorService executor = Executors.newSingleThreadExecutor(r -> {
+        Thread thread = new Thread(r, "Slava Dukerani mine probabilities");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private final AtomicReference<Problem> next = new AtomicReference<>();
+    private final Consumer<Result> whenDone;
+    // components counted last time.  Only used on the executor's thread.
+    private Map<Component, Counted> cache = new HashMap<>();
+    private volatile boolean closed = false;
+
+    /// @param whenDone told each result on the Swing thread.
+    public MineProbabilities(Consumer<Result> whenDone) {
+        this.whenDone = whenDone;
+    }
+
+    /// Count the problem in the background.  A problem still waiting is dropped for this newer one.
+    public void update(Problem problem) {
+        if (closed) return;
+        if (next.getAndSet(problem) == null) executor.execute(this::drain);
+    }
+
+    /// Stop counting.  whenDone is not told any more results.
+    public void close() {
+        closed = true;
+        executor.shutdownNow();
+    }
+
+    private void drain() {
+        Problem problem;
+        while (!closed && (problem = next.getAndSet(null)) != null) {
+            long start = PerformanceMetrics.start();
+            Result result = solve(problem);
+            PerformanceMetrics.MINE_PROBABILITIES.recordSince(start);
+            SwingUtilities.invokeLater(() -> {
+                if (!closed) whenDone.accept(result);
+            });
+        }
+    }
+
+    /// Copy the numbers in view around the hidden tiles of the grid.  Call it on the thread that changes the grid.  Only
+    /// looks at the sensor's range, so it costs the same on any board.  Splitting it up is left to the counting thread.
+    /// @param sensorX where the sensor is.  Only the numbers within [GameEngine#SENSOR_RANGE] of it are used.
+    /// @param sensorY where the sensor is.  Only the numbers within [GameEngine#SENSOR_RANGE] of it are used.
+    public static Problem capture(Grid grid, int sensorX, int sensorY) {
+        int w = grid.getGridWidth(), h = grid.getGridHeight();
+        int range = GameEngine.SENSOR_RANGE;
+        int x0 = Math.max(0, sensorX - range), x1 = Math.min(w - 1, sensorX + range);
+        int y0 = Math.max(0, sensorY - range), y1 = Math.min(h - 1, sensorY + range);
+
+        // each number as [need, count, board indices...].
+        int [] numbers = new int[(x1 - x0 + 1) * (y1 - y0 + 1) * 10];
+        int used = 0;
+        for (int y = y0; y <= y1; y++) {
+            for (int x = x0; x <= x1; x++) {
+                if (grid.isHidden(x, y) || grid.getType(x, y) == GridTile.TYPE_MINE) continue;
+                int start = used;
+                int need = grid.getSensorValue(x, y);
+                used += 2;
+                for (int ny = Math.max(0, y - 1); ny <= Math.min(h - 1, y + 1); ny++) {
+                    for (int nx = Math.max(0, x - 1); nx <= Math.min(w - 1, x + 1); nx++) {
+                        if (grid.isHidden(nx, ny)) {
+                            if (grid.isFlagged(nx, ny)) {
+                                need--;
+                            } else {
+                                numbers[used++] = ny * w + nx;
+                            }
+                        } else if (grid.getType(nx, ny) == GridTile.TYPE_MINE) {
+                            need--;
+                        }
+                    }
+                }
+                numbers[start] = need;
+                numbers[start + 1] = used - start - 2;
+                // a number next to flags or revealed tiles only says nothing more.
+                if (numbers[start + 1] == 0) used = start;
+            }
+        }
+
+        long tiles = (long) w * h;
+        long revealedMines = tiles - grid.getHiddenCount() - grid.getRevealedSafeCount();
+        long hidden = Math.max(0, (long) grid.getHiddenCount() - grid.getFlagCount());
+        long mines = Math.max(0, grid.getNumMines() - grid.getFlagCount() - revealedMines);
+        return new Problem(numbers, used, hidden, mines);
+    }
+
+    /// Split the numbers of a problem into components.
+    static Component [] split(Problem problem) {
+        int [] numbers = problem.numbers();
+        int used = problem.length();
+        int [] unknown = new int[used];
+        int unknownCount = 0;
+        for (int at = 0; at < used; at += 2 + numbers[at + 1]) {
+            for (int k = 0; k < numbers[at + 1]; k++) unknown[unknownCount++] = numbers[at + 2 + k];
+        }
+
+        // the tiles next to numbers, each once, and which of them share a number.
+        Arrays.sort(unknown, 0, unknownCount);
+        int cellCount = 0;
+        for (int i = 0; i < unknownCount; i++) {
+            if (cellCount == 0 || unknown[i] != unknown[cellCount - 1]) unknown[cellCount++] = unknown[i];
+        }
+        int [] cells = Arrays.copyOf(unknown, cellCount);
+        int [] parent = new int[cellCount];
+        for (int i = 0; i < cellCount; i++) parent[i] = i;
+        for (int at = 0; at < used; at += 2 + numbers[at + 1]) {
+            int first = Arrays.binarySearch(cells, numbers[at + 2]);
+            for (int k = 1; k < numbers[at + 1]; k++) {
+                union(parent, first, Arrays.binarySearch(cells, numbers[at + 2 + k]));
+            }
+        }
+
+        // number the components, then give each its tiles and numbers.
+        int [] componentOf = new int[cellCount];
+        int [] positionIn = new int[cellCount];
+        int [] sizes = new int[cellCount];
+        int [] idOfRoot = new int[cellCount];
+        Arrays.fill(idOfRoot, -1);
+        int components = 0;
+        for (int i = 0; i < cellCount; i++) {
+            int root = find(parent, i);
+            if (idOfRoot[root] < 0) idOfRoot[root] = components++;
+            int c = idOfRoot[root];
+            componentOf[i] = c;
+            positionIn[i] = sizes[c]++;
+        }
+        int [][] componentCells = new int[components][];
+        for (int c = 0; c < components; c++) componentCells[c] = new int[sizes[c]];
+        for (int i = 0; i < cellCount; i++) componentCells[componentOf[i]][positionIn[i]] = cells[i];
+        List<List<int[]>> constraints = new ArrayList<>();
+        List<List<Integer>> needs = new ArrayList<>();
+        for (int c = 0; c < components; c++) {
+            constraints.add(new ArrayList<>());
+            needs.add(new ArrayList<>());
+        }
+        for (int at = 0; at < used; at += 2 + numbers[at + 1]) {
+            int [] local = new int[numbers[at + 1]];
+            int c = -1;
+            for (int k = 0; k < local.length; k++) {
+                int i = Arrays.binarySearch(cells, numbers[at + 2 + k]);
+                c = componentOf[i];
+                local[k] = positionIn[i];
+            }
+            constraints.get(c).add(local);
+            needs.get(c).add(numbers[at]);
+        }
+        Component [] result = new Component[components];
+        for (int c = 0; c < components; c++) {
+            result[c] = new Component(componentCells[c],
+                    constraints.get(c).toArray(new int[0][]),
+                    needs.get(c).stream().mapToInt(Integer::intValue).toArray());
+        }
+
+        return result;
+    }
+
+    private static int find(int [] parent, int i) {
+        while (parent[i] != i) {
+            parent[i] = parent[parent[i]];
+            i = parent[i];
+        }
+        return i;
+    }
+
+    private static void union(int [] parent, int a, int b) {
+        parent[find(parent, a)] = find(parent, b);
+    }
+
+    /// Count every component, then weigh them against each other and the interior.
+    Result solve(Problem problem) {
+        Component [] components = split(problem);
+        Map<Component, Counted> counted = new HashMap<>();
+        List<Component> todo = new ArrayList<>();
+        for (Component c : components) {
+            Counted old = cache.get(c);
+            if (old != null) counted.put(c, old);
+            else todo.add(c);
+        }
+        todo.parallelStream()
+                .map(Counted::new)
+                .toList()
+                .forEach(c -> counted.put(c.component, c));
+        cache = counted;
+
+        // tiles in components that can't be counted are weighed as if they were next to no number.
+        List<Counted> usable = new ArrayList<>();
+        int total = 0;
+        long loose = 0;
+        boolean exact = true;
+        for (Component c : components) {
+            Counted one = counted.get(c);
+            total += c.cells.length;
+            if (one.plan == null) {
+                loose += c.cells.length;
+            } else {
+                usable.add(one);
+                exact &= one.exact != null;
+            }
+        }
+        long interior = Math.max(0, problem.hidden() - total) + loose;
+        float chance = (exact && total - loose <= MAX_EXACT_FRONTIER)
+                ? weighExactly(usable, interior, problem.mines())
+                : weighByDensity(usable, interior, problem.mines());
+
+        // every tile with its chance, in board order.
+        long [] packed = new long[total];
+        int n = 0;
+        for (Component component : components) {
+            Counted c = counted.get(component);
+            for (int k = 0; k < c.component.cells.length; k++) {
+                packed[n++] = ((long) c.component.cells[k] << 32) | (Float.floatToIntBits(c.chances[k]) & 0xFFFFFFFFL);
+            }
+        }
+        Arrays.sort(packed);
+        int [] cells = new int[total];
+        float [] chances = new float[total];
+        for (int i = 0; i < total; i++) {
+            cells[i] = (int) (packed[i] >>> 32);
+            chances[i] = Float.intBitsToFloat((int) packed[i]);
+        }
+        return new Result(cells, chances, chance);
+    }
+
+    /// Weigh each component by the ways the other components and the interior can hold the rest of the mines.
+    /// @return the chance of a mine in an interior tile.
+    private static float weighExactly(List<Counted> usable, long interior, long mines) {
+        int m = usable.size();
+        // the ways to hold the mines of each component and everything before or after it, by mine count.
+        double [][] before = new double[m + 1][];
+        double [][] after = new double[m + 1][];
+        before[0] = new double[] { 1 };
+        after[m] = new double[] { 1 };
+        for (int j = 0; j < m; j++) before[j + 1] = normalize(convolve(before[j], usable.get(j).exact.counts));
+        for (int j = m - 1; j >= 0; j--) after[j] = normalize(convolve(usable.get(j).exact.counts, after[j + 1]));
+
+        // interiorWays[k]: the ways to put the other mines-k mines in the interior, relative to each other.
+        double [] interiorWays = interiorWays(before[m].length, interior, mines);
+        for (int j = 0; j < m; j++) {
+            Counted c = usable.get(j);
+            double [] others = correlate(after[j + 1], interiorWays);
+            double [] weight = correlate(before[j], others);
+            c.setChances(weight);
+        }
+
+        if (interior == 0) return 0;
+        double sum = 0, expected = 0;
+        double [] ways = before[m];
+        for (int k = 0; k < ways.length; k++) {
+            double w = ways[k] * interiorWays[k];
+            sum += w;
+            expected += w * (mines - k);
+        }
+        return sum > 0 ? (float) (expected / sum / interior) : Float.NaN;
+    }
+
+    /// Find the one chance q that every interior tile and every extra mine of a component is weighted by, such that
+    /// the expected number of mines is the number left.  Searched for as log(q/(1-q)) by false position, which halves
+    /// the far end's error when the same end moves twice (the Illinois method).
+    /// @return q, the chance of a mine in an interior tile.
+    private static float weighByDensity(List<Counted> usable, long interior, long mines) {
+        double lo = -MAX_LOG_ODDS, hi = MAX_LOG_ODDS;
+        double errorLo = extraMines(usable, interior, mines, lo);
+        double errorHi = extraMines(usable, interior, mines, hi);
+        double logOdds = errorLo >= 0 ? lo : hi;
+        int side = 0;
+        for (int i = 0; i < ITERATIONS && errorLo < 0 && errorHi > 0; i++) {
+            logOdds = hi - errorHi * (hi - lo) / (errorHi - errorLo);
+            double error = extraMines(usable, interior, mines, logOdds);
+            if (Math.abs(error) < TOLERANCE) break;
+            if (error < 0) {
+                lo = logOdds;
+                errorLo = error;
+                if (side < 0) errorHi /= 2;
+                side = -1;
+            } else {
+                hi = logOdds;
+                errorHi = error;
+                if (side > 0) errorLo /= 2;
+                side = 1;
+            }
+        }
+        double found = logOdds;
+        usable.parallelStream().forEach(c -> c.setChances(found));
+        return (float) (1 / (1 + Math.exp(-found)));
+    }
+
+    /// @return the expected number of mines at the given density less the number there are.
+    private static double extraMines(List<Counted> usable, long interior, long mines, double logOdds) {
+        return interior / (1 + Math.exp(-logOdds)) - mines
+                + usable.parallelStream().mapToDouble(c -> c.expectedMines(logOdds)).sum();
+    }
+
+    private static double [] interiorWays(int length, long interior, long mines) {
+        // C(interior, mines-k) for k = 0.., relative to the largest, from the ratio of neighbours
+        // C(n, r-1) / C(n, r) = r / (n - r + 1).
+        double [] log = new double[length];
+        double max = Double.NEGATIVE_INFINITY;
+        double value = 0;
+        for (int k = 0; k < length; k++) {
+            long r = mines - k;
+            if (r < 0 || r > interior) {
+                log[k] = Double.NEGATIVE_INFINITY;
+            } else {
+                log[k] = value;
+                max = Math.max(max, value);
+            }
+            // step from r to r-1.
+            if (r > 0 && r <= interior) value += Math.log((double) r / (interior - r + 1));
+            else if (r > interior) value = 0;
+        }
+        double [] ways = new double[length];
+        for (int k = 0; k < length; k++) ways[k] = log[k] == Double.NEGATIVE_INFINITY ? 0 : Math.exp(log[k] - max);
+        return ways;
+    }
+
+    private static double [] convolve(double [] a, double [] b) {
+        double [] c = new double[a.length + b.length - 1];
+        for (int i = 0; i < a.length; i++) {
+            if (a[i] == 0) continue;
+            for (int j = 0; j < b.length; j++) c[i + j] += a[i] * b[j];
+        }
+        return c;
+    }
+
+    /// @return c[k] = sum of a[i] * b[k+i], for every k where b[k] exists.
+    private static double [] correlate(double [] a, double [] b) {
+        double [] c = new double[b.length];
+        for (int k = 0; k < b.length; k++) {
+            double sum = 0;
+            for (int i = 0; i < a.length && k + i < b.length; i++) sum += a[i] * b[k + i];
+            c[k] = sum;
+        }
+        return c;
+    }
+
+    /// Scale so the largest is 1.  Only the ratios matter, and this keeps long products in range.
+    private static double [] normalize(double [] a) {
+        double max = 0;
+        for (double v : a) max = Math.max(max, v);
+        if (max > 0) for (int i = 0; i < a.length; i++) a[i] /= max;
+        return a;
+    }
+
+    /// Exact counts of one component.
+    /// @param counts     the layouts with k mines.
+    /// @param mineCounts for each tile, the layouts with k mines where that tile is a mine.
+    private record Exact(double [] counts, double [][] mineCounts) {}
+
+    /// One component, counted exactly if it is small enough.  Otherwise its [Plan] is kept to count it by odds once the
+    /// density is known.
+    private static final class Counted {
+        final Component component;
+        final Plan plan;     // null if the component can't be counted at all.
+        final Exact exact;   // null if it is too big to count exactly.
+        final float [] chances;
+
+        Counted(Component component) {
+            this.component = component;
+            this.chances = new float[component.cells.length];
+            Plan p = Plan.make(component);
+            Exact e = null;
+            if (p != null && component.cells.length <= MAX_EXACT_CELLS) e = p.countExactly();
+            // no layout fits, as after a wrong flag.
+            if (e != null && Arrays.stream(e.counts).noneMatch(v -> v > 0)) p = null;
+            // found out once here, not at every density tried.
+            if (p != null && e == null && p.countByOdds(1) == null) p = null;
+            this.plan = p;
+            this.exact = p == null ? null : e;
+            if (p == null) Arrays.fill(chances, Float.NaN);
+        }
+
+        double expectedMines(double logOdds) {
+            if (exact == null) {
+                double mines = 0;
+                for (double v : plan.countByOdds(Math.exp(logOdds))) mines += v;
+                return mines;
+            }
+            double [] weights = oddsWeights(logOdds);
+            double sum = 0, mines = 0;
+            for (int k = 0; k < exact.counts.length; k++) {
+                sum += exact.counts[k] * weights[k];
+                mines += exact.counts[k] * weights[k] * k;
+            }
+            return mines / sum;
+        }
+
+        /// @param weight how much each mine count of this component is worth, given everything else.
+        void setChances(double [] weight) {
+            double sum = 0;
+            for (int k = 0; k < exact.counts.length && k < weight.length; k++) sum += exact.counts[k] * weight[k];
+            for (int t = 0; t < chances.length; t++) {
+                double mine = 0;
+                double [] counts = exact.mineCounts[t];
+                for (int k = 0; k < counts.length && k < weight.length; k++) mine += counts[k] * weight[k];
+                chances[t] = sum > 0 ? (float) (mine / sum) : Float.NaN;
+            }
+        }
+
+        void setChances(double logOdds) {
+            if (exact != null) {
+                setChances(oddsWeights(logOdds));
+                return;
+            }
+            double [] p = plan.countByOdds(Math.exp(logOdds));
+            for (int t = 0; t < chances.length; t++) chances[t] = (float) p[plan.stepOf[t]];
+        }
+
+        /// @return (q / (1-q))^k for k = 0.., relative to the largest k this component can hold, so that at extreme
+        /// odds the ones that matter don't round to 0.
+        private double [] oddsWeights(double logOdds) {
+            double [] counts = exact.counts;
+            double max = Double.NEGATIVE_INFINITY;
+            for (int k = 0; k < counts.length; k++) if (counts[k] > 0) max = Math.max(max, logOdds * k);
+            double [] w = new double[counts.length];
+            for (int k = 0; k < counts.length; k++) w[k] = counts[k] > 0 ? Math.exp(logOdds * k - max) : 0;
+            return w;
+        }
+    }
+
+    /// The order the tiles of a component are counted in, and what each step does to the numbers still open.  A number
+    /// opens at its first tile, takes one of [#SLOTS] 4 bit slots in the state, and closes at its last tile, when it
+    /// must hold exactly its mines.
+    private static final class Plan {
+        final int n;
+        final int [] stepOf;     // stepOf[tile] is the step that decides it.
+        final int [][] slot;     // per step, per number touching that tile: its slot,
+        final int [][] need;     // its mines,
+        final int [][] after;    // how many of its tiles come later,
+        final boolean [][] last; // and whether this is its last tile.
+
+        private Plan(int n, int [] stepOf, int [][] slot, int [][] need, int [][] after, boolean [][] last) {
+            this.n = n;
+            this.stepOf = stepOf;
+            this.slot = slot;
+            this.need = need;
+            this.after = after;
+            this.last = last;
+        }
+
+        /// Count the tiles in breadth first order through the numbers, so few numbers are open at once.
+        /// @return null if a number's mines can't fit in 4 bits or too many numbers are open at once.
+        static Plan make(Component c) {
+            int n = c.cells.length;
+            int [][] numbersOf = numbersOfTiles(c);
+            int [] order = new int[n];
+            int [] stepOf = new int[n];
+            Arrays.fill(stepOf, -1);
+            boolean [] numberSeen = new boolean[c.constraints.length];
+            int head = 0, tail = 0;
+            order[tail++] = 0;
+            stepOf[0] = 0;
+            while (head < tail) {
+                int tile = order[head++];
+                for (int number : numbersOf[tile]) {
+                    if (numberSeen[number]) continue;
+                    numberSeen[number] = true;
+                    for (int other : c.constraints[number]) {
+                        if (stepOf[other] >= 0) continue;
+                        stepOf[other] = tail;
+                        order[tail++] = other;
+                    }
+                }
+            }
+
+            int [] firstStep = new int[c.constraints.length];
+            int [] lastStep = new int[c.constraints.length];
+            for (int j = 0; j < c.constraints.length; j++) {
+                if (c.needs[j] > 15) return null;
+                firstStep[j] = n;
+                lastStep[j] = -1;
+                for (int tile : c.constraints[j]) {
+                    firstStep[j] = Math.min(firstStep[j], stepOf[tile]);
+                    lastStep[j] = Math.max(lastStep[j], stepOf[tile]);
+                }
+            }
+
+            int [][] slot = new int[n][], need = new int[n][], after = new int[n][];
+            boolean [][] last = new boolean[n][];
+            int [] slotOf = new int[c.constraints.length];
+            boolean [] slotUsed = new boolean[SLOTS];
+            for (int step = 0; step < n; step++) {
+                int [] numbers = numbersOf[order[step]];
+                slot[step] = new int[numbers.length];
+                need[step] = new int[numbers.length];
+                after[step] = new int[numbers.length];
+                last[step] = new boolean[numbers.length];
+                for (int t = 0; t < numbers.length; t++) {
+                    int j = numbers[t];
+                    if (firstStep[j] == step) {
+                        int s = 0;
+                        while (s < SLOTS && slotUsed[s]) s++;
+                        if (s == SLOTS) return null;
+                        slotUsed[s] = true;
+                        slotOf[j] = s;
+                    }
+                    int later = 0;
+                    for (int tile : c.constraints[j]) if (stepOf[tile] > step) later++;
+                    slot[step][t] = slotOf[j];
+                    need[step][t] = c.needs[j];
+                    after[step][t] = later;
+                    last[step][t] = lastStep[j] == step;
+                }
+                for (int t = 0; t < numbers.length; t++) {
+                    if (last[step][t]) slotUsed[slot[step][t]] = false;
+                }
+            }
+            return new Plan(n, stepOf, slot, need, after, last);
+        }
+
+        private static int [][] numbersOfTiles(Component c) {
+            int [] count = new int[c.cells.length];
+            for (int [] tiles : c.constraints) for (int tile : tiles) count[tile]++;
+            int [][] numbersOf = new int[c.cells.length][];
+            for (int t = 0; t < numbersOf.length; t++) numbersOf[t] = new int[count[t]];
+            Arrays.fill(count, 0);
+            for (int j = 0; j < c.constraints.length; j++) {
+                for (int tile : c.constraints[j]) numbersOf[tile][count[tile]++] = j;
+            }
+            return numbersOf;
+        }
+
+        /// @return the state after this step puts v mines on its tile, or -1 if that breaks a number.
+        private long step(long state, int step, int v) {
+            for (int t = 0; t < slot[step].length; t++) {
+                int shift = slot[step][t] * 4;
+                int value = (int) ((state >>> shift) & 15) + v;
+                int mines = need[step][t];
+                if (value > mines) return -1;
+                state &= ~(15L << shift);
+                if (last[step][t]) {
+                    if (value != mines) return -1;
+                } else {
+                    if (mines - value > after[step][t]) return -1;
+                    state |= (long) value << shift;
+                }
+            }
+            return state;
+        }
+
+        /// Count exactly, by mine count.
+        /// @return null if that needs more than [#EXACT_BUDGET] counts.
+        Exact countExactly() {
+            return (Exact) count(-1, EXACT_BUDGET);
+        }
+
+        /// Count with each mine weighted by odds, q/(1-q) for a density q.
+        /// @return the chance of a mine at each step, or null if there are too many partial layouts or none at all.
+        double [] countByOdds(double odds) {
+            return (double []) count(odds, MAX_STATES);
+        }
+
+        /// The forward pass keeps, for each state after each step, the ways to reach it.  The backward pass finds the
+        /// ways to finish from each state, and the product of the two at each step counts the layouts with that step's
+        /// tile a mine.  With odds < 0 the ways are polynomials in the mine count, otherwise single numbers where
+        /// each mine is worth `odds`.
+        /// @param limit the most states at one step, or when counting exactly the most counts in all.
+        private Object count(double odds, int limit) {
+            boolean exact = odds < 0;
+            long stored = 0;
+            long [][] keys = new long[n + 1][];
+            double [][][] ways = new double[n + 1][][];
+            keys[0] = new long[] { 0 };
+            ways[0] = new double[][] { { 1 } };
+            for (int s = 0; s < n; s++) {
+                Map<Long, Integer> index = new HashMap<>();
+                List<double[]> values = new ArrayList<>();
+                for (int k = 0; k < keys[s].length; k++) {
+                    for (int v = 0; v <= 1; v++) {
+                        long next = step(keys[s][k], s, v);
+                        if (next < 0) continue;
+                        Integer at = index.get(next);
+                        if (at == null) {
+                            at = values.size();
+                            index.put(next, at);
+                            values.add(new double[exact ? s + 2 : 1]);
+                        }
+                        add(values.get(at), ways[s][k], v, odds);
+                    }
+                }
+                stored += exact ? (long) values.size() * (s + 2) : 0;
+                if (stored > limit || values.size() > limit) return null;
+                keys[s + 1] = new long[values.size()];
+                for (Map.Entry<Long, Integer> e : index.entrySet()) keys[s + 1][e.getValue()] = e.getKey();
+                ways[s + 1] = values.toArray(new double[0][]);
+                if (!exact) normalizeAll(ways[s + 1]);
+            }
+
+            Map<Long, double[]> finish = new HashMap<>();
+            finish.put(0L, new double[] { 1 });
+            double [][] mine = new double[n][];
+            double [] total = null;
+            for (int s = n - 1; s >= 0; s--) {
+                Map<Long, double[]> from = new HashMap<>();
+                double [] mineHere = new double[exact ? n + 1 : 1];
+                double [] totalHere = new double[exact ? n + 1 : 1];
+                for (int k = 0; k < keys[s].length; k++) {
+                    double [] f = ways[s][k];
+                    double [] b = new double[exact ? n - s + 1 : 1];
+                    for (int v = 0; v <= 1; v++) {
+                        long next = step(keys[s][k], s, v);
+                        if (next < 0) continue;
+                        double [] rest = finish.get(next);
+                        if (rest == null) continue;
+                        add(b, rest, v, odds);
+                        multiplyAdd(totalHere, f, rest, v, odds);
+                        if (v == 1) multiplyAdd(mineHere, f, rest, v, odds);
+                    }
+                    from.put(keys[s][k], b);
+                }
+                if (!exact) normalizeAll(from.values().toArray(new double[0][]));
+                mine[s] = mineHere;
+                if (total == null) total = totalHere;
+                if (!exact) {
+                    mine[s] = new double[] { totalHere[0] > 0 ? mineHere[0] / totalHere[0] : Double.NaN };
+                }
+                finish = from;
+            }
+            if (exact) {
+                // every step's total is the same count.  Tile t was decided at step stepOf[t].
+                double [][] byTile = new double[n][];
+                for (int t = 0; t < n; t++) byTile[t] = mine[stepOf[t]];
+                return new Exact(total, byTile);
+            }
+            if (total == null || !(total[0] > 0)) return null;
+            double [] chance = new double[n];
+            for (int s = 0; s < n; s++) chance[s] = mine[s][0];
+            return chance;
+        }
+
+        /// to += from, with v more mines: shifted by v, or times odds^v.
+        private static void add(double [] to, double [] from, int v, double odds) {
+            if (odds < 0) {
+                for (int k = 0; k < from.length && k + v < to.length; k++) to[k + v] += from[k];
+            } else {
+                to[0] += v == 1 ? from[0] * odds : from[0];
+            }
+        }
+
+        /// to += a * b, with v more mines.
+        private static void multiplyAdd(double [] to, double [] a, double [] b, int v, double odds) {
+            if (odds < 0) {
+                for (int i = 0; i < a.length; i++) {
+                    if (a[i] == 0) continue;
+                    for (int j = 0; j < b.length && i + j + v < to.length; j++) to[i + j + v] += a[i] * b[j];
+                }
+            } else {
+                to[0] += a[0] * b[0] * (v == 1 ? odds : 1);
+            }
+        }
+
+        private static void normalizeAll(double [][] values) {
+            double max = 0;
+            for (double [] v : values) max = Math.max(max, v[0]);
+            if (max > 0) for (double [] v : values) v[0] /= max;
+        }
+    }
+}
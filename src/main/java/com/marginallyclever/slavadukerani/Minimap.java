@@ -0,0 +1,160 @@
+package com.marginallyclever.slavadukerani;
+
+import javax.swing.*;
+import java.awt.*;
+import java.awt.event.MouseAdapter;
+import java.awt.event.MouseEvent;
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferInt;
+
+/// A small picture of the whole board beside the game: the revealed areas, the player, the sensor, the exit, and the
+/// part of the board in view.  Click or drag on it to look somewhere else.
+///
+/// Each pixel stands for a square block of tiles and keeps a count of its revealed tiles.  The counts are built once
+/// when the map is made and after that only the tiles named by each [BoardChangeListener#boardChanged] are counted,
+/// so the cost of an action is the size of the action, never the size of the board.
+public class Minimap extends JComponent implements BoardChangeListener {
+    /// the longest side of the map in pixels.
+    public static final int MAX_SIDE = 200;
+    private static final int HIDDEN_RGB = 0x505050;
+    private static final int REVEALED_RGB = 0xF0F0F0;
+
+    private final SlavaDukerani game;
+    private final Board board;
+    private final int block;  // tiles per pixel, in each direction.
+    private final int mapWidth, mapHeight;
+    private final int scale;  // screen pixels per map pixel, so small boards aren't tiny.
+    private final long [] revealed;
+    private final BufferedImage image;
+    private final int [] pixels;
+
+    public Minimap(SlavaDukerani game) {
+        this.game = game;
+        this.board = game.getEngine().getBoard();
+        int w = board.getGridWidth(), h = board.getGridHeight();
+        block = (int) Math.max(1, (Math.max(w, h) + (long) MAX_SIDE - 1) / MAX_SIDE);
+        mapWidth = (int) ((w + (long) block - 1) / block);
+        mapHeight = (int) ((h + (long) block - 1) / block);
+        scale = Math.max(1, MAX_SIDE / Math.max(mapWidth, mapHeight));
+        revealed = new long[mapWidth * mapHeight];
+        image = new BufferedImage(mapWidth, mapHeight, BufferedImage.TYPE_INT_RGB);
+        pixels = ((DataBufferInt) image.getRaster().getDataBuffer()).getData();
+
+        countRevealed();
+        for (int i = 0; i < pixels.length; i++) recolor(i);
+
+        Dimension size = new Dimension(mapWidth * scale, mapHeight * scale);
+        setPreferredSize(size);
+        setMinimumSize(size);
+        setMaximumSize(size);
+        setToolTipText("Click to look there.");
+
+        MouseAdapter look = new MouseAdapter() {
+            @Override
+            public void mousePressed(MouseEvent e) {
+                lookAt(e.getX(), e.getY());
+            }
+
+            @Override
+            public void mouseDragged(MouseEvent e) {
+                lookAt(e.getX(), e.getY());
+            }
+        };
+        addMouseListener(look);
+        addMouseMotionListener(look);
+    }
+
+    /// A [Grid] is scanned whole, since it may be a saved game.  Scanning any other board would make every chunk of
+    /// it, so only the start is scanned, which is the only place a new board has reveals.
+    private void countRevealed() {
+        int w = board.getGridWidth(), h = board.getGridHeight();
+        if (!(board instanceof Grid)) {
+            w = Math.min(w, ChunkedBoard.CHUNK_SIZE);
+            h = Math.min(h, ChunkedBoard.CHUNK_SIZE);
+        }
+        for (int y = 0; y < h; y++) {
+            int row = (y / block) * mapWidth;
+            for (int x = 0; x < w; x++) {
+                if (!board.isHidden(x, y)) revealed[row + x / block]++;
+            }
+        }
+    }
+
+    @Override
+    public void boardChanged(ChangedTiles changes, boolean flagsOnly) {
+        if (!flagsOnly && !changes.isEmpty()) {
+            // a reveal or an undo flips the revealed bit of every tile it names.
+            for (int i = 0; i < changes.size(); i++) {
+                int x = changes.getX(i), y = changes.getY(i);
+                revealed[(y / block) * mapWidth + x / block] += board.isHidden(x, y) ? -1 : 1;
+            }
+            for (int py = changes.getMinY() / block; py <= changes.getMaxY() / block; py++) {
+                for (int px = changes.getMinX() / block; px <= changes.getMaxX() / block; px++) {
+                    recolor(py * mapWidth + px);
+                }
+            }
+        }
+        // the player and sensor may have moved.
+        repaint();
+    }
+
+    /// Blocks with any revealed tile are at least half bright, so a thin path through a huge block still shows.
+    private void recolor(int i) {
+        if (revealed[i] <= 0) {
+            pixels[i] = HIDDEN_RGB;
+            return;
+        }
+        int px = i % mapWidth, py = i / mapWidth;
+        long area = (long) Math.min(block, board.getGridWidth() - px * block)
+                  * Math.min(block, board.getGridHeight() - py * block);
+        double fraction = 0.5 + 0.5 * Math.min(1.0, (double) revealed[i] / area);
+        pixels[i] = blend(HIDDEN_RGB, REVEALED_RGB, fraction);
+    }
+
+    private static int blend(int a, int b, double t) {
+        int r = (int) (((a >> 16) & 0xFF) * (1 - t) + ((b >> 16) & 0xFF) * t);
+        int g = (int) (((a >> 8) & 0xFF) * (1 - t) + ((b >> 8) & 0xFF) * t);
+        int bl = (int) ((a & 0xFF) * (1 - t) + (b & 0xFF) * t);
+        return r << 16 | g << 8 | bl;
+    }
+
+    private void lookAt(int mouseX, int mouseY) {
+        int x = (int) Math.min(board.getGridWidth() - 1, (long) Math.max(0, mouseX) / scale * block + block / 2);
+        int y = (int) Math.min(board.getGridHeight() - 1, (long) Math.max(0, mouseY) / scale * block + block / 2);
+        game.centerOn(x, y);
+    }
+
+    @Override
+    protected void paintComponent(Graphics g) {
+        g.drawImage(image, 0, 0, mapWidth * scale, mapHeight * scale, null);
+
+        GameEngine engine = game.getEngine();
+        int exitX = board.getGridWidth() - 1, exitY = board.getGridHeight() - 1;
+        if (board instanceof ChunkedBoard chunked) {
+            exitX = chunked.getExitX();
+            exitY = chunked.getExitY();
+        }
+        drawMarker(g, exitX, exitY, Color.GREEN);
+        drawMarker(g, engine.getSensorX(), engine.getSensorY(), Color.ORANGE);
+        drawMarker(g, engine.getPlayerX(), engine.getPlayerY(), Color.BLUE);
+
+        // the part of the board in view.
+        Rectangle view = game.getVisibleRect();
+        int tileSize = game.getTileSize();
+        g.setColor(Color.RED);
+        g.drawRect(toMap(view.x / tileSize), toMap(view.y / tileSize),
+                Math.max(1, toMap((view.x + view.width) / tileSize) - toMap(view.x / tileSize)),
+                Math.max(1, toMap((view.y + view.height) / tileSize) - toMap(view.y / tileSize)));
+    }
+
+    private void drawMarker(Graphics g, int x, int y, Color color) {
+        int size = Math.max(3, scale);
+        g.setColor(color);
+        g.fillRect(toMap(x) + (scale - size) / 2, toMap(y) + (scale - size) / 2, size, size);
+    }
+
+    /// @return the screen x or y of a tile's block on the map.
+    private int toMap(int tile) {
+        return tile / block * scale;
+    }
+}
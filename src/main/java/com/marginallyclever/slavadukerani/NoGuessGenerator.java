@@ -0,0 +1,75 @@
+package com.marginallyclever.slavadukerani;
+
+import java.util.concurrent.CancellationException;
+import java.util.function.IntConsumer;
+import java.util.stream.IntStream;
+
+/// Finds boards that can be solved without guessing.  Candidate boards are made from seeds derived from the
+/// user-visible seed and played by a [ConstraintSolver].  The first candidate where logic alone opens a path from the
+/// start area to the exit at (w-1,h-1) wins.
+///
+/// Candidates are checked in batches, one per core, in parallel.  The winner is always the lowest numbered candidate
+/// that passes, no matter which thread finishes first, so the same seed always gives the same board.
+public class NoGuessGenerator {
+    public static final int DEFAULT_MAX_CANDIDATES = 10000;
+
+    public static void main(String[] args) {
+        int width = args.length > 0 ? Integer.parseInt(args[0]) : 30;
+        int height = args.length > 1 ? Integer.parseInt(args[1]) : 16;
+        int mines = args.length > 2 ? Integer.parseInt(args[2]) : 99;
+        int seed = args.length > 3 ? Integer.parseInt(args[3]) : (int)(Math.random()*1000000);
+
+        long start = System.nanoTime();
+        long found = findSolvableSeed(width, height, mines, seed, DEFAULT_MAX_CANDIDATES);
+        System.out.printf("%dx%d, %d mines, seed %d: board seed %d in %.1f ms%n",
+                width, height, mines, seed, found, (System.nanoTime() - start) / 1e6);
+    }
+
+    /// @return the seed of candidate number `candidate`.  Candidate 0 is the user's seed itself, so a board that is
+    /// already solvable doesn't change when no guessing is turned on.
+    public static long deriveSeed(long seed, int candidate) {
+        if (candidate == 0) return seed;
+        // neighbouring candidates get unrelated seeds.
+        return SplitMix64.mix(seed + candidate * SplitMix64.GAMMA);
+    }
+
+    /// @return true if the board made from these settings can be played from the start to the exit without guessing.
+    public static boolean isSolvable(int width, int height, int numMines, long seed) {
+        ConstraintSolver solver = new ConstraintSolver(new Grid(width, height, seed, numMines));
+        solver.solve();
+        return solver.getStatus() != ConstraintSolver.Status.EXPLODED && solver.isExitReachable();
+    }
+
+    /// @return the seed of the first candidate board that can be solved without guessing.  Pass it to
+    /// [Grid#Grid(int, int, long, int)] to make the board.
+    /// @throws IllegalArgumentException if the settings are not valid for a [Grid].
+    /// @throws IllegalStateException if none of the first maxCandidates candidates can be solved.
+    public static long findSolvableSeed(int width, int height, int numMines, long seed, int maxCandidates) {
+        return findSolvableSeed(width, height, numMines, seed, maxCandidates, checked -> {});
+    }
+
+    /// As [#findSolvableSeed(int, int, int, long, int)], for a background thread.
+    /// @param progress told the number of candidates checked so far after each batch.
+    /// @throws CancellationException if the thread is interrupted.  It is checked between batches.
+    public static long findSolvableSeed(int width, int height, int numMines, long seed, int maxCandidates,
+                                        IntConsumer progress) {
+        // fail fast on bad settings, on this thread.
+        Grid.checkSettings(width, height, numMines);
+
+        int batch = Runtime.getRuntime().availableProcessors();
+        for (int first = 0; first < maxCandidates; first += batch) {
+            if (Thread.currentThread().isInterrupted()) {
+                throw new CancellationException("Stopped looking for a board without guessing.");
+            }
+            int last = Math.min(maxCandidates, first + batch);
+            int winner = IntStream.range(first, last)
+                    .parallel()
+                    .filter(i -> isSolvable(width, height, numMines, deriveSeed(seed, i)))
+                    .min()
+                    .orElse(-1);
+            if (winner >= 0) return deriveSeed(seed, winner);
+            progress.accept(last);
+        }
+        throw new IllegalStateException("No board without guessing found in " + maxCandidates + " tries.  Try fewer mines.");
+    }
+}
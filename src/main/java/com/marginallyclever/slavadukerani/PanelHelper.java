@@ -9,9 +9,24 @@ import java.text.NumberFormat;
 /// Convenience methods for creating and configuring Swing components for the game.
 public class PanelHelper {
     static public NumberFormatter getNumberFormatterInt() {
+        return getNumberFormatterInt(1);
+    }
+
+    /// @return a formatter of int values no smaller than minimum.
+    static public NumberFormatter getNumberFormatterInt(int minimum) {
         NumberFormat format = NumberFormat.getIntegerInstance();
         NumberFormatter formatter = new NumberFormatter(format);
-        formatter.setMinimum(1);
+        formatter.setMinimum(minimum);
+        formatter.setAllowsInvalid(true);
+        formatter.setCommitsOnValidEdit(true);
+        return formatter;
+    }
+
+    /// @return a formatter of positive long values, for counts too big for an int.
+    static public NumberFormatter getNumberFormatterLong() {
+        NumberFormat format = NumberFormat.getIntegerInstance();
+        NumberFormatter formatter = new NumberFormatter(format);
+        formatter.setMinimum(1L);
         formatter.setAllowsInvalid(true);
         formatter.setCommitsOnValidEdit(true);
         return formatter;
@@ -27,6 +42,11 @@ public class PanelHelper {
         return addNumberField(toolTip,value,getNumberFormatterInt());
     }
 
+    /// Like [#addNumberFieldInt(String, int)], for counts too big for an int.
+    public static JFormattedTextField addNumberFieldLong(String toolTip, long value) {
+        return addNumberField(toolTip,value,getNumberFormatterLong());
+    }
+
     /**
      * <p>A convenience method to add a number field to a panel.</p>
      * @param toolTip the tooltip for the field
@@ -44,13 +64,23 @@ public class PanelHelper {
     }
 
     public static void drawImage(Graphics g, BufferedImage img, int x, int y, Color fallbackColor) {
-        int dx = x * GridTile.SIZE_X;
-        int dy = y * GridTile.SIZE_Y;
+        drawImage(g, img, x, y, fallbackColor, GridTile.SIZE_X);
+    }
+
+    /// Draw img over tile (x,y) of a board whose tiles are size x size pixels.
+    public static void drawImage(Graphics g, BufferedImage img, int x, int y, Color fallbackColor, int size) {
+        int dx = x * size;
+        int dy = y * size;
         if (img != null) {
-            g.drawImage(img, dx, dy, GridTile.SIZE_X, GridTile.SIZE_Y, null);
+            if (img.getWidth() == size && img.getHeight() == size) {
+                // already tile sized, so skip the scaling path.
+                g.drawImage(img, dx, dy, null);
+            } else {
+                g.drawImage(img, dx, dy, size, size, null);
+            }
         } else {
             g.setColor(fallbackColor);
-            g.fillRect(dx, dy, GridTile.SIZE_X, GridTile.SIZE_Y);
+            g.fillRect(dx, dy, size, size);
         }
     }
 }
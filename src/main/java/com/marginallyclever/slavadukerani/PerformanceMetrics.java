@@ -0,0 +1,39 @@
+package com.marginallyclever.slavadukerani;
+
+import java.util.List;
+
+/// In-process histograms of the same timings as [GameEvents], shown by [MetricsPanel].  Off by default: while off,
+/// [#start()] returns 0 and nothing reads the clock or records anything.
+public final class PerformanceMetrics {
+    public static final LatencyHistogram GRID_CREATED = new LatencyHistogram("Grid created");
+    public static final LatencyHistogram REVEAL = new LatencyHistogram("Reveal");
+    public static final LatencyHistogram FRAME = new LatencyHistogram("Frame");
+    public static final LatencyHistogram INPUT_LATENCY = new LatencyHistogram("Input to frame");
+    /// not a [GameEvents] event: a hint is one short call, see [FrontierIndex#findHint()].
+    public static final LatencyHistogram HINT = new LatencyHistogram("Hint");
+    /// not a [GameEvents] event either: counted in the background, see [MineProbabilities].
+    public static final LatencyHistogram MINE_PROBABILITIES = new LatencyHistogram("Mine probabilities");
+    public static final List<LatencyHistogram> ALL = List.of(GRID_CREATED, REVEAL, FRAME, INPUT_LATENCY, HINT,
+            MINE_PROBABILITIES);
+
+    private static volatile boolean enabled = false;
+
+    private PerformanceMetrics() {}
+
+    public static boolean isEnabled() {
+        return enabled;
+    }
+
+    public static void setEnabled(boolean on) {
+        enabled = on;
+    }
+
+    public static void resetAll() {
+        for (LatencyHistogram h : ALL) h.reset();
+    }
+
+    /// @return the time now for [LatencyHistogram#recordSince(long)], or 0 if metrics are off.
+    static long start() {
+        return enabled ? System.nanoTime() : 0;
+    }
+}
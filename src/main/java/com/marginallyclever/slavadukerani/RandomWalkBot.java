@@ -0,0 +1,26 @@
+package com.marginallyclever.slavadukerani;
+
+import java.util.random.RandomGenerator;
+
+/// A baseline [BotStrategy] that walks in a random direction every turn, never looking at the board.
+public class RandomWalkBot implements BotStrategy {
+    private GameEngine engine;
+    private RandomGenerator random;
+
+    @Override
+    public void startGame(GameEngine engine, RandomGenerator random) {
+        this.engine = engine;
+        this.random = random;
+    }
+
+    @Override
+    public boolean takeTurn() {
+        switch (random.nextInt(4)) {
+            case 0 -> engine.move( 1, 0);
+            case 1 -> engine.move(-1, 0);
+            case 2 -> engine.move( 0, 1);
+            default -> engine.move( 0,-1);
+        }
+        return true;
+    }
+}
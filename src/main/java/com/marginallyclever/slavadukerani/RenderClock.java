@@ -0,0 +1,39 @@
+package com.marginallyclever.slavadukerani;
+
+import javax.swing.*;
+import java.awt.event.ActionListener;
+
+/// One Swing [Timer] shared by every board in the window.  A [Tournament] of many boards then wakes the Swing thread
+/// once a frame, not once a frame for each board, and everything that happens on a tick happens in the same frame.
+///
+/// The timer only runs while something listens.  Use it on the Swing thread.
+public class RenderClock {
+    private static final RenderClock INSTANCE = new RenderClock();
+
+    /// milliseconds between ticks, for about 60 frames a second.
+    public static final int FRAME_MILLIS = 16;
+
+    private final Timer timer = new Timer(FRAME_MILLIS, null);
+
+    public static RenderClock getInstance() {
+        return INSTANCE;
+    }
+
+    private RenderClock() {
+        timer.setCoalesce(true);
+    }
+
+    /// Tell listener every tick from now on.  Adding a listener that is already there does nothing.
+    public void addTickListener(ActionListener listener) {
+        for (ActionListener each : timer.getActionListeners()) {
+            if (each == listener) return;
+        }
+        timer.addActionListener(listener);
+        if (!timer.isRunning()) timer.start();
+    }
+
+    public void removeTickListener(ActionListener listener) {
+        timer.removeActionListener(listener);
+        if (timer.getActionListeners().length == 0) timer.stop();
+    }
+}
@@ -0,0 +1,159 @@
+package com.marginallyclever.slavadukerani;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.nio.ByteOrder;
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/// Works out the sensor value of every tile of a [Grid] at once.
+///
+/// Each row of mines is packed into bits, 64 tiles per long.  The eight neighbours of 64 tiles are then the rows above,
+/// level and below, each shifted one tile left and right, and a small tree of bitwise adders sums those eight bits into
+/// a 4 bit count for all 64 tiles together.  There are no branches per tile and no bounds checks: the edges are rows
+/// and bits of zeros.  Tiles are read and written 8 at a time as longs over the byte array.
+///
+/// Big boards are cut into stripes of rows that are counted in parallel on the common [ForkJoinPool].  A stripe only
+/// writes its own rows, and only reads the mine bits of the rows next to it, which never change.
+class SensorCounter extends RecursiveAction {
+    private static final VarHandle LONGS = MethodHandles.byteArrayViewVarHandle(long[].class, ByteOrder.LITTLE_ENDIAN);
+    private static final long SENSOR_BYTES = 0x0F0F0F0F0F0F0F0FL;
+    private static final long TYPE_BYTES = 0x0303030303030303L;
+    private static final long LOW_BITS = 0x0101010101010101L;
+    private static final long GATHER = 0x0102040810204080L;  // moves the low bit of each byte into the top byte.
+    private static final int STRIPE_CELLS = 1 << 16;  // the smallest stripe worth a task of its own.
+
+    // SPREAD[b] has bit i of b in the low bit of byte i.
+    private static final long [] SPREAD = new long[256];
+
+    static {
+        for (int b = 0; b < 256; b++) {
+            for (int i = 0; i < 8; i++) {
+                if ((b >>> i & 1) != 0) SPREAD[b] |= 1L << (8 * i);
+            }
+        }
+    }
+
+    private final byte [] cells;
+    private final int width;
+    private final int height;
+    private final int firstRow;
+    private final int endRow;
+
+    /// Replace the sensor value of every tile with the number of mines next to it.  Everything else in the cells is
+    /// left alone.
+    /// @param cells one byte per tile in row-major order, laid out as in [Grid].
+    static void count(byte [] cells, int width, int height) {
+        SensorCounter all = new SensorCounter(cells, width, height, 0, height);
+        if (cells.length < STRIPE_CELLS * 2) {
+            all.countRows();
+        } else {
+            ForkJoinPool.commonPool().invoke(all);
+        }
+    }
+
+    private SensorCounter(byte [] cells, int width, int height, int firstRow, int endRow) {
+        this.cells = cells;
+        this.width = width;
+        this.height = height;
+        this.firstRow = firstRow;
+        this.endRow = endRow;
+    }
+
+    @Override
+    protected void compute() {
+        int rows = endRow - firstRow;
+        if (rows < 2 || (long) rows * width <= STRIPE_CELLS) {
+            countRows();
+            return;
+        }
+        int middle = (firstRow + endRow) >>> 1;
+        invokeAll(new SensorCounter(cells, width, height, firstRow, middle),
+                  new SensorCounter(cells, width, height, middle, endRow));
+    }
+
+    private void countRows() {
+        int words = (width + 63) >>> 6;
+        long [] above = new long[words];
+        long [] level = new long[words];
+        long [] below = new long[words];
+        if (firstRow > 0) readMines(firstRow - 1, above);
+        readMines(firstRow, level);
+        for (int y = firstRow; y < endRow; y++) {
+            if (y + 1 < height) {
+                readMines(y + 1, below);
+            } else {
+                Arrays.fill(below, 0);
+            }
+            writeSensors(y, above, level, below);
+            long [] oldest = above;
+            above = level;
+            level = below;
+            below = oldest;
+        }
+    }
+
+    /// Pack the mines of row y into bits, tile x in bit x%64 of word x/64.
+    private void readMines(int y, long [] bits) {
+        Arrays.fill(bits, 0);
+        int base = y * width;
+        int x = 0;
+        for (; x + 8 <= width; x += 8) {
+            long types = ((long) LONGS.get(cells, base + x) >>> Grid.TYPE_SHIFT) & TYPE_BYTES;
+            long mines = types & ~(types >>> 1) & LOW_BITS;  // type 01 and not 10 or 11.
+            bits[x >>> 6] |= ((mines * GATHER) >>> 56) << (x & 63);
+        }
+        for (; x < width; x++) {
+            if ((cells[base + x] & Grid.TYPE_MASK) == GridTile.TYPE_MINE << Grid.TYPE_SHIFT) {
+                bits[x >>> 6] |= 1L << x;
+            }
+        }
+    }
+
+    private void writeSensors(int y, long [] above, long [] level, long [] below) {
+        int base = y * width;
+        int words = level.length;
+        for (int k = 0; k < words; k++) {
+            // the eight neighbours of the 64 tiles in word k.
+            long a = left(above, k), b = above[k], c = right(above, k);
+            long d = left(level, k), e = right(level, k);
+            long f = left(below, k), g = below[k], h = right(below, k);
+
+            // add them up, one bit of the count per long.
+            long s1 = a ^ b ^ c, c1 = (a & b) | (c & (a ^ b));
+            long s2 = d ^ e ^ f, c2 = (d & e) | (f & (d ^ e));
+            long s3 = g ^ h, c3 = g & h;
+            long bit0 = s1 ^ s2 ^ s3, c4 = (s1 & s2) | (s3 & (s1 ^ s2));
+            long s5 = c1 ^ c2 ^ c3, c5 = (c1 & c2) | (c3 & (c1 ^ c2));
+            long bit1 = s5 ^ c4, c6 = s5 & c4;
+            long bit2 = c5 ^ c6, bit3 = c5 & c6;
+
+            int x = k << 6;
+            int end = Math.min(width, x + 64);
+            for (; x + 8 <= end; x += 8) {
+                int shift = x & 63;
+                long sensors = SPREAD[(int) (bit0 >>> shift) & 0xFF]
+                             | SPREAD[(int) (bit1 >>> shift) & 0xFF] << 1
+                             | SPREAD[(int) (bit2 >>> shift) & 0xFF] << 2
+                             | SPREAD[(int) (bit3 >>> shift) & 0xFF] << 3;
+                long old = (long) LONGS.get(cells, base + x);
+                LONGS.set(cells, base + x, (old & ~SENSOR_BYTES) | sensors);
+            }
+            for (; x < end; x++) {
+                int sensor = (int) (bit0 >>> x & 1 | (bit1 >>> x & 1) << 1 | (bit2 >>> x & 1) << 2 | (bit3 >>> x & 1) << 3);
+                cells[base + x] = (byte) ((cells[base + x] & ~0x0F) | sensor);
+            }
+        }
+    }
+
+    /// @return the row shifted so that each bit holds its neighbour on the left.
+    private static long left(long [] row, int k) {
+        return row[k] << 1 | (k > 0 ? row[k - 1] >>> 63 : 0);
+    }
+
+    /// @return the row shifted so that each bit holds its neighbour on the right.
+    private static long right(long [] row, int k) {
+        return row[k] >>> 1 | (k + 1 < row.length ? row[k + 1] << 63 : 0);
+    }
+}
@@ -1,28 +1,31 @@
 package com.marginallyclever.slavadukerani;
 
-import javax.imageio.ImageIO;
 import javax.swing.*;
 import javax.swing.event.EventListenerList;
 import java.awt.*;
 import java.awt.event.*;
 import java.awt.image.BufferedImage;
-import java.io.File;
-import java.io.IOException;
-import java.io.InputStream;
-import java.net.URISyntaxException;
-import java.net.URL;
-import java.net.URLDecoder;
-import java.nio.charset.StandardCharsets;
-import java.util.*;
-import java.util.List;
-import java.util.jar.JarEntry;
-import java.util.jar.JarFile;
-
-/// Controls one "round" of the game, including the game state, rendering, and user input.
+import java.util.Objects;
+import java.util.Random;
+import java.util.function.Supplier;
+
+/// The view and controller for one "round" of the game: rendering and user input.  The rules and the game state live
+/// in a [GameEngine].
+///
+/// Can be embedded in a larger UX or used standalone.  Inside a [JScrollPane] it can be zoomed with Ctrl and the mouse
+/// wheel, see [#ZOOM_LEVELS].
 ///
-/// Can be embedded in a larger UX or used standalone.
+/// Every action runs in order on an [ActionQueue], off the Swing thread, so the window keeps painting and taking input
+/// while a big flood reveal is under way.  Input that arrives meanwhile is done afterward, in the order it came.
 public class SlavaDukerani extends JPanel {
+    /// tile sizes in pixels, from furthest out to closest in.  Below [GridPainter#AGGREGATE_BELOW] tiles are drawn as
+    /// plain colors.
+    public static final int [] ZOOM_LEVELS = { 1, 2, 3, 4, 6, 8, 12, 16, 24, 32, 48, 64 };
+    /// how often an action that runs longer than this repaints the view to show how far it got, in milliseconds.
+    public static final int BUSY_MILLIS = 50;
+
     public static void main( String[] args ) {
+        Startup.begin();
         // open a centered 800x600 window with the title "Slava Dukerani"
         var app = new SlavaDukerani(20,10, 30,(int)(Math.random()*1000000));
 
@@ -34,19 +37,40 @@ public class SlavaDukerani extends JPanel {
         frame.setVisible(true);
     }
 
-    private final Grid grid;
+    private final GameEngine engine;
+    private final Board grid;
     private GridTile hoverOver;  // the cursor is over this tile.
+    private FrontierIndex.Hint hint;  // shown until the next action.
+    private MineProbabilities probabilities;  // null unless they are shown.
+    private MineProbabilities.Result chances;  // the latest, which may be a few actions behind.
+    private boolean chancesQueued = false;
     private final EventListenerList listenerList = new EventListenerList();
+    private final ActionQueue actions = new ActionQueue();
+    // a Grid is a plain array of bytes, so painting it while an action runs just shows the action so far.  Any other
+    // board may change itself on a read, see ChunkedBoard, so painting it waits for the action to finish.
+    private final boolean lockWhilePainting;
+    private boolean repaintWhenIdle = false;
+    // when painting waits for an action, the last complete frame of the view is shown instead, from lastFrameArea.
+    private BufferedImage lastFrame;
+    private final Rectangle lastFrameArea = new Rectangle();
+    // ticks of the shared clock: one while an action runs, and one while a repaint waits for the next frame.
+    private final RenderClock clock = RenderClock.getInstance();
+    private final ActionListener busyTick = e -> whileBusy();
+    private long lastBusyRepaint = 0;
+    private boolean repaintOnClock = false;
+    private final Rectangle pendingRepaint = new Rectangle();
+    private final ActionListener repaintTick = e -> repaintPending();
+
+    private String playerArt;
+    private int tileSize = GridTile.SIZE_X;
 
-    private BufferedImage playerImage,
-            sensorImage;
-
-    private int px = 0, py = 0;  // player position
-    private int sx = 1, sy = 1;  // sensor position
-    private boolean gameOver = false;
-    private boolean youWon = false;
     private boolean initialized = false;
-    private final int sensorRange = 2; // range of the sensor
+    private boolean gameOverReported = false;
+    private boolean inputEnabled = true;
+    // the oldest input still waiting for a frame to show it, for GameEvents.InputLatency.
+    private long inputHandledNanos = 0;
+    private long inputQueuedMillis;
+    private String inputName;
 
 
     /// Construct a new SlavaDukerani game with the specified grid size, seed, and number of mines.
@@ -55,27 +79,96 @@ public class SlavaDukerani extends JPanel {
     /// @param seed       Seed for the random number generator.
     /// @param numMines   Number of mines to place on the grid.
     public SlavaDukerani(int gridWidth, int gridHeight,int seed,int numMines) {
-        super(new BorderLayout(5, 5));
-        grid = new Grid(gridWidth, gridHeight, seed, numMines);
-        getReady();
+        this(new GameEngine(gridWidth, gridHeight, seed, numMines));
     }
 
     public SlavaDukerani(String gridString) {
+        this(new GameEngine(gridString));
+    }
+
+    public SlavaDukerani(GameEngine engine) {
         super(new BorderLayout(5, 5));
-        grid = new Grid(gridString);
+        this.engine = engine;
+        this.grid = engine.getBoard();
+        this.lockWhilePainting = !(grid instanceof Grid);
         getReady();
     }
 
-    private void getReady() {
-        setSize(grid.getGridWidth() * GridTile.SIZE_X, grid.getGridHeight() * GridTile.SIZE_Y);
-        setMinimumSize  (new Dimension(grid.getGridWidth() * GridTile.SIZE_X, grid.getGridHeight() * GridTile.SIZE_Y));
-        setPreferredSize(new Dimension(grid.getGridWidth() * GridTile.SIZE_X, grid.getGridHeight() * GridTile.SIZE_Y));
-        setMaximumSize  (new Dimension(grid.getGridWidth() * GridTile.SIZE_X, grid.getGridHeight() * GridTile.SIZE_Y));
+    public GameEngine getEngine() {
+        return engine;
+    }
 
+    private void getReady() {
+        updateSize();
         attachMouseListeners();
         attachKeyboardListeners();
     }
 
+    private void updateSize() {
+        Dimension size = new Dimension(grid.getGridWidth() * tileSize, grid.getGridHeight() * tileSize);
+        setSize(size);
+        setMinimumSize(size);
+        setPreferredSize(size);
+        setMaximumSize(size);
+    }
+
+    /// @return the width and height of one tile in pixels at the current zoom.
+    public int getTileSize() {
+        return tileSize;
+    }
+
+    /// @return true if the whole board fits in an int of pixels with tiles of this size.
+    private boolean fits(int size) {
+        return (long) grid.getGridWidth() * size <= Integer.MAX_VALUE
+            && (long) grid.getGridHeight() * size <= Integer.MAX_VALUE;
+    }
+
+    /// Zoom in or out by a number of [#ZOOM_LEVELS], keeping the tile under anchor where it is.
+    /// @param steps  positive to zoom in, negative to zoom out.
+    /// @param anchor a point on this panel, or null for the middle of the view.
+    public void zoom(int steps, Point anchor) {
+        int level = 0;
+        while (level + 1 < ZOOM_LEVELS.length && ZOOM_LEVELS[level + 1] <= tileSize) level++;
+        level = Math.max(0, Math.min(ZOOM_LEVELS.length - 1, level + steps));
+        while (level > 0 && !fits(ZOOM_LEVELS[level])) level--;
+        setTileSize(ZOOM_LEVELS[level], anchor);
+    }
+
+    /// @param size   the new width and height of one tile in pixels.
+    /// @param anchor a point on this panel that should show the same tile afterward, or null for the middle of the view.
+    public void setTileSize(int size, Point anchor) {
+        if (size < 1 || !fits(size)) throw new IllegalArgumentException("Tile size " + size + " is out of range.");
+        if (size == tileSize) return;
+        Rectangle view = getVisibleRect();
+        if (anchor == null) anchor = new Point(view.x + view.width / 2, view.y + view.height / 2);
+        // where the anchor is in the view, and which part of which tile it is over.
+        int offsetX = anchor.x - view.x, offsetY = anchor.y - view.y;
+        double tileX = anchor.x / (double) tileSize, tileY = anchor.y / (double) tileSize;
+
+        tileSize = size;
+        updateSize();
+        if (getParent() instanceof JViewport viewport) {
+            viewport.setViewSize(getPreferredSize());
+            scrollTo(viewport, (int) (tileX * size) - offsetX, (int) (tileY * size) - offsetY);
+        }
+        revalidate();
+        repaint();
+    }
+
+    /// Scroll so that tile (x,y) is in the middle of the view.
+    public void centerOn(int x, int y) {
+        if (!(getParent() instanceof JViewport viewport)) return;
+        Dimension extent = viewport.getExtentSize();
+        scrollTo(viewport, x * tileSize + tileSize / 2 - extent.width / 2, y * tileSize + tileSize / 2 - extent.height / 2);
+    }
+
+    private void scrollTo(JViewport viewport, int x, int y) {
+        Dimension extent = viewport.getExtentSize();
+        x = Math.max(0, Math.min(x, getWidth() - extent.width));
+        y = Math.max(0, Math.min(y, getHeight() - extent.height));
+        viewport.setViewPosition(new Point(x, y));
+    }
+
     void onFirstFrame() throws Exception {
         System.out.println("Initializing game...");
         //initToolBar();
@@ -88,7 +181,11 @@ public class SlavaDukerani extends JPanel {
         addKeyListener(new KeyAdapter() {
             @Override
             public void keyPressed(KeyEvent e) {
-                if(gameOver || !initialized) return;
+                if(engine.isGameOver() || !initialized || !inputEnabled) return;
+                handleKey(e, "Key " + KeyEvent.getKeyText(e.getKeyCode()));
+            }
+
+            private void handleKey(KeyEvent e, String name) {
                 int dx=0,dy=0;
                 switch(e.getKeyCode()) {
                     case KeyEvent.VK_W, KeyEvent.VK_UP   :  dy=-1;  break;
@@ -96,62 +193,237 @@ public class SlavaDukerani extends JPanel {
                     case KeyEvent.VK_A, KeyEvent.VK_LEFT :  dx=-1;  break;
                     case KeyEvent.VK_D, KeyEvent.VK_RIGHT:  dx= 1;  break;
                     // key events for users with one-button mice or who prefer keyboard controls.
-                    case KeyEvent.VK_Q                   :  clickEvent(true,false);  return; // left click
-                    case KeyEvent.VK_E                   :  clickEvent(false,true);  return; // right click
+                    case KeyEvent.VK_Q                   :  clickEvent(e,name,true,false);  return; // left click
+                    case KeyEvent.VK_E                   :  clickEvent(e,name,false,true);  return; // right click
                     default: return; // ignore other keys
                 }
-                movePlayer(dx, dy);
+                int stepX=dx, stepY=dy;
+                queue(e, name, () -> movePlayer(stepX, stepY));
             }
         });
     }
 
-    private void movePlayer(int dx, int dy) {
-        int x = px+dx;
-        int y = py+dy;
-        // check bounds
-        if (x<0 || x>= grid.getGridWidth() || y<0 || y>= grid.getGridHeight()) return;
-        // check for mine
-        var tile = grid.getTile(x,y);
+    /// Run an action on the [ActionQueue], behind any actions still waiting.
+    /// @param e      the input that asked for it, to time how long it takes to show, or null.
+    /// @param action runs off the Swing thread.  Returns what to do on the Swing thread afterward, or null.
+    private void queue(InputEvent e, String name, Supplier<Runnable> action) {
+        long handled = System.nanoTime();
+        actions.submit(() -> {
+            Runnable then = action.get();
+            return () -> {
+                clearHint();
+                if(then != null) then.run();
+                if(probabilities != null) updateProbabilities();
+                if(e != null) inputHandled(e, name, handled);
+                if(repaintWhenIdle) {
+                    repaintWhenIdle = false;
+                    repaint();
+                }
+            };
+        });
+        clock.addTickListener(busyTick);
+    }
 
-        // walking into an unknown tile reveals that tile.
-        if(tile.hidden) {
-            if(grid.revealTile(tile.x,tile.y)) {
-                fireGameOver(false);
-            }
+    /// While an action runs long, show the wait cursor and, if the board can be painted mid-action, repaint the view so
+    /// that a big flood reveal shows up as it spreads.
+    private void whileBusy() {
+        if(!actions.isBusy()) {
+            clock.removeTickListener(busyTick);
+            setCursor(null);
+            return;
         }
+        if(actions.getRunningNanos() < BUSY_MILLIS * 1_000_000L) return;
+        setCursor(Cursor.getPredefinedCursor(Cursor.WAIT_CURSOR));
+        long now = System.nanoTime();
+        if(lockWhilePainting || now - lastBusyRepaint < BUSY_MILLIS * 1_000_000L) return;
+        lastBusyRepaint = now;
+        repaint(getVisibleRect());
+    }
+
+    /// @return true if [#hint()] and [#setShowProbabilities(boolean)] work on this board.  They need a [Grid], not a
+    /// huge map.
+    public boolean canAnalyze() {
+        return grid instanceof Grid;
+    }
 
-        if(tile.type == GridTile.TYPE_MINE) {
-            // you died, game over
-            System.out.println("You died.  Game over!");
-            fireGameOver(false);
-        } else if(tile.type == GridTile.TYPE_EXIT) {
-            // you win!
-            System.out.println("You win!");
-            fireGameOver(true);
+    /// Circle a tile that is provably safe or provably a mine, found by the [FrontierIndex] of the grid, until the next
+    /// action.  Does nothing unless [#canAnalyze()].
+    public void hint() {
+        if(engine.isGameOver() || !initialized || !inputEnabled) return;
+        if(!(grid instanceof Grid g)) return;
+        // asked on the queue, so the hint is about the board after every action before it.
+        actions.submit(() -> {
+            long start = PerformanceMetrics.start();
+            FrontierIndex.Hint found = g.getFrontierIndex().findHint(engine.getSensorX(), engine.getSensorY());
+            PerformanceMetrics.HINT.recordSince(start);
+            return () -> showHint(found);
+        });
+    }
+
+    private void showHint(FrontierIndex.Hint found) {
+        clearHint();
+        if(found == null) {
+            JOptionPane.showMessageDialog(this, "Nothing can be proven.  The next move is a guess.", "Hint",
+                    JOptionPane.INFORMATION_MESSAGE);
+            return;
         }
-        // if pushing into the sensor, try to push the sensor
-        if(sx==x && sy==y) {
-            int bx2 = sx +dx;
-            int by2 = sy +dy;
-            if (bx2<0 || bx2>= grid.getGridWidth() || by2<0 || by2>= grid.getGridHeight()) return; // box out of bounds
-            var tile2 = grid.getTile(bx2,by2);
-            if(tile2.type == GridTile.TYPE_MINE) {
-                // equipment destroyed, game over.
-                System.out.println("Equipment destroyed.  Game over!");
-                fireGameOver(false);
-            }
-            if(tile2.type == GridTile.TYPE_EXIT) {
-                // box pushed onto exit, you win!
-                System.out.println("You win!");
-                fireGameOver(true);
-            }
-            // move sensor
-            sx = bx2;
-            sy = by2;
+        hint = found;
+        repaintTiles(hint.x(),hint.y(),hint.x(),hint.y());
+        Rectangle tile = new Rectangle(hint.x() * tileSize, hint.y() * tileSize, tileSize, tileSize);
+        if(!getVisibleRect().contains(tile)) centerOn(hint.x(), hint.y());
+    }
+
+    private void clearHint() {
+        if(hint == null) return;
+        repaintTiles(hint.x(),hint.y(),hint.x(),hint.y());
+        hint = null;
+    }
+
+    /// Shade each hidden tile by its chance of holding a mine, worked out by [MineProbabilities] in the background after
+    /// each action.  Does nothing unless [#canAnalyze()].
+    public void setShowProbabilities(boolean show) {
+        if(show == (probabilities != null)) return;
+        if(!show) {
+            probabilities.close();
+            probabilities = null;
+            chances = null;
+            repaint(getVisibleRect());
+            return;
         }
-        px = x;
-        py = y;
-        repaint();
+        if(!canAnalyze()) return;
+        probabilities = new MineProbabilities(result -> {
+            chances = result;
+            repaint(getVisibleRect());
+        });
+        updateProbabilities();
+    }
+
+    // taken on the queue, so it sees the board after every action before it.  While one is waiting to be taken, it
+    // will already see any later action.
+    private void updateProbabilities() {
+        if(chancesQueued) return;
+        chancesQueued = true;
+        MineProbabilities target = probabilities;
+        actions.submit(() -> {
+            MineProbabilities.Problem problem = MineProbabilities.capture((Grid)grid, engine.getSensorX(), engine.getSensorY());
+            target.update(problem);
+            return () -> chancesQueued = false;
+        });
+    }
+
+    /// Run then on the Swing thread once every action queued so far is done.  No action runs until it returns, so it
+    /// can read the engine safely, as to save the game.
+    public void whenIdle(Runnable then) {
+        actions.submit(() -> then);
+    }
+
+    /// Drop any actions still waiting.  Call when this game is thrown away.
+    public void stopActions() {
+        actions.close();
+        clock.removeTickListener(busyTick);
+        clock.removeTickListener(repaintTick);
+        if(probabilities != null) probabilities.close();
+    }
+
+    private Runnable movePlayer(int dx, int dy) {
+        int oldPX = engine.getPlayerX(), oldPY = engine.getPlayerY();
+        int oldSX = engine.getSensorX(), oldSY = engine.getSensorY();
+        var result = engine.move(dx,dy);
+        return () -> {
+            repaintPlayerAndSensor(oldPX,oldPY,oldSX,oldSY);
+            handleResult(result,false);
+        };
+    }
+
+    /// Repaint where the player and sensor were and are now.  The sensor range shows different numbers.
+    private void repaintPlayerAndSensor(int oldPX, int oldPY, int oldSX, int oldSY) {
+        repaintTiles(oldPX,oldPY,oldPX,oldPY);
+        repaintTiles(engine.getPlayerX(),engine.getPlayerY(),engine.getPlayerX(),engine.getPlayerY());
+        if(oldSX!=engine.getSensorX() || oldSY!=engine.getSensorY()) {
+            repaintSensorRange(oldSX,oldSY);
+            repaintSensorRange(engine.getSensorX(),engine.getSensorY());
+        }
+        // the hover highlight color depends on where the player is.
+        if(hoverOver!=null) repaintTiles(hoverOver.x,hoverOver.y,hoverOver.x,hoverOver.y);
+    }
+
+    /// Repaint the tiles changed by the last action and report the end of the game, if it ended.
+    /// @param flagsOnly true if the action only changed flags.
+    private void handleResult(GameEngine.Result result, boolean flagsOnly) {
+        ChangedTiles changes = engine.getChangedTiles();
+        if(!changes.isEmpty()) {
+            repaintTiles(changes.getMinX(),changes.getMinY(),changes.getMaxX(),changes.getMaxY());
+        }
+        fireBoardChanged(flagsOnly);
+        if(!result.isGameOver() || gameOverReported) return;
+        switch(result) {
+            case WON              -> System.out.println("You win!");
+            case POKED_MINE       -> System.out.println("Poked a mine.  Game over!");
+            case WALKED_ONTO_MINE -> System.out.println("You died.  Game over!");
+            case SENSOR_ONTO_MINE -> System.out.println("Equipment destroyed.  Game over!");
+        }
+        fireGameOver(result == GameEngine.Result.WON);
+    }
+
+    /// Start timing an input that asked for a repaint.  The next frame reports how long it took to show.
+    private void inputHandled(InputEvent e, String name, long handledNanos) {
+        if(inputHandledNanos != 0) return;
+        if(RepaintManager.currentManager(this).getDirtyRegion(this).isEmpty()) return;
+        inputHandledNanos = handledNanos;
+        inputQueuedMillis = Math.max(0, System.currentTimeMillis() - e.getWhen());
+        inputName = name;
+    }
+
+    private void reportInputLatency() {
+        if(inputHandledNanos == 0) return;
+        long latency = System.nanoTime() - inputHandledNanos;
+        inputHandledNanos = 0;
+        if(PerformanceMetrics.isEnabled()) PerformanceMetrics.INPUT_LATENCY.record(latency);
+        GameEvents.InputLatency event = new GameEvents.InputLatency();
+        if(event.shouldCommit()) {
+            event.input = inputName;
+            event.latency = latency;
+            event.queued = inputQueuedMillis;
+            event.commit();
+        }
+    }
+
+    private void repaintSensorRange(int sensorX, int sensorY) {
+        int range = GameEngine.SENSOR_RANGE;
+        repaintTiles(sensorX-range,sensorY-range,sensorX+range,sensorY+range);
+    }
+
+    /// Request a repaint of the tiles from (x0,y0) to (x1,y1) inclusive.  The margin covers tile borders and the hover
+    /// highlight, which spill one pixel past the tile edge.
+    private void repaintTiles(int x0, int y0, int x1, int y1) {
+        final int margin = 2;
+        Rectangle tiles = new Rectangle(x0 * tileSize - margin,
+                y0 * tileSize - margin,
+                (x1 - x0 + 1) * tileSize + margin * 2,
+                (y1 - y0 + 1) * tileSize + margin * 2);
+        if(!repaintOnClock) {
+            repaint(tiles);
+        } else if(pendingRepaint.isEmpty()) {
+            pendingRepaint.setBounds(tiles);
+            clock.addTickListener(repaintTick);
+        } else {
+            pendingRepaint.add(tiles);
+        }
+    }
+
+    /// @param onClock true to hold repaints until the next tick of the [RenderClock], as in a [Tournament].  However
+    /// many actions happen between two ticks, the board is then painted at most once, and only where it is in view.
+    /// Scrolling a part into view paints it anyway.
+    public void setRepaintOnClock(boolean onClock) {
+        if(!onClock) repaintPending();
+        repaintOnClock = onClock;
+    }
+
+    private void repaintPending() {
+        clock.removeTickListener(repaintTick);
+        Rectangle visible = pendingRepaint.intersection(getVisibleRect());
+        pendingRepaint.setBounds(0, 0, 0, 0);
+        if(!visible.isEmpty()) repaint(visible);
     }
 
     private void attachMouseListeners() {
@@ -166,7 +438,7 @@ public class SlavaDukerani extends JPanel {
                 if(isLeft) leftDown=true;
                 if(isRight) rightDown=true;
                 //System.out.println("Mouse pressed at: " + e.getX() + "," + e.getY()+"  Left: "+leftDown+"  Right: "+rightDown);
-                clickEvent(leftDown,rightDown);
+                clickEvent(e, "Mouse " + (leftDown ? "left" : "") + (rightDown ? "right" : ""), leftDown, rightDown);
             }
 
             @Override
@@ -181,91 +453,144 @@ public class SlavaDukerani extends JPanel {
         addMouseMotionListener(new MouseMotionAdapter() {
             @Override
             public void mouseMoved(MouseEvent e) {
-                hoverOver = null;
-                if(gameOver || !initialized) return;
-                // get tile at cursor position.
-                int x = e.getX()/(getWidth()/ grid.getGridWidth());
-                int y = e.getY()/(getHeight()/ grid.getGridHeight());
-                if (x<0 || x>= grid.getGridWidth() ||
-                    y<0 || y>= grid.getGridHeight()) return;
-                // show sensor value in title bar
-                hoverOver = grid.getTile(x,y);
-                repaint();
+                GridTile next = null;
+                if(!engine.isGameOver() && initialized) {
+                    // get tile at cursor position.
+                    int x = e.getX()/tileSize;
+                    int y = e.getY()/tileSize;
+                    if (x>=0 && x< grid.getGridWidth() &&
+                        y>=0 && y< grid.getGridHeight()) {
+                        next = grid.getTile(x,y);
+                    }
+                }
+                // only repaint when the highlight moves to a different tile.
+                if(Objects.equals(next,hoverOver)) return;
+                if(hoverOver!=null) repaintTiles(hoverOver.x,hoverOver.y,hoverOver.x,hoverOver.y);
+                hoverOver = next;
+                if(hoverOver!=null) repaintTiles(hoverOver.x,hoverOver.y,hoverOver.x,hoverOver.y);
             }
         });
+        addMouseWheelListener(e -> {
+            if(e.isControlDown()) {
+                zoom(-e.getWheelRotation(), e.getPoint());
+                return;
+            }
+            // a component with a wheel listener hides the wheel from its scroll pane, so pass it on.
+            JScrollPane pane = (JScrollPane) SwingUtilities.getAncestorOfClass(JScrollPane.class, this);
+            if(pane != null) pane.dispatchEvent(SwingUtilities.convertMouseEvent(this, e, pane));
+        });
     }
 
-    private void clickEvent(boolean isLeft, boolean isRight) {
-        if(gameOver || !initialized) return;
+    private void clickEvent(InputEvent e, String name, boolean isLeft, boolean isRight) {
+        if(engine.isGameOver() || !initialized || !inputEnabled) return;
         // get tile at cursor position.
         if (hoverOver==null) return;
         int mouseX = hoverOver.x;
         int mouseY = hoverOver.y;
-        GridTile tile = grid.getTile(mouseX,mouseY);
 
         // right click
         if(isRight) {
             // on hidden tile to flag/unflag it.
-            if (tile.hidden) {
-                tile.flagged = !tile.flagged;
-                fireFlagChanged();
-                repaint();
-            }
+            queue(e, name, () -> doFlag(mouseX, mouseY));
         }
 
         // left click
         if(isLeft) {
-            // on a hidden tile with no flag to reveal it.
-            if (tile.hidden) {
-                if (!tile.flagged) {
-                    if(grid.revealTile(mouseX, mouseY)) {
-                        fireGameOver(false);
-                    }
-                }
-            } else {
-                // on a revealed tile to move player there if adjacent.
-                if ((tile.x == px && Math.abs(tile.y - py) == 1) ||
-                    (tile.y == py && Math.abs(tile.x - px) == 1)) {
-                    movePlayer(tile.x - px, tile.y - py);
-                }
-            }
-            repaint();
+            queue(e, name, () -> leftClick(mouseX, mouseY));
         }
 
         if(isLeft && isRight) {
             // "chording", aka the double-click technique where you click both buttons on a revealed tile
             // to reveal all adjacent hidden tiles if the number of adjacent flags equals the sensor value.
-            doChord(tile);
+            queue(e, name, () -> doChord(mouseX, mouseY));
         }
     }
 
-    private void doChord(GridTile tile) {
-        if(!tile.hidden && tile.sensorValue > 0) {
-            int adjacentFlags = 0;
-            List<GridTile> adjacentHidden = new ArrayList<>();
-            for(int dx=-1; dx<=1; dx++) {
-                for(int dy=-1; dy<=1; dy++) {
-                    if(dx==0 && dy==0) continue;
-                    int ax = tile.x + dx;
-                    int ay = tile.y + dy;
-                    if (ax<0 || ax>= grid.getGridWidth() || ay<0 || ay>= grid.getGridHeight()) continue;
-                    var t = grid.getTile(ax,ay);
-                    if(t.flagged) adjacentFlags++;
-                    if(t.hidden) adjacentHidden.add(t);
-                }
-            }
-            if(adjacentFlags == tile.sensorValue) {
-                boolean failed = false;
-                for(var t : adjacentHidden) {
-                    if(!t.flagged) {
-                        failed |= grid.revealTile(t.x, t.y);
-                    }
-                }
-                if(failed) {
-                    fireGameOver(false);
-                }
-            }
+    /// What a left click does depends on the board when its turn comes, after any actions still waiting.
+    private Runnable leftClick(int x, int y) {
+        if (grid.isHidden(x, y)) {
+            // on a hidden tile with no flag to reveal it.
+            return doReveal(x, y);
+        } else if (engine.isNextToPlayer(x, y)) {
+            // on a revealed tile to move player there if adjacent.
+            return movePlayer(x - engine.getPlayerX(), y - engine.getPlayerY());
+        } else if (grid.getSensorValue(x, y) == 0) {
+            // on a revealed empty tile to carry on a flood that was cut short on a huge map.
+            return doChord(x, y);
         }
+        return null;
+    }
+
+    private Runnable doFlag(int x, int y) {
+        var result = engine.toggleFlag(x, y);
+        boolean changed = !engine.getChangedTiles().isEmpty();
+        return () -> {
+            if(changed) fireFlagChanged();
+            handleResult(result,true);
+        };
+    }
+
+    private Runnable doReveal(int x, int y) {
+        var result = engine.reveal(x, y);
+        return () -> handleResult(result,false);
+    }
+
+    private Runnable doChord(int x, int y) {
+        var result = engine.chord(x, y);
+        return () -> handleResult(result,false);
+    }
+
+    /// Take back the last action, if the engine has an [UndoHistory].  Works after the game is over, too.  Taking back
+    /// the action that ended the game tells [GameOverListener#gameResumed()].
+    public void undo() {
+        if(!initialized || !inputEnabled) return;
+        queue(null, null, this::doUndo);
+    }
+
+    private Runnable doUndo() {
+        int oldPX = engine.getPlayerX(), oldPY = engine.getPlayerY();
+        int oldSX = engine.getSensorX(), oldSY = engine.getSensorY();
+        boolean wasOver = engine.isGameOver();
+        int oldFlags = grid.getFlagCount();
+        if(!engine.undo()) return null;
+        // a flag step changes the flag count.  Any other step hides the tiles it revealed.
+        boolean flagsOnly = grid.getFlagCount() != oldFlags;
+        boolean resumed = wasOver && !engine.isGameOver();
+        return () -> {
+            repaintPlayerAndSensor(oldPX,oldPY,oldSX,oldSY);
+            ChangedTiles changes = engine.getChangedTiles();
+            if(!changes.isEmpty()) {
+                repaintTiles(changes.getMinX(),changes.getMinY(),changes.getMaxX(),changes.getMaxY());
+                fireFlagChanged();
+            }
+            fireBoardChanged(flagsOnly);
+            if(resumed) fireGameResumed();
+        };
+    }
+
+    /// Perform one action from a [GameJournal] as if the player had done it, behind any actions still waiting.
+    void play(GameJournal.Action action, int x, int y) {
+        queue(null, null, () -> switch(action) {
+            case REVEAL -> doReveal(x, y);
+            case FLAG -> doFlag(x, y);
+            case CHORD -> doChord(x, y);
+            case UNDO -> doUndo();
+            default -> movePlayer(action.dx, action.dy);
+        });
+    }
+
+    /// @param enabled false to ignore the mouse and keyboard, as while a journal plays back.
+    public void setInputEnabled(boolean enabled) {
+        inputEnabled = enabled;
+    }
+
+    /// @param win if true the game is also won by revealing every tile that is not a mine.
+    public void setWinWhenAllSafeRevealed(boolean win) {
+        engine.setWinWhenAllSafeRevealed(win);
+    }
+
+    public boolean getWinWhenAllSafeRevealed() {
+        return engine.getWinWhenAllSafeRevealed();
     }
 
     public void addFlagChangeListener(FlagChangeListener listener) {
@@ -276,16 +601,23 @@ public class SlavaDukerani extends JPanel {
     }
 
     private void fireFlagChanged() {
-        int numFlags = 0;
-        for (int x = 0; x< grid.getGridWidth(); x++) {
-            for (int y = 0; y< grid.getGridHeight(); y++) {
-                if(grid.getTile(x,y).flagged) numFlags++;
-            }
+        int numFlags = grid.getFlagCount();
+        for (FlagChangeListener listener : listenerList.getListeners(FlagChangeListener.class)) {
+            listener.flagCountChanged(numFlags);
         }
+    }
 
-        for (FlagChangeListener listener : listenerList.getListeners(FlagChangeListener.class)) {
+    public void addBoardChangeListener(BoardChangeListener listener) {
+        listenerList.add(BoardChangeListener.class, listener);
+    }
+    public void removeBoardChangeListener(BoardChangeListener listener) {
+        listenerList.remove(BoardChangeListener.class, listener);
+    }
 
-            listener.flagCountChanged(numFlags);
+    private void fireBoardChanged(boolean flagsOnly) {
+        ChangedTiles changes = engine.getChangedTiles();
+        for (BoardChangeListener listener : listenerList.getListeners(BoardChangeListener.class)) {
+            listener.boardChanged(changes, flagsOnly);
         }
     }
 
@@ -297,18 +629,31 @@ public class SlavaDukerani extends JPanel {
     }
 
     private void fireGameOver(boolean won) {
-        gameOver = true;
-        youWon = won;
+        gameOverReported = true;
+        // the banner and the hidden mines cover the whole board.
+        repaint();
         for (GameOverListener listener : listenerList.getListeners(GameOverListener.class)) {
             listener.gameOver(won);
         }
     }
 
+    private void fireGameResumed() {
+        gameOverReported = false;
+        // the banner and the mines it showed cover the whole board.
+        repaint();
+        for (GameOverListener listener : listenerList.getListeners(GameOverListener.class)) {
+            listener.gameResumed();
+        }
+    }
+
     private void initGame() {
     }
 
     @Override
     protected void paintComponent(Graphics g) {
+        GameEvents.Frame event = new GameEvents.Frame();
+        long start = PerformanceMetrics.start();
+        event.begin();
         super.paintComponent(g);
 
         if (!initialized) {
@@ -321,47 +666,107 @@ public class SlavaDukerani extends JPanel {
             initialized=true;
         }
 
-        grid.paintComponent(g,gameOver);
+        if(!lockWhilePainting) {
+            paintBoard(g);
+        } else if(actions.getLock().tryLock()) {
+            try {
+                paintThroughLastFrame(g);
+            } finally {
+                actions.getLock().unlock();
+            }
+        } else {
+            // an action is changing the board.  Show the last frame until the action is done, then paint it again.
+            if(lastFrame != null) g.drawImage(lastFrame, lastFrameArea.x, lastFrameArea.y, null);
+            repaintWhenIdle = true;
+            return;
+        }
+
+        PerformanceMetrics.FRAME.recordSince(start);
+        if(event.shouldCommit()) {
+            Rectangle clip = g.getClipBounds();
+            event.clipWidth = clip == null ? getWidth() : clip.width;
+            event.clipHeight = clip == null ? getHeight() : clip.height;
+            event.commit();
+        }
+        reportInputLatency();
+        Startup.frameShown();
+    }
+
+    /// Paint the board into [#lastFrame] and copy that to the screen, so there is a frame to show while an action holds
+    /// the board.  Only the clipped part is painted, unless the view moved or changed size since the last frame.
+    private void paintThroughLastFrame(Graphics g) {
+        Rectangle view = getVisibleRect();
+        if(view.isEmpty()) return;
+        Rectangle clip = g.getClipBounds();
+        Rectangle area = (clip == null) ? new Rectangle(view) : clip.intersection(view);
+        if(lastFrame == null || lastFrame.getWidth() != view.width || lastFrame.getHeight() != view.height) {
+            lastFrame = ArtCache.createCompatibleImage(view.width, view.height, Transparency.OPAQUE);
+            area = new Rectangle(view);
+        } else if(!lastFrameArea.equals(view)) {
+            area = new Rectangle(view);
+        }
+        lastFrameArea.setBounds(view);
+        if(area.isEmpty()) return;
+
+        Graphics2D frame = lastFrame.createGraphics();
+        try {
+            frame.translate(-view.x, -view.y);
+            frame.setClip(area);
+            frame.setColor(getBackground());
+            frame.fill(area);
+            paintBoard(frame);
+        } finally {
+            frame.dispose();
+        }
+        g.drawImage(lastFrame, view.x, view.y, null);
+    }
+
+    private void paintBoard(Graphics g) {
+        boolean gameOver = engine.isGameOver();
+        GridPainter.paint(g,grid,gameOver,tileSize);
+        if(chances != null && !gameOver) GridPainter.paintProbabilities(g,grid,chances,tileSize);
 
-        PanelHelper.drawImage(g, playerImage, px, py, Color.BLUE);
-        PanelHelper.drawImage(g, sensorImage, sx, sy,Color.ORANGE);
+        ArtCache art = ArtCache.getInstance();
+        BufferedImage playerImage = playerArt == null ? null : art.getImage(playerArt, tileSize);
+        PanelHelper.drawImage(g, playerImage, engine.getPlayerX(), engine.getPlayerY(), Color.BLUE, tileSize);
+        PanelHelper.drawImage(g, art.getImage(ArtCache.SENSOR, tileSize), engine.getSensorX(), engine.getSensorY(), Color.ORANGE, tileSize);
         highlightHoverOver(g);
+        drawHint(g);
         drawSensorRange(g);
 
         if(gameOver) {
-            // draw game over text
-            String text = youWon ? "You Win!" : "Game Over";
-            Font oldFont = g.getFont();
-            Font bold32 = oldFont.deriveFont(Font.BOLD, 64f);
-            g.setFont(bold32);
-            FontMetrics fm = g.getFontMetrics(bold32);
-            int sx = (getWidth() - fm.stringWidth(text)) / 2;
-            int sy = (getHeight() - fm.getHeight()) / 2 + fm.getAscent();
-            g.setColor(youWon ? Color.BLUE : Color.RED);
-            g.drawString(text, sx, sy);
-            g.setFont(oldFont);
+            // centered in the view, which may be a small part of a big board.
+            Rectangle view = getVisibleRect();
+            if(view.isEmpty()) view = new Rectangle(0, 0, getWidth(), getHeight());
+            g.translate(view.x, view.y);
+            GlyphCache.getInstance().drawBanner(g, engine.isWon(), view.width, view.height);
+            g.translate(-view.x, -view.y);
         }
     }
 
     // illustrate sensor range
     private void drawSensorRange(Graphics g) {
+        int sx = engine.getSensorX();
+        int sy = engine.getSensorY();
+        int sensorRange = GameEngine.SENSOR_RANGE;
         g.setColor(new Color(255, 165, 0, 32)); // semi-transparent orange
-        int sensorDrawX = (sx -sensorRange)* GridTile.SIZE_X;
-        int sensorDrawY = (sy -sensorRange)* GridTile.SIZE_Y;
-        int sensorDrawSizeX = (sensorRange*2+1)* GridTile.SIZE_X;
-        int sensorDrawSizeY = (sensorRange*2+1)* GridTile.SIZE_Y;
+        int sensorDrawX = (sx -sensorRange)* tileSize;
+        int sensorDrawY = (sy -sensorRange)* tileSize;
+        int sensorDrawSizeX = (sensorRange*2+1)* tileSize;
+        int sensorDrawSizeY = (sensorRange*2+1)* tileSize;
         g.fillRect(sensorDrawX, sensorDrawY, sensorDrawSizeX, sensorDrawSizeY);
 
-        for(int x=0; x< grid.getGridWidth(); x++) {
-            for(int y=0; y< grid.getGridHeight(); y++) {
-                var tile = grid.getTile(x,y);
-                if (tile.sensorValue > 0 && !tile.hidden) {
-                    // if bx/by is within sensorRange of this tile, show sensor value
-                    if(Math.abs(tile.x- sx) <= sensorRange && Math.abs(tile.y- sy) <= sensorRange) {
-                        var drawX = tile.x * GridTile.SIZE_X;
-                        var drawY = tile.y * GridTile.SIZE_Y;
-                        drawSensorValue(g,drawX,drawY,tile.sensorValue);
-                    }
+        // only the tiles within sensorRange of the sensor can show a value.
+        int x0 = Math.max(0, sx - sensorRange);
+        int y0 = Math.max(0, sy - sensorRange);
+        int x1 = Math.min(grid.getGridWidth() - 1, sx + sensorRange);
+        int y1 = Math.min(grid.getGridHeight() - 1, sy + sensorRange);
+        GlyphCache glyphs = GlyphCache.getInstance();
+        for(int x=x0; x<=x1; x++) {
+            for(int y=y0; y<=y1; y++) {
+                int sensorValue = grid.getSensorValue(x,y);
+                if (sensorValue > 0 && !grid.isHidden(x,y)) {
+                    glyphs.drawSensorValue(g,x * tileSize,y * tileSize,sensorValue,tileSize);
                 }
             }
         }
@@ -371,95 +776,32 @@ public class SlavaDukerani extends JPanel {
     private void highlightHoverOver(Graphics g) {
         if(hoverOver==null) return;
 
-        int drawX = hoverOver.x* GridTile.SIZE_X;
-        int drawY = hoverOver.y* GridTile.SIZE_Y;
+        int drawX = hoverOver.x* tileSize;
+        int drawY = hoverOver.y* tileSize;
         // if hoverOver is cardinal with and adjacent to the player, highlight in green, otherwise yellow.
-        if((hoverOver.x==px && Math.abs(hoverOver.y-py)==1) ||
-           (hoverOver.y==py && Math.abs(hoverOver.x-px)==1)) {
+        if(engine.isNextToPlayer(hoverOver.x,hoverOver.y)) {
             g.setColor(Color.GREEN);
         } else {
             g.setColor(Color.YELLOW);
         }
         Graphics2D g2d = (Graphics2D) g;
         g2d.setStroke(new BasicStroke(2));
-        g2d.drawRect(drawX, drawY, GridTile.SIZE_X, GridTile.SIZE_Y);
-    }
-
-    private void drawSensorValue(Graphics g, int drawX, int drawY, int sensorValue) {
-        // set bold 16px font and center the text using FontMetrics
-        Font oldFont = g.getFont();
-        Font bold16 = oldFont.deriveFont(Font.BOLD, 16f);
-        g.setFont(bold16);
-        FontMetrics fm = g.getFontMetrics(bold16);
-        String text = Integer.toString(sensorValue);
-        int sx = drawX + (GridTile.SIZE_X - fm.stringWidth(text)) / 2;
-        int sy = drawY + (GridTile.SIZE_Y - fm.getHeight()) / 2 + fm.getAscent();
-        g.setColor(Color.BLACK);
-        g.drawString(text, sx, sy);
-        g.setFont(oldFont);
-    }
-
-    // load artwork from resources.  Called once on the first frame.
-    private void initArt() throws IOException {
-        // load all Duke images from the "dukes" folder in resources and pick one at random for the player image.
-        try {
-            String packagePath = getClass().getPackage().getName().replace('.', '/');
-            List<String> pngs = listPngResources(packagePath+"/dukes"); // folder inside src/main/resources
-            if (pngs.isEmpty()) {
-                System.err.println("No PNGs found.");
-                return;
-            }
-            String chosen = pngs.get(new Random().nextInt(pngs.size()));
-            try (InputStream is = getClass().getClassLoader().getResourceAsStream(chosen)) {
-                if (is != null) {
-                    playerImage = ImageIO.read(is);
-                    System.out.println("Loaded art: " + chosen);
-                } else {
-                    System.err.println("Failed to open resource: " + chosen);
-                }
-            }
-        } catch (Exception e) {
-            e.printStackTrace();
-        }
+        g2d.drawRect(drawX, drawY, tileSize, tileSize);
+    }
 
-        sensorImage = ImageIO.read(Objects.requireNonNull(getClass().getResourceAsStream("sensor.png" )));
+    // circle the hinted tile: green if it is safe, red if it is a mine.
+    private void drawHint(Graphics g) {
+        if(hint==null) return;
+        Graphics2D g2d = (Graphics2D) g;
+        g2d.setColor(hint.mine() ? Color.RED : Color.GREEN);
+        g2d.setStroke(new BasicStroke(Math.max(1, tileSize / 10f)));
+        int inset = tileSize / 8;
+        g2d.drawOval(hint.x() * tileSize + inset, hint.y() * tileSize + inset, tileSize - inset * 2, tileSize - inset * 2);
     }
 
-    // helper to list pngs from a resource folder (handles both file and jar)
-    private List<String> listPngResources(String resourceFolder) throws IOException, URISyntaxException {
-        List<String> result = new ArrayList<>();
-        ClassLoader cl = getClass().getClassLoader();
-        URL dirURL = cl.getResource(resourceFolder);
-        if (dirURL != null && dirURL.getProtocol().equals("file")) {
-            File folder = new File(dirURL.toURI());
-            File[] files = folder.listFiles((d, name) -> name.toLowerCase().endsWith(".png"));
-            if (files != null) {
-                for (File f : files) result.add(resourceFolder + "/" + f.getName());
-            }
-        } else if (dirURL != null && dirURL.getProtocol().equals("jar")) {
-            String dirPath = dirURL.getPath();
-            String jarPath = dirPath.substring(5, dirPath.indexOf("!")); // strip "file:" and everything after "!"
-            try (JarFile jar = new JarFile(URLDecoder.decode(jarPath, StandardCharsets.UTF_8))) {
-                Enumeration<JarEntry> entries = jar.entries();
-                while (entries.hasMoreElements()) {
-                    String name = entries.nextElement().getName();
-                    if (name.startsWith(resourceFolder + "/") && name.toLowerCase().endsWith(".png")) {
-                        result.add(name);
-                    }
-                }
-            }
-        } else {
-            // fallback: attempt scanning classpath URLs (may not list inside JARs)
-            Enumeration<URL> resources = cl.getResources(resourceFolder);
-            while (resources.hasMoreElements()) {
-                URL url = resources.nextElement();
-                if ("file".equals(url.getProtocol())) {
-                    File folder = new File(url.toURI());
-                    File[] files = folder.listFiles((d, name) -> name.toLowerCase().endsWith(".png"));
-                    if (files != null) for (File f : files) result.add(resourceFolder + "/" + f.getName());
-                }
-            }
-        }
-        return result;
+    // pick artwork from the shared cache.  Called once on the first frame.
+    private void initArt() {
+        // pick a Duke at random for the player image.  It is drawn at whatever size the zoom needs.
+        playerArt = ArtCache.getInstance().pickDuke(new Random());
     }
 }
@@ -0,0 +1,143 @@
+package com.marginallyclever.slavadukerani;
+
+import java.util.Arrays;
+import java.util.random.RandomGenerator;
+
+/// A [BotStrategy] that plays like a careful player.  A [ConstraintSolver] reveals and flags everything logic can
+/// prove, through the engine, then the player walks to the exit over revealed tiles, stepping around the sensor so it
+/// is never pushed.  When logic runs out before there is a path, it guesses a hidden tile next to the revealed area.
+public class SolverBot implements BotStrategy {
+    private static final int [] DX = { 1, -1, 0, 0 };
+    private static final int [] DY = { 0, 0, 1, -1 };
+    private static final int GUESS_TRIES = 64;
+
+    private GameEngine engine;
+    private Grid grid;
+    private RandomGenerator random;
+    private ConstraintSolver solver;
+
+    // breadth first search from the exit.  towardExit[i] is the direction to step from tile i, valid where
+    // visitedStamp[i]==stamp.  Reused between searches and between games of the same size.
+    private final IntQueue toVisit = new IntQueue();
+    private int [] towardExit = new int[0];
+    private int [] visitedStamp = new int[0];
+    private int stamp = 0;
+    private int searchedHiddenCount = -1;  // the search is still good while no tile is revealed.
+
+    @Override
+    public void startGame(GameEngine engine, RandomGenerator random) {
+        if (!(engine.getBoard() instanceof Grid g)) {
+            throw new IllegalArgumentException("SolverBot can only play a Grid.");
+        }
+        this.engine = engine;
+        this.grid = g;
+        this.random = random;
+        // through the engine, so the solver's moves are journaled and undoable, and can win by clearing.
+        this.solver = new ConstraintSolver(engine);
+        int size = grid.getGridWidth() * grid.getGridHeight();
+        if (towardExit.length != size) {
+            towardExit = new int[size];
+            visitedStamp = new int[size];
+            stamp = 0;
+        }
+        searchedHiddenCount = -1;
+    }
+
+    @Override
+    public boolean takeTurn() {
+        solver.solve();
+        // logic alone can win by clearing.
+        if (engine.isGameOver()) return true;
+        if (grid.getHiddenCount() != searchedHiddenCount) {
+            searchFromExit();
+        }
+        int w = grid.getGridWidth();
+        int player = engine.getPlayerY() * w + engine.getPlayerX();
+        if (visitedStamp[player] == stamp) {
+            int d = towardExit[player];
+            engine.move(DX[d], DY[d]);
+            return true;
+        }
+        return guess();
+    }
+
+    /// Find the way to the exit from every tile the player can walk on.
+    private void searchFromExit() {
+        int w = grid.getGridWidth();
+        int h = grid.getGridHeight();
+        searchedHiddenCount = grid.getHiddenCount();
+        if (++stamp == 0) {
+            Arrays.fill(visitedStamp, 0);
+            stamp = 1;
+        }
+        int exit = (h - 1) * w + (w - 1);
+        visitedStamp[exit] = stamp;
+        toVisit.clear();
+        toVisit.add(exit);
+        while (!toVisit.isEmpty()) {
+            int i = toVisit.poll();
+            int x = i % w;
+            int y = i / w;
+            for (int d = 0; d < 4; d++) {
+                int nx = x - DX[d];
+                int ny = y - DY[d];
+                if (nx < 0 || nx >= w || ny < 0 || ny >= h) continue;
+                int n = ny * w + nx;
+                if (visitedStamp[n] == stamp || !isWalkable(nx, ny)) continue;
+                visitedStamp[n] = stamp;
+                towardExit[n] = d;  // stepping d from n leads to i, one step closer to the exit.
+                toVisit.add(n);
+            }
+        }
+    }
+
+    private boolean isWalkable(int x, int y) {
+        if (x == engine.getSensorX() && y == engine.getSensorY()) return false;
+        return !grid.isHidden(x, y) && grid.getType(x, y) != GridTile.TYPE_MINE;
+    }
+
+    /// Reveal a hidden tile, preferring one at the edge of the revealed area.
+    /// @return false if there is nothing left to guess.
+    private boolean guess() {
+        int w = grid.getGridWidth();
+        int h = grid.getGridHeight();
+        for (int i = 0; i < GUESS_TRIES; i++) {
+            int x = random.nextInt(w);
+            int y = random.nextInt(h);
+            if (isUnknown(x, y) && hasRevealedNeighbour(x, y)) return reveal(x, y);
+        }
+        for (int i = 0; i < GUESS_TRIES; i++) {
+            int x = random.nextInt(w);
+            int y = random.nextInt(h);
+            if (isUnknown(x, y)) return reveal(x, y);
+        }
+        for (int y = 0; y < h; y++) {
+            for (int x = 0; x < w; x++) {
+                if (isUnknown(x, y)) return reveal(x, y);
+            }
+        }
+        return false;
+    }
+
+    private boolean reveal(int x, int y) {
+        engine.reveal(x, y);
+        ChangedTiles changes = engine.getChangedTiles();
+        for (int i = 0; i < changes.size(); i++) {
+            solver.tileChanged(changes.getX(i), changes.getY(i));
+        }
+        return true;
+    }
+
+    private boolean isUnknown(int x, int y) {
+        return grid.isHidden(x, y) && !grid.isFlagged(x, y);
+    }
+
+    private boolean hasRevealedNeighbour(int x, int y) {
+        for (int ny = Math.max(0, y - 1); ny <= Math.min(grid.getGridHeight() - 1, y + 1); ny++) {
+            for (int nx = Math.max(0, x - 1); nx <= Math.min(grid.getGridWidth() - 1, x + 1); nx++) {
+                if (!grid.isHidden(nx, ny)) return true;
+            }
+        }
+        return false;
+    }
+}
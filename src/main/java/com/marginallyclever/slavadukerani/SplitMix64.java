@@ -0,0 +1,18 @@
+package com.marginallyclever.slavadukerani;
+
+/// The finalizer of the SplitMix64 generator, for turning related numbers, such as a seed and a counter, into
+/// unrelated ones.  Used for board seeds ([NoGuessGenerator#deriveSeed]), chunk seeds ([ChunkedBoard]) and the state
+/// hash of a [GameJournal], all of which are saved or replayed, so the output must never change.
+final class SplitMix64 {
+    /// the golden ratio in 64 bits: add `n * GAMMA` to a seed to get the n-th input.
+    static final long GAMMA = 0x9E3779B97F4A7C15L;
+
+    private SplitMix64() {}
+
+    /// @return z with its bits thoroughly mixed.  Different inputs give different outputs.
+    static long mix(long z) {
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        return z ^ (z >>> 31);
+    }
+}
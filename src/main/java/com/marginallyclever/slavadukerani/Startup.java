@@ -0,0 +1,38 @@
+package com.marginallyclever.slavadukerani;
+
+import java.time.Duration;
+import java.time.Instant;
+
+/// Times how long the game takes from launch to the first frame of a board, reports it on the console and as a
+/// [GameEvents.FirstFrame] event, then warms up the rest of the art in the [ArtCache].  Until that frame, only the art
+/// it draws is decoded, so nothing else competes with it.
+final class Startup {
+    private static volatile long mainNanos = 0;
+    // Swing thread only.
+    private static boolean firstFrameShown = false;
+
+    private Startup() {}
+
+    /// Call first thing in main.
+    static void begin() {
+        mainNanos = System.nanoTime();
+    }
+
+    /// Called at the end of every frame of a [SlavaDukerani].  Only the first does anything.
+    static void frameShown() {
+        if (firstFrameShown) return;
+        firstFrameShown = true;
+        ArtCache.getInstance().preloadInBackground();
+        if (mainNanos == 0) return;
+
+        GameEvents.FirstFrame event = new GameEvents.FirstFrame();
+        event.sinceMain = (System.nanoTime() - mainNanos) / 1_000_000;
+        // includes starting the JVM, which main() can't see.
+        event.sinceProcessStart = ProcessHandle.current().info().startInstant()
+                .map(start -> Duration.between(start, Instant.now()).toMillis())
+                .orElse(0L);
+        event.commit();
+        System.out.println("First frame " + event.sinceMain + " ms after main()"
+                + (event.sinceProcessStart > 0 ? ", " + event.sinceProcessStart + " ms after launch." : "."));
+    }
+}
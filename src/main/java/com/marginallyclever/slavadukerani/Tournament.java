@@ -0,0 +1,190 @@
+package com.marginallyclever.slavadukerani;
+
+import javax.swing.*;
+import javax.swing.border.Border;
+import java.awt.*;
+import java.awt.event.ActionListener;
+import java.awt.event.FocusAdapter;
+import java.awt.event.FocusEvent;
+import java.awt.event.MouseAdapter;
+import java.awt.event.MouseEvent;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.function.Consumer;
+
+/// Many [SlavaDukerani] boards played side by side, each with its own title showing mines left and time.
+///
+/// The boards share everything they can.  Art comes from the [ArtCache] and [GlyphCache], so it is decoded once for
+/// the whole window.  One [RenderClock] drives every board: a board does not repaint as each of its actions finishes,
+/// but at most once a frame, and only the part that is in view.  A board scrolled out of sight is not painted at all.
+///
+/// Click a board to play it.  Use it on the Swing thread.
+public class Tournament extends JPanel {
+    /// more boards than this are too small to play.
+    public static final int MAX_BOARDS = 64;
+    // boards are not shrunk below tiles of this many pixels.  They scroll instead.
+    private static final int MIN_TILE_SIZE = 8;
+
+    private static final Border FOCUSED = BorderFactory.createLineBorder(Color.BLUE, 2);
+    private static final Border UNFOCUSED = BorderFactory.createEmptyBorder(2, 2, 2, 2);
+
+    private final List<Seat> seats = new ArrayList<>();
+    private final Consumer<SlavaDukerani> whenFocused;
+    private final ActionListener tick = e -> tick();
+    private Seat focused;
+
+    /// @param engines     one per board, in the order they are shown.
+    /// @param area        the space for all the boards, in pixels.  Their tiles are made to fit if they can.
+    /// @param whenFocused told when the player picks a board, including the first one.
+    public Tournament(List<GameEngine> engines, Dimension area, Consumer<SlavaDukerani> whenFocused) {
+        int n = engines.size();
+        if (n < 1 || n > MAX_BOARDS) throw new IllegalArgumentException("A tournament needs 1 to " + MAX_BOARDS + " boards.");
+        this.whenFocused = whenFocused;
+        int columns = (int) Math.ceil(Math.sqrt(n));
+        int rows = (n + columns - 1) / columns;
+        setLayout(new GridLayout(rows, columns, 4, 4));
+        Dimension cell = new Dimension(area.width / columns, area.height / rows);
+
+        for (int i = 0; i < n; i++) {
+            Seat seat = new Seat(i + 1, new SlavaDukerani(engines.get(i)), cell);
+            seats.add(seat);
+            add(seat);
+        }
+        RenderClock.getInstance().addTickListener(tick);
+        setFocused(seats.getFirst());
+    }
+
+    /// @return every board, in the order they are shown.
+    public List<SlavaDukerani> getGames() {
+        List<SlavaDukerani> games = new ArrayList<>();
+        for (Seat seat : seats) games.add(seat.game);
+        return Collections.unmodifiableList(games);
+    }
+
+    /// @return the board the player picked last.
+    public SlavaDukerani getFocused() {
+        return focused.game;
+    }
+
+    /// @return the seconds spent on game so far, or 0 if it is not in this tournament.
+    public long getSeconds(SlavaDukerani game) {
+        for (Seat seat : seats) {
+            if (seat.game == game) return seat.getSeconds();
+        }
+        return 0;
+    }
+
+    /// Stop every board and let go of the shared clock.  Call when the tournament is closed.
+    public void stop() {
+        RenderClock.getInstance().removeTickListener(tick);
+        for (Seat seat : seats) {
+            seat.game.removeFlagChangeListener(seat);
+            seat.game.removeGameOverListener(seat);
+            seat.game.stopActions();
+        }
+    }
+
+    private void setFocused(Seat seat) {
+        if (focused == seat) return;
+        if (focused != null) focused.setBorder(UNFOCUSED);
+        focused = seat;
+        seat.setBorder(FOCUSED);
+        whenFocused.accept(seat.game);
+    }
+
+    /// Once a frame: update the times shown, on the seats whose second changed.  The boards repaint on their own ticks
+    /// of the same clock.
+    private void tick() {
+        for (Seat seat : seats) {
+            if (seat.getSeconds() != seat.shownSeconds) seat.showTitle();
+        }
+    }
+
+    /// One board with its title.
+    private class Seat extends JPanel implements FlagChangeListener, GameOverListener {
+        private final int number;
+        private final SlavaDukerani game;
+        private final JLabel title = new JLabel();
+        private final long totalMines;
+        private long minesLeft;
+        // when the clock started, less the time already spent, or the time spent once the clock is stopped.
+        private long startNanos = System.nanoTime();
+        private long stoppedNanos = -1;
+        private String result = "";
+        private long shownSeconds = -1;
+
+        Seat(int number, SlavaDukerani game, Dimension cell) {
+            super(new BorderLayout());
+            this.number = number;
+            this.game = game;
+            Board board = game.getEngine().getBoard();
+            totalMines = board.getNumMines();
+            minesLeft = totalMines - board.getFlagCount();
+            setBorder(UNFOCUSED);
+
+            // the largest zoom at which the whole board fits in its cell.
+            int fit = Math.min((cell.width - 8) / board.getGridWidth(), (cell.height - 32) / board.getGridHeight());
+            int size = MIN_TILE_SIZE;
+            for (int level : SlavaDukerani.ZOOM_LEVELS) {
+                if (level <= Math.min(fit, GridTile.SIZE_X)) size = Math.max(size, level);
+            }
+            game.setTileSize(size, null);
+            game.setRepaintOnClock(true);
+            game.setFocusable(true);
+            game.setRequestFocusEnabled(true);
+            game.addFlagChangeListener(this);
+            game.addGameOverListener(this);
+            game.addMouseListener(new MouseAdapter() {
+                @Override
+                public void mousePressed(MouseEvent e) {
+                    game.requestFocusInWindow();
+                }
+            });
+            game.addFocusListener(new FocusAdapter() {
+                @Override
+                public void focusGained(FocusEvent e) {
+                    setFocused(Seat.this);
+                }
+            });
+
+            var pane = new JScrollPane(game);
+            Dimension preferred = pane.getPreferredSize();
+            pane.setPreferredSize(new Dimension(Math.min(preferred.width, cell.width - 8), Math.min(preferred.height, cell.height - 32)));
+            add(title, BorderLayout.NORTH);
+            add(pane, BorderLayout.CENTER);
+            showTitle();
+        }
+
+        long getSeconds() {
+            long nanos = (stoppedNanos >= 0) ? stoppedNanos : System.nanoTime() - startNanos;
+            return nanos / 1_000_000_000L;
+        }
+
+        void showTitle() {
+            shownSeconds = getSeconds();
+            title.setText("Board " + number + " — " + minesLeft + " mines left — " + shownSeconds + "s" + result);
+        }
+
+        @Override
+        public void flagCountChanged(int flagCount) {
+            minesLeft = totalMines - flagCount;
+            showTitle();
+        }
+
+        @Override
+        public void gameOver(boolean won) {
+            if (stoppedNanos < 0) stoppedNanos = System.nanoTime() - startNanos;
+            result = won ? " — Won" : " — Lost";
+            showTitle();
+        }
+
+        @Override
+        public void gameResumed() {
+            if (stoppedNanos >= 0) startNanos = System.nanoTime() - stoppedNanos;
+            stoppedNanos = -1;
+            result = "";
+            showTitle();
+        }
+    }
+}
@@ -0,0 +1,133 @@
+package com.marginallyclever.slavadukerani;
+
+import java.util.ArrayDeque;
+
+/// The undo stack of a [GameEngine].
+///
+/// Each action is kept as a delta, never as a copy of the board: where the player and sensor were, the move count and
+/// the result before the action, and the tiles the action changed, which [GameEngine#getChangedTiles()] already lists.
+/// A flag step toggles its one tile back.  Any other step hides the tiles it revealed again, so undoing a flood of a
+/// million tiles touches only those tiles and takes a few milliseconds.
+///
+/// The steps are kept within a memory budget.  When a new step would go over it the oldest steps are dropped first, so
+/// the most recent actions can always be undone.  A single step bigger than the whole budget is not kept, and neither are the
+/// steps before it, since they could no longer be undone in order.
+public class UndoHistory {
+    public static final long DEFAULT_BUDGET_BYTES = 64L << 20;
+    // an estimate of the object headers, fields and array header of one step.
+    private static final long STEP_BYTES = 96;
+
+    private record Step(int px, int py, int sx, int sy, int moveCount, GameEngine.Result result,
+                        boolean flag, int [] tiles) {
+        long bytes() {
+            return STEP_BYTES + (long) tiles.length * Integer.BYTES;
+        }
+    }
+
+    private final long budgetBytes;
+    private final ArrayDeque<Step> steps = new ArrayDeque<>();
+    private long usedBytes = 0;
+    private long dropped = 0;
+
+    // the state before the action in progress.
+    private int px, py, sx, sy, moveCount;
+    private GameEngine.Result result;
+
+    public UndoHistory() {
+        this(DEFAULT_BUDGET_BYTES);
+    }
+
+    /// @param budgetBytes the most memory the steps may use, roughly.
+    /// @throws IllegalArgumentException if the budget is negative.
+    public UndoHistory(long budgetBytes) {
+        if (budgetBytes < 0) throw new IllegalArgumentException("Undo budget can't be negative.");
+        this.budgetBytes = budgetBytes;
+    }
+
+    public long getBudgetBytes() {
+        return budgetBytes;
+    }
+
+    /// @return the memory used by the steps kept now, roughly.
+    public long getUsedBytes() {
+        return usedBytes;
+    }
+
+    /// @return the number of actions that can be undone.
+    public int size() {
+        return steps.size();
+    }
+
+    /// @return the number of steps dropped to stay within the budget.
+    public long getDroppedCount() {
+        return dropped;
+    }
+
+    public boolean canUndo() {
+        return !steps.isEmpty();
+    }
+
+    public void clear() {
+        steps.clear();
+        usedBytes = 0;
+    }
+
+    /// Called by [GameEngine] before an action.
+    void begin(GameEngine engine) {
+        px = engine.getPlayerX();
+        py = engine.getPlayerY();
+        sx = engine.getSensorX();
+        sy = engine.getSensorY();
+        moveCount = engine.getMoveCount();
+        result = engine.getResult();
+    }
+
+    /// Called by [GameEngine] after an action.  Actions that changed nothing are not kept.
+    /// @param flag true if the action toggled the flag of the tiles in changes.
+    void end(GameEngine engine, boolean flag) {
+        ChangedTiles changes = engine.getChangedTiles();
+        // the player and the sensor only ever move with the move count.
+        if (changes.isEmpty() && moveCount == engine.getMoveCount() && result == engine.getResult()) return;
+        int [] tiles = new int[changes.size() * 2];
+        for (int i = 0; i < changes.size(); i++) {
+            tiles[i * 2] = changes.getX(i);
+            tiles[i * 2 + 1] = changes.getY(i);
+        }
+        Step step = new Step(px, py, sx, sy, moveCount, result, flag, tiles);
+        if (step.bytes() > budgetBytes) {
+            // too big to keep, and everything before it can no longer be undone in order.
+            dropped += steps.size();
+            clear();
+            return;
+        }
+        usedBytes += step.bytes();
+        steps.addLast(step);
+        while (usedBytes > budgetBytes) {
+            usedBytes -= steps.removeFirst().bytes();
+            dropped++;
+        }
+    }
+
+    /// Take back the most recent action.  The tiles it changed are put in [GameEngine#getChangedTiles()].
+    /// @return false if there is nothing to undo.
+    boolean undo(GameEngine engine) {
+        Step step = steps.pollLast();
+        if (step == null) return false;
+        usedBytes -= step.bytes();
+
+        Board board = engine.getBoard();
+        ChangedTiles changes = engine.getChangedTiles();
+        int [] tiles = step.tiles();
+        for (int i = 0; i < tiles.length; i += 2) {
+            int x = tiles[i], y = tiles[i + 1];
+            if (step.flag()) {
+                board.setFlagged(x, y, !board.isFlagged(x, y));
+            } else {
+                board.hideTile(x, y);
+            }
+            changes.add(x, y);
+        }
+        engine.restore(step.px(), step.py(), step.sx(), step.sy(), step.moveCount(), step.result());
+        return true;
+    }
+}
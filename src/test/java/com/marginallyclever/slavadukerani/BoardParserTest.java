@@ -0,0 +1,101 @@
+package com.marginallyclever.slavadukerani;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.channels.Channels;
+import java.nio.charset.StandardCharsets;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+/// [BoardParser] reads maps in one pass, and reports mistakes where they are.
+class BoardParserTest {
+    @Test
+    void countsSensorValuesAsItReads() throws IOException {
+        Random random = new Random(1);
+        for (int t = 0; t < 200; t++) {
+            int width = 2 + random.nextInt(90);
+            int height = 2 + random.nextInt(30);
+            String map = randomMap(random, width, height, random.nextDouble() * 0.5, t % 2 == 0 ? "\n" : "\r\n");
+
+            BoardParser.Cells parsed = BoardParser.read(map);
+            assertEquals(width, parsed.width());
+            assertEquals(height, parsed.height());
+            byte [] expected = parsed.cells().clone();
+            SensorCounter.count(expected, width, height);
+            assertArrayEquals(expected, parsed.cells(), map);
+            assertArrayEquals(parsed.cells(), readChannel(map).cells());
+        }
+    }
+
+    @Test
+    void placesTheExitAndCountsTheMines() {
+        Grid grid = new Grid("0010\n0001\n1000\n");
+        assertEquals(4, grid.getGridWidth());
+        assertEquals(3, grid.getGridHeight());
+        assertEquals(3, grid.getNumMines());
+        assertEquals(GridTile.TYPE_EXIT, grid.getType(3, 2));
+        assertEquals(2, grid.getSensorValue(2, 1));
+    }
+
+    @Test
+    void allowsBlankLinesAtTheEnd() {
+        assertEquals(2, BoardParser.read("00\n00\n\n\n").height());
+        assertEquals(2, BoardParser.read("00\r\n00").height());
+    }
+
+    @Test
+    void reportsWhereTheMistakeIs() {
+        assertError("00\n0x\n", "Line 2, column 2: expected 0 or 1 but found 'x'.");
+        assertError("0 0\n", "Line 1, column 2: expected 0 or 1 but found a space.");
+        assertError("00\n0\t\n", "Line 2, column 2: expected 0 or 1 but found a tab.");
+        assertError("000\n00\n000\n", "Line 2, column 3: line has 2 tiles but the first line has 3.");
+        assertError("00\n000\n", "Line 2, column 3: line is longer than the first line, which has 2 tiles.");
+        assertError("00\n\n00\n", "Line 3, column 1: blank lines are only allowed at the end.");
+        assertError("\n00\n", "Line 1, column 1: the first line is empty.");
+        assertError("00\r0\n", "Line 1, column 3: expected a new line after \\r.");
+        assertError("00\n00\r", "Line 2, column 3: expected a new line after \\r.");
+        assertError("000\n010\n000\n", "Line 2, column 2: the start area can't hold a mine.");
+        assertError("000\n000\n001\n", "Line 3, column 3: the exit can't hold a mine.");
+        assertError("", "The board is empty.");
+        assertError("0000\n", "Grid must be at least 2x2.");
+    }
+
+    @Test
+    void reportsMistakesPastTheFirstBuffer() {
+        // well past the 64 KiB the parser reads at a time.
+        StringBuilder map = new StringBuilder(randomMap(new Random(2), 300, 400, 0, "\n"));
+        int at = 250 * 301 + 16;
+        map.setCharAt(at, '2');
+        assertError(map.toString(), "Line 251, column 17: expected 0 or 1 but found '2'.");
+    }
+
+    private static void assertError(String map, String message) {
+        var fromString = assertThrows(IllegalArgumentException.class, () -> BoardParser.read(map));
+        assertEquals(message, fromString.getMessage());
+        var fromChannel = assertThrows(IllegalArgumentException.class, () -> readChannel(map));
+        assertEquals(message, fromChannel.getMessage());
+    }
+
+    private static BoardParser.Cells readChannel(String map) throws IOException {
+        byte [] bytes = map.getBytes(StandardCharsets.US_ASCII);
+        return BoardParser.read(Channels.newChannel(new ByteArrayInputStream(bytes)));
+    }
+
+    /// @return a valid map: no mines in the start area or on the exit.
+    private static String randomMap(Random random, int width, int height, double density, String newLine) {
+        StringBuilder map = new StringBuilder();
+        for (int y = 0; y < height; y++) {
+            for (int x = 0; x < width; x++) {
+                boolean reserved = (x < 2 && y < 2) || (x == width - 1 && y == height - 1);
+                map.append(!reserved && random.nextDouble() < density ? '1' : '0');
+            }
+            map.append(newLine);
+        }
+        return map.toString();
+    }
+}
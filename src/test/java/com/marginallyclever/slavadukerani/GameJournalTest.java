@@ -0,0 +1,120 @@
+package com.marginallyclever.slavadukerani;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Path;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/// A saved [GameJournal] replays to the same final state, undos included.
+class GameJournalTest {
+    @TempDir
+    Path folder;
+
+    @Test
+    void replaysRandomGamesWithUndo() throws IOException {
+        Random random = new Random(1);
+        for (int t = 0; t < 200; t++) {
+            int width = 5 + random.nextInt(20);
+            int height = 5 + random.nextInt(15);
+            var settings = new GameJournal.Settings(width, height, width * height / 6, t, t % 3 == 0, false);
+            GameEngine engine = play(settings, random, 150);
+
+            Path path = folder.resolve("game" + t + "." + GameJournal.EXTENSION);
+            engine.getJournal().save(path, engine);
+            var reader = new GameJournal.Reader(path);
+            assertEquals(settings, reader.getSettings());
+            GameJournal.Replay replay = GameJournal.replay(reader);
+            assertTrue(replay.isVerified(), "game " + t);
+            assertEquals(GameJournal.checksum(engine), replay.actualChecksum());
+            assertEquals(engine.getMoveCount(), replay.engine().getMoveCount());
+            assertEquals(engine.getResult(), replay.engine().getResult());
+        }
+    }
+
+    @Test
+    void replaysHugeMapsWithTheirExitAndMines() throws IOException {
+        var settings = new GameJournal.Settings(1_000_000, 1_000_000, 150_000_000_000L, 7, false, true, 100, 3);
+        GameEngine engine = play(settings, new Random(2), 100);
+        assertEquals(GridTile.TYPE_EXIT, engine.getBoard().getType(100, 3));
+
+        Path path = folder.resolve("huge." + GameJournal.EXTENSION);
+        engine.getJournal().save(path, engine);
+        var reader = new GameJournal.Reader(path);
+        assertEquals(settings, reader.getSettings());
+        assertTrue(GameJournal.replay(reader).isVerified());
+    }
+
+    @Test
+    void keepsRecordingAfterASave() throws IOException {
+        Random random = new Random(3);
+        var settings = new GameJournal.Settings(16, 16, 40, 5, false, false);
+        GameEngine engine = play(settings, random, 50);
+        engine.getJournal().save(folder.resolve("first.sdkj"), engine);
+        playMore(engine, random, 50);
+        Path path = folder.resolve("second.sdkj");
+        engine.getJournal().save(path, engine);
+        assertTrue(GameJournal.replay(new GameJournal.Reader(path)).isVerified());
+    }
+
+    @Test
+    void readsVersionTwoWithTheExitInTheCorner() throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        out.writeBytes(ByteBuffer.allocate(4).putInt(GameJournal.MAGIC).array());
+        for (int value : new int[]{2, 30, 20, 50, 2 * 9, 1}) out.write(value);  // seed 9, zigzag
+        out.write(15);
+        out.writeBytes(new byte[Long.BYTES]);
+
+        var reader = new GameJournal.Reader(out.toByteArray());
+        assertEquals(new GameJournal.Settings(30, 20, 50, 9, true, false, 29, 19), reader.getSettings());
+        assertFalse(reader.next());
+    }
+
+    @Test
+    void turnsDownOtherFiles() {
+        assertThrows(IOException.class, () -> new GameJournal.Reader(new byte[]{1, 2, 3, 4, 5}));
+        byte [] future = ByteBuffer.allocate(5).putInt(GameJournal.MAGIC).put((byte) (GameJournal.VERSION + 1)).array();
+        assertThrows(IOException.class, () -> new GameJournal.Reader(future));
+    }
+
+    @Test
+    void onlyHugeMapsMoveTheExit() {
+        var moved = new GameJournal.Settings(20, 10, 30, 1, false, false, 5, 5);
+        assertThrows(IllegalArgumentException.class, moved::newGame);
+    }
+
+    /// @return a game of the settings, with a journal, after some random actions.
+    private static GameEngine play(GameJournal.Settings settings, Random random, int actions) {
+        GameEngine engine = settings.newGame();
+        engine.setJournal(new GameJournal(settings));
+        engine.setUndoHistory(new UndoHistory());
+        playMore(engine, random, actions);
+        return engine;
+    }
+
+    private static void playMore(GameEngine engine, Random random, int actions) {
+        Board board = engine.getBoard();
+        // near the player, so huge maps stay in a few chunks.
+        int span = Math.min(40, Math.min(board.getGridWidth(), board.getGridHeight()));
+        for (int k = 0; k < actions; k++) {
+            int x = random.nextInt(span), y = random.nextInt(span);
+            switch (random.nextInt(8)) {
+                case 0, 1 -> engine.reveal(x, y);
+                case 2 -> engine.toggleFlag(x, y);
+                case 3 -> engine.chord(x, y);
+                case 4 -> engine.undo();
+                default -> engine.move(random.nextInt(3) - 1, random.nextInt(3) - 1);
+            }
+            // carry on after a loss, as a player can.
+            if (engine.isGameOver() && random.nextBoolean()) engine.undo();
+        }
+    }
+}
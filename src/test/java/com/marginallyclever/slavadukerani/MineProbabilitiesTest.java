@@ -0,0 +1,108 @@
+package com.marginallyclever.slavadukerani;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/// [MineProbabilities] against trying every layout of the mines on small boards.
+class MineProbabilitiesTest {
+    private final MineProbabilities probabilities = new MineProbabilities(result -> {});
+
+    @AfterEach
+    void close() {
+        probabilities.close();
+    }
+
+    @Test
+    void matchesEveryLayoutOnSmallBoards() {
+        int checked = 0;
+        for (int t = 0; t < 400; t++) {
+            Random random = new Random(t);
+            int width = 5 + random.nextInt(5);
+            int height = 4 + random.nextInt(4);
+            GameEngine engine = new GameEngine(width, height, t, 3 + random.nextInt(width * height / 4));
+            Grid grid = (Grid) engine.getBoard();
+            uncover(grid, random, 8 + random.nextInt(12));
+
+            List<Integer> unknown = new ArrayList<>();
+            for (int i = 0; i < width * height; i++) {
+                if (grid.isHidden(i % width, i / width) && !grid.isFlagged(i % width, i / width)) unknown.add(i);
+            }
+            if (unknown.size() > 20) continue;
+            int sensorX = random.nextInt(width), sensorY = random.nextInt(height);
+            double [] expected = bruteForce(grid, unknown, sensorX, sensorY);
+
+            var result = probabilities.solve(MineProbabilities.capture(grid, sensorX, sensorY));
+            for (int i : unknown) {
+                int k = result.indexOf(i);
+                boolean inView = k < result.cells().length && result.cells()[k] == i;
+                float chance = inView ? result.probabilities()[k] : result.interior();
+                assertFalse(Float.isNaN(chance), "board " + t + " tile " + i);
+                assertEquals(expected[i], chance, 1e-4, "board " + t + " tile " + i);
+            }
+            checked++;
+        }
+        assertTrue(checked > 300);
+    }
+
+    /// Reveal safe tiles, and flag some mines, until only a few unknown tiles remain.
+    private static void uncover(Grid grid, Random random, int unknown) {
+        int width = grid.getGridWidth(), height = grid.getGridHeight();
+        for (int k = 0; k < 500 && grid.getHiddenCount() - grid.getFlagCount() > unknown; k++) {
+            int x = random.nextInt(width), y = random.nextInt(height);
+            if (!grid.isHidden(x, y) || grid.isFlagged(x, y)) continue;
+            if (grid.getType(x, y) != GridTile.TYPE_MINE) grid.revealTile(x, y);
+            else if (random.nextInt(3) == 0) grid.setFlagged(x, y, true);
+        }
+    }
+
+    /// @return the chance of a mine in each tile, over every layout that agrees with the numbers near the sensor.
+    private static double [] bruteForce(Grid grid, List<Integer> unknown, int sensorX, int sensorY) {
+        int width = grid.getGridWidth(), height = grid.getGridHeight();
+        // flagged tiles are mines, but revealed mines (a lost game) are not left to place either.
+        int revealedMines = width * height - grid.getHiddenCount() - grid.getRevealedSafeCount();
+        long mines = grid.getNumMines() - grid.getFlagCount() - revealedMines;
+        double [] count = new double[width * height];
+        double total = 0;
+        for (int mask = 0; mask < 1 << unknown.size(); mask++) {
+            if (Integer.bitCount(mask) != mines) continue;
+            boolean [] mine = new boolean[width * height];
+            for (int i = 0; i < width * height; i++) {
+                int x = i % width, y = i / width;
+                mine[i] = grid.isHidden(x, y) ? grid.isFlagged(x, y) : grid.getType(x, y) == GridTile.TYPE_MINE;
+            }
+            for (int b = 0; b < unknown.size(); b++) if ((mask >> b & 1) != 0) mine[unknown.get(b)] = true;
+            if (!agrees(grid, mine, sensorX, sensorY)) continue;
+            total++;
+            for (int b = 0; b < unknown.size(); b++) if ((mask >> b & 1) != 0) count[unknown.get(b)]++;
+        }
+        assertTrue(total > 0);
+        for (int i = 0; i < count.length; i++) count[i] /= total;
+        return count;
+    }
+
+    private static boolean agrees(Grid grid, boolean [] mine, int sensorX, int sensorY) {
+        int width = grid.getGridWidth(), height = grid.getGridHeight();
+        int range = GameEngine.SENSOR_RANGE;
+        for (int y = Math.max(0, sensorY - range); y <= Math.min(height - 1, sensorY + range); y++) {
+            for (int x = Math.max(0, sensorX - range); x <= Math.min(width - 1, sensorX + range); x++) {
+                if (grid.isHidden(x, y) || mine[y * width + x]) continue;
+                int around = 0;
+                for (int ny = Math.max(0, y - 1); ny <= Math.min(height - 1, y + 1); ny++) {
+                    for (int nx = Math.max(0, x - 1); nx <= Math.min(width - 1, x + 1); nx++) {
+                        if (mine[ny * width + nx]) around++;
+                    }
+                }
+                if (around != grid.getSensorValue(x, y)) return false;
+            }
+        }
+        return true;
+    }
+}
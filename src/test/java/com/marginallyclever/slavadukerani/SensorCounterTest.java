@@ -0,0 +1,77 @@
+package com.marginallyclever.slavadukerani;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+
+/// [SensorCounter] against a plain count of the eight neighbours of each tile.
+class SensorCounterTest {
+    private static final byte MINE = (byte) (GridTile.TYPE_MINE << Grid.TYPE_SHIFT);
+
+    @Test
+    void matchesScalarCountOnRandomBoards() {
+        Random random = new Random(1);
+        for (int t = 0; t < 2000; t++) {
+            // odd sizes, so rows end part way through a long and part way through a byte.
+            int width = 1 + random.nextInt(150);
+            int height = 1 + random.nextInt(40);
+            checkBoard(random, width, height, random.nextDouble());
+        }
+    }
+
+    @Test
+    void matchesScalarCountOnBoardsCountedInStripes() {
+        Random random = new Random(2);
+        checkBoard(random, 1000, 700, 0.15);
+        checkBoard(random, 257, 1999, 0.5);
+        checkBoard(random, 3, 100_000, 0.2);
+    }
+
+    @Test
+    void recountsAfterMinesMove() {
+        Random random = new Random(3);
+        byte [] cells = randomCells(random, 70, 30, 0.3);
+        SensorCounter.count(cells, 70, 30);
+        for (int i = 0; i < cells.length; i++) cells[i] &= (byte) ~Grid.TYPE_MASK;
+        for (int i = 0; i < cells.length; i++) if (random.nextInt(4) == 0) cells[i] |= MINE;
+        byte [] expected = scalarCount(cells, 70, 30);
+        SensorCounter.count(cells, 70, 30);
+        assertArrayEquals(expected, cells);
+    }
+
+    private static void checkBoard(Random random, int width, int height, double density) {
+        byte [] cells = randomCells(random, width, height, density);
+        byte [] expected = scalarCount(cells, width, height);
+        SensorCounter.count(cells, width, height);
+        assertArrayEquals(expected, cells, () -> width + "x" + height + " at density " + density);
+    }
+
+    /// @return tiles with mines at the given density, and random revealed and flagged bits that must be left alone.
+    private static byte [] randomCells(Random random, int width, int height, double density) {
+        byte [] cells = new byte[width * height];
+        for (int i = 0; i < cells.length; i++) {
+            if (random.nextDouble() < density) cells[i] |= MINE;
+            cells[i] |= (byte) (random.nextInt(4) << 6);
+        }
+        return cells;
+    }
+
+    private static byte [] scalarCount(byte [] cells, int width, int height) {
+        byte [] result = cells.clone();
+        for (int y = 0; y < height; y++) {
+            for (int x = 0; x < width; x++) {
+                int count = 0;
+                for (int ny = Math.max(0, y - 1); ny <= Math.min(height - 1, y + 1); ny++) {
+                    for (int nx = Math.max(0, x - 1); nx <= Math.min(width - 1, x + 1); nx++) {
+                        if ((nx != x || ny != y) && (cells[ny * width + nx] & Grid.TYPE_MASK) == MINE) count++;
+                    }
+                }
+                int i = y * width + x;
+                result[i] = (byte) ((result[i] & ~0x0F) | count);
+            }
+        }
+        return result;
+    }
+}
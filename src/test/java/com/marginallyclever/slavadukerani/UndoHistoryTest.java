@@ -0,0 +1,123 @@
+package com.marginallyclever.slavadukerani;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayDeque;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/// [UndoHistory] takes actions back one at a time, all the way to the start of the game.
+class UndoHistoryTest {
+    @Test
+    void undoingEverythingRestoresTheStart() {
+        Random random = new Random(1);
+        for (int t = 0; t < 200; t++) {
+            int width = 5 + random.nextInt(25);
+            int height = 5 + random.nextInt(20);
+            GameEngine engine = new GameEngine(width, height, t, width * height / 6);
+            engine.setUndoHistory(new UndoHistory(Long.MAX_VALUE));
+            State start = new State(engine);
+
+            // the state before each action still kept, to check every undo on the way back.
+            ArrayDeque<State> before = new ArrayDeque<>();
+            for (int k = 0; k < 100; k++) {
+                if (random.nextInt(6) == 0) {
+                    State expected = before.pollLast();
+                    assertEquals(expected != null, engine.undo());
+                    if (expected != null) assertEquals(expected, new State(engine), "game " + t);
+                    continue;
+                }
+                State now = new State(engine);
+                int kept = engine.getUndoHistory().size();
+                act(engine, random);
+                if (engine.getUndoHistory().size() > kept) before.addLast(now);
+            }
+            while (engine.undo()) {
+                assertEquals(before.pollLast(), new State(engine), "game " + t);
+            }
+            assertTrue(before.isEmpty());
+            assertEquals(start, new State(engine), "game " + t);
+        }
+    }
+
+    @Test
+    void undoesAMillionTileFlood() {
+        GameEngine engine = new GameEngine(1000, 1000, 1, 2000);
+        engine.setUndoHistory(new UndoHistory());
+        Grid grid = (Grid) engine.getBoard();
+        grid.hideAll();
+        int x = 500, y = 500;
+        while (grid.getType(x, y) == GridTile.TYPE_MINE || grid.getSensorValue(x, y) != 0) x++;
+        State start = new State(engine);
+        engine.reveal(x, y);
+        assertTrue(grid.getRevealedSafeCount() > 900_000);
+
+        assertTrue(engine.undo());
+        assertEquals(start, new State(engine));
+    }
+
+    @Test
+    void dropsTheOldestStepsToStayInBudget() {
+        GameEngine engine = new GameEngine(30, 30, 2, 0);
+        UndoHistory history = new UndoHistory(1000);
+        engine.setUndoHistory(history);
+        for (int k = 0; k < 50; k++) engine.move(k % 2 == 0 ? 1 : -1, 0);
+
+        assertTrue(history.getUsedBytes() <= 1000);
+        assertTrue(history.getDroppedCount() > 0);
+        assertEquals(50, history.size() + history.getDroppedCount());
+        State previous = new State(engine);
+        engine.move(0, 1);
+        assertTrue(engine.undo());
+        assertEquals(previous, new State(engine));
+    }
+
+    @Test
+    void forgetsEverythingBeforeAStepBiggerThanTheBudget() {
+        GameEngine engine = new GameEngine(200, 200, 3, 0);
+        UndoHistory history = new UndoHistory(200);
+        engine.setUndoHistory(history);
+        ((Grid) engine.getBoard()).hideAll();
+        engine.toggleFlag(50, 50);
+        assertTrue(history.canUndo());
+        // a flood of the whole empty board.
+        engine.reveal(100, 100);
+
+        assertFalse(history.canUndo());
+        assertEquals(1, history.getDroppedCount());
+        assertFalse(engine.undo());
+    }
+
+    @Test
+    void turnsDownANegativeBudget() {
+        assertThrows(IllegalArgumentException.class, () -> new UndoHistory(-1));
+    }
+
+    private static void act(GameEngine engine, Random random) {
+        Board board = engine.getBoard();
+        int x = random.nextInt(board.getGridWidth()), y = random.nextInt(board.getGridHeight());
+        switch (random.nextInt(5)) {
+            case 0 -> engine.reveal(x, y);
+            case 1 -> engine.toggleFlag(x, y);
+            case 2 -> engine.chord(x, y);
+            default -> {
+                int d = random.nextBoolean() ? 1 : -1;
+                if (random.nextBoolean()) engine.move(d, 0);
+                else engine.move(0, d);
+            }
+        }
+    }
+
+    /// Everything an action can change, including the counters the grid keeps.
+    private record State(long checksum, int hidden, int flags, int revealedSafe, int frontier) {
+        State(GameEngine engine) {
+            this(GameJournal.checksum(engine), ((Grid) engine.getBoard()).getHiddenCount(),
+                    engine.getBoard().getFlagCount(), ((Grid) engine.getBoard()).getRevealedSafeCount(),
+                    ((Grid) engine.getBoard()).getFrontierIndex().size());
+        }
+    }
+}